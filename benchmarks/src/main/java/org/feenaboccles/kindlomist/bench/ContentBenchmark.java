@@ -0,0 +1,69 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.content.Content;
+import org.feenaboccles.kindlomist.articles.html.AbstractArticleParser;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the content of an article from its already-parsed body,
+ * for articles of increasing length, made by repeating the body of a
+ * typical article with its images renamed, so none are duplicates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentBenchmark {
+
+	/** How many copies of the article's body to read */
+	@Param({ "1", "10", "50" })
+	int copies;
+
+	/** Exposes the content reader used by all the article parsers */
+	public static class ContentReader extends AbstractArticleParser {
+		public List<Content> read(Element bodyDiv) {
+			return readContent(bodyDiv, /* convertShortTextToHeading = */ false, /* permitLetterAuthor = */ false);
+		}
+	}
+
+	private final ContentReader reader = new ContentReader();
+	private Element bodyDiv;
+
+	@Setup
+	public void setUp() throws IOException {
+		Element original = Jsoup.parse(Pages.load("article.html")).select("article div.main-content").first();
+
+		bodyDiv = new Element(original.tag(), "");
+		for (int copy = 0; copy < copies; copy++) {
+			for (Element child : original.children()) {
+				Element clone = child.clone();
+				for (Element img : clone.getElementsByTag("img"))
+					img.attr("src", img.attr("src") + "?copy=" + copy);
+				bodyDiv.appendChild(clone);
+			}
+		}
+	}
+
+	@Benchmark
+	public List<Content> readContent() {
+		return reader.read(bodyDiv);
+	}
+}
@@ -0,0 +1,305 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.epub.EpubWriter;
+import org.feenaboccles.kindlomist.articles.html.ParserBackend;
+import org.feenaboccles.kindlomist.download.AsyncHttpTransport;
+import org.feenaboccles.kindlomist.download.Downloader;
+import org.feenaboccles.kindlomist.download.Email;
+import org.feenaboccles.kindlomist.download.HttpTransport;
+import org.feenaboccles.kindlomist.download.Password;
+import org.feenaboccles.kindlomist.download.PooledHttpTransport;
+import org.feenaboccles.kindlomist.download.TransportSettings;
+import org.feenaboccles.kindlomist.metrics.Metrics;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+/**
+ * Downloads a whole issue, several times over, from a {@link MockEconomist}
+ * instead of the real site, and reports how long each download took, the
+ * rate at which requests were served, the peak heap used, and when each
+ * stage - logging in, the index, the articles and the images - began and
+ * ended, followed by the {@link Metrics} recorded over all the runs.
+ * This makes it possible to compare the effect of different
+ * concurrency settings, at a given latency and bandwidth, reproducibly.
+ * <p>
+ * Run it from the benchmarks jar with
+ * <pre>
+ * java -cp target/benchmarks.jar org.feenaboccles.kindlomist.bench.DownloadHarness --latency 50 --runs 5
+ * </pre>
+ */
+public class DownloadHarness {
+
+	private final static String EMAIL    = "reader@example.com";
+	private final static String PASSWORD = "mock-password";
+
+	public static void main(String[] args) throws Exception {
+		DownloadHarness harness = new DownloadHarness();
+		CmdLineParser parser = new CmdLineParser(harness);
+		try {
+			parser.parseArgument(args);
+		}
+		catch (CmdLineException e) {
+			System.err.println(e.getMessage());
+			parser.printUsage(System.err);
+			System.exit(1);
+		}
+		if (harness.showHelp) {
+			parser.printUsage(System.out);
+			return;
+		}
+
+		for (int run = 1; run <= harness.runs; run++)
+			harness.run(run);
+
+		System.out.println("Metrics over all runs:");
+		System.out.print(Metrics.INSTANCE);
+	}
+
+	private boolean showHelp        = false;
+	private int     runs            = 3;
+	private int     fetchThreads    = Downloader.DEFAULT_FETCH_CONCURRENCY;
+	private int     connectionsPerHost = 0;
+	private boolean asyncHttp       = false;
+	private boolean streamingParser = false;
+	private int     latencyMillis   = 0;
+	private int     bandwidthKBps   = 0;
+	private double  pageErrorRate   = 0;
+	private double  imageErrorRate  = 0;
+	private boolean writeEpub       = false;
+	private boolean overlap         = false;
+
+	/**
+	 * Downloads the issue once, from a newly started server, and prints
+	 * a report of the download.
+	 */
+	private void run(int run) throws Exception {
+		try (MockEconomist server = new MockEconomist()) {
+			server.setLatencyMillis(latencyMillis);
+			server.setBytesPerSecond(bandwidthKBps * 1024L);
+			server.setPageErrorRate(pageErrorRate);
+			server.setImageErrorRate(imageErrorRate);
+			server.start();
+
+			System.gc();
+			resetPeakHeap();
+
+			long start = System.nanoTime();
+			String outcome;
+			String transportStats;
+			try (HttpTransport transport = new RedirectingTransport(newTransport(), server.getAddress())) {
+				Downloader d = new Downloader(MockEconomist.ISSUE, Email.of(EMAIL), Password.of(PASSWORD), fetchThreads, Optional.empty(), transport);
+				d.setParserBackend(streamingParser ? ParserBackend.STREAMING : ParserBackend.DOM);
+				try {
+					Economist issue = writeEpub ? downloadAndWrite(d) : d.call();
+					outcome = "downloaded " + issue.getSections().values().stream().mapToInt(s -> s.size()).sum() + " articles"
+							+ (! writeEpub ? "" : overlap ? ", writing the book as it downloaded" : ", then wrote the book");
+				}
+				catch (Exception e) {
+					outcome = "FAILED - " + e.getMessage();
+				}
+				transportStats = transport.getStats().toString();
+			}
+			long elapsed = System.nanoTime() - start;
+
+			long requests = 0, bytes = 0;
+			for (MockEconomist.Kind kind : MockEconomist.Kind.values()) {
+				requests += server.getStats(kind).getRequests();
+				bytes    += server.getStats(kind).getBytes();
+			}
+
+			System.out.println(String.format("Run %d: %s", run, outcome));
+			System.out.println(String.format("  wall-clock  %8d ms", TimeUnit.NANOSECONDS.toMillis(elapsed)));
+			System.out.println(String.format("  requests    %8d      %8.1f/s", requests, requests / (elapsed / 1E9)));
+			System.out.println(String.format("  received    %8d KB   %8.1f KB/s", bytes / 1024, bytes / 1024 / (elapsed / 1E9)));
+			System.out.println(String.format("  peak heap   %8d MB", peakHeap() / (1024 * 1024)));
+			System.out.println("  " + transportStats);
+			for (MockEconomist.Kind kind : MockEconomist.Kind.values()) {
+				MockEconomist.KindStats stats = server.getStats(kind);
+				if (stats.getRequests() == 0)
+					continue;
+				System.out.println(String.format("  %-8s %5d requests %8d KB, from %6d ms to %6d ms",
+						kind.name().toLowerCase(), stats.getRequests(), stats.getBytes() / 1024,
+						TimeUnit.NANOSECONDS.toMillis(stats.getFirstNanos() - start),
+						TimeUnit.NANOSECONDS.toMillis(stats.getLastNanos() - start)));
+			}
+		}
+	}
+
+	/**
+	 * Downloads the issue and writes it as an EPUB book to a temporary file,
+	 * either once it's downloaded, or, if overlapping, as it's downloaded,
+	 * as {@link org.feenaboccles.kindlomist.run.Main} would.
+	 */
+	private Economist downloadAndWrite(Downloader d) throws Exception {
+		Path epub = Files.createTempFile("economist-", ".epub");
+		try {
+			if (! overlap) {
+				Economist issue = d.call();
+				EpubWriter.write(epub, issue);
+				return issue;
+			}
+			ExecutorService collector = Executors.newSingleThreadExecutor();
+			try {
+				PendingIssue pending = d.start(collector);
+				EpubWriter.write(epub, pending, ForkJoinPool.commonPool());
+				return pending.getIssue().join();
+			}
+			finally {
+				collector.shutdown();
+			}
+		}
+		finally {
+			Files.deleteIfExists(epub);
+		}
+	}
+
+	/**
+	 * Creates a transport configured as {@link org.feenaboccles.kindlomist.run.Main}
+	 * would, unless the number of connections per host has been set.
+	 */
+	private HttpTransport newTransport() throws Exception {
+		int perHost = connectionsPerHost > 0
+				? connectionsPerHost
+				: fetchThreads + Downloader.NUM_SIMUL_DOWNLOADS;
+		TransportSettings settings = TransportSettings.builder()
+				.maxConnectionsPerHost(perHost)
+				.maxConnections(2 * perHost)
+				.build();
+		return asyncHttp
+				? new AsyncHttpTransport(settings)
+				: new PooledHttpTransport(settings);
+	}
+
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+	}
+
+	/**
+	 * The sum of the peak usage of each heap memory pool since it was last
+	 * reset. As each pool peaks at a different time, this overestimates
+	 * the true peak a little.
+	 */
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		return peak;
+	}
+
+	/**
+	 * Shows the help message
+	 */
+	@Option(name = "-h", aliases = "--help", usage = "Show this help message.", metaVar = " ")
+	public void setShowHelp(boolean showHelp) {
+		this.showHelp = showHelp;
+	}
+
+	/**
+	 * Sets how many times the issue is downloaded. The first runs are
+	 * slower, while the JIT warms up.
+	 */
+	@Option(name = "--runs", usage = "How many times to download the issue, default 3", metaVar = " ")
+	public void setRuns(int runs) {
+		this.runs = runs;
+	}
+
+	/**
+	 * Sets the maximum number of articles fetched simultaneously
+	 */
+	@Option(name = "-t", aliases = "--fetch-threads", usage = "The maximum number of articles to download simultaneously", metaVar = " ")
+	public void setFetchThreads(int fetchThreads) {
+		this.fetchThreads = fetchThreads;
+	}
+
+	/**
+	 * Sets the size of the connection pool for each host
+	 */
+	@Option(name = "--connections-per-host", usage = "The maximum number of connections to each host, by default enough for all fetch threads and image downloads", metaVar = " ")
+	public void setConnectionsPerHost(int connectionsPerHost) {
+		this.connectionsPerHost = connectionsPerHost;
+	}
+
+	/**
+	 * Sets whether to use the non-blocking HTTP transport
+	 */
+	@Option(name = "--async-http", usage = "Make HTTP requests with non-blocking I/O", metaVar = " ")
+	public void setAsyncHttp(boolean asyncHttp) {
+		this.asyncHttp = asyncHttp;
+	}
+
+	/**
+	 * Sets whether pages are scanned for just the parts used, rather than
+	 * parsed in full
+	 */
+	@Option(name = "--streaming-parser", usage = "Scan each page for just the parts used, rather than parsing it in full", metaVar = " ")
+	public void setStreamingParser(boolean streamingParser) {
+		this.streamingParser = streamingParser;
+	}
+
+	/**
+	 * Sets the delay before the server answers each request
+	 */
+	@Option(name = "--latency", usage = "How long the server waits before answering each request, in milliseconds", metaVar = " ")
+	public void setLatencyMillis(int latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * Sets the rate at which the server sends each response
+	 */
+	@Option(name = "--bandwidth", usage = "The rate at which each response is sent, in KB/s, by default unlimited", metaVar = " ")
+	public void setBandwidthKBps(int bandwidthKBps) {
+		this.bandwidthKBps = bandwidthKBps;
+	}
+
+	/**
+	 * Sets the probability that a request for an article fails
+	 */
+	@Option(name = "--page-error-rate", usage = "The probability, from 0 to 1, that a request for an article fails", metaVar = " ")
+	public void setPageErrorRate(double pageErrorRate) {
+		this.pageErrorRate = pageErrorRate;
+	}
+
+	/**
+	 * Sets the probability that a request for an image fails
+	 */
+	@Option(name = "--image-error-rate", usage = "The probability, from 0 to 1, that a request for an image fails", metaVar = " ")
+	public void setImageErrorRate(double imageErrorRate) {
+		this.imageErrorRate = imageErrorRate;
+	}
+
+	/**
+	 * Sets whether each downloaded issue is written out as an EPUB book
+	 */
+	@Option(name = "--epub", usage = "Write each downloaded issue to a temporary EPUB file, as part of the run", metaVar = " ")
+	public void setWriteEpub(boolean writeEpub) {
+		this.writeEpub = writeEpub;
+	}
+
+	/**
+	 * Sets whether the EPUB book is written while the issue downloads,
+	 * rather than once it's downloaded
+	 */
+	@Option(name = "--overlap", usage = "Write each section of the EPUB file as soon as it's downloaded. Implies --epub", metaVar = " ")
+	public void setOverlap(boolean overlap) {
+		this.overlap   = overlap;
+		this.writeEpub = writeEpub || overlap;
+	}
+}
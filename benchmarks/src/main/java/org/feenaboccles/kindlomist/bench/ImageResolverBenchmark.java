@@ -0,0 +1,100 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many images per second can be written through
+ * {@link ImageResolver#putImage(URI, byte[])} as the number of writing
+ * threads increases. With a lock around the disk write, throughput is flat
+ * regardless of the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageResolverBenchmark {
+
+	/** The size of each image, typical of the Economist's inline images and cover */
+	@Param({ "30000", "300000" })
+	int imageBytes;
+
+	private byte[]        image;
+	private Path          dir;
+	private ImageResolver resolver;
+	private final AtomicLong imageIds = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void createImage() {
+		image = new byte[imageBytes];
+		new Random(42).nextBytes(image);
+	}
+
+	@Setup(Level.Iteration)
+	public void createResolver() throws IOException {
+		dir      = Files.createTempDirectory("image-resolver-bench-");
+		resolver = new ImageResolver(dir);
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteImages() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	private Path putImage() throws IOException {
+		URI uri = URI.create("http://cdn.static-economist.com/images/image-" + imageIds.incrementAndGet() + ".jpg");
+		return resolver.putImage(uri, image);
+	}
+
+	@Benchmark @Threads(1)
+	public Path putImage_1thread() throws IOException {
+		return putImage();
+	}
+
+	@Benchmark @Threads(2)
+	public Path putImage_2threads() throws IOException {
+		return putImage();
+	}
+
+	@Benchmark @Threads(4)
+	public Path putImage_4threads() throws IOException {
+		return putImage();
+	}
+
+	@Benchmark @Threads(6)
+	public Path putImage_6threads() throws IOException {
+		return putImage();
+	}
+
+	@Benchmark @Threads(8)
+	public Path putImage_8threads() throws IOException {
+		return putImage();
+	}
+}
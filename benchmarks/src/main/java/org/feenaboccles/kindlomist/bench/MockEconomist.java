@@ -0,0 +1,353 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.PrintEdition;
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.PrintEditionParser;
+import org.feenaboccles.kindlomist.download.DateStamp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for economist.com, running on a local port, which serves
+ * kindlomist's test pages, so a whole issue can be downloaded without
+ * touching the real site. Requests are routed on their <tt>Host</tt>
+ * header, so all the Economist's hosts can be served from the one port:
+ * see {@link RedirectingTransport}.
+ * <p>
+ * The issue is the one in the test print-edition index. Its special
+ * articles are served from the matching test pages, and every other
+ * article from one of the test articles, chosen by its path. Images are
+ * small generated JPEGs, each different, so none are de-duplicated.
+ * Pages are only served once logged in, as on the real site.
+ * <p>
+ * Every response can be delayed, throttled to a given bandwidth, or
+ * failed at random, by setting these before calling {@link #start()}.
+ * Counts of the requests served, the bytes sent, and when the first and
+ * last of each {@link Kind} of request arrived, are kept for reporting.
+ */
+public class MockEconomist implements AutoCloseable {
+
+	public final static DateStamp ISSUE = DateStamp.of("2012-10-10");
+
+	private final static String WWW_HOST     = "www.economist.com";
+	private final static String SESSION      = "SESS=mock-economist";
+	private final static int    CHUNK_SIZE   = 4096;
+	private final static int    BACKLOG      = 64;
+
+	private final static List<String> ARTICLE_PAGES = Arrays.asList(
+			"article.html", "article2.html", "article4-economist-ranking.html",
+			"article5-lead-image-is-graph.html", "article6-short-graph-desc.html",
+			"article7-greece.html", "article8-financial-with-refs.html",
+			"article9-useless-congress.html", "article10-scary-ads.html",
+			"article11-french-book-review.html", "article13-with-pull-quote.html",
+			"article14-egypt.html");
+
+	private final static String LOGIN_PAGE =
+			"<html><body><form id=\"user-login\" action=\"https://www.economist.com/user/login\" method=\"post\"><div>"
+			+ "<input type=\"text\" name=\"name\"/><input type=\"password\" name=\"pass\"/>"
+			+ "<input type=\"hidden\" name=\"form_build_id\" value=\"form-mock\"/>"
+			+ "<input type=\"hidden\" name=\"form_id\" id=\"edit-user-login\" value=\"user_login\"/>"
+			+ "<input type=\"hidden\" name=\"securelogin_original_baseurl\" id=\"edit-securelogin-original-baseurl\" value=\"https://www.economist.com\"/>"
+			+ "</div></form></body></html>";
+
+	/** The kinds of request served, used to group the counts */
+	public enum Kind {
+		LOGIN, INDEX, ARTICLE, IMAGE, ERROR
+	}
+
+	/** The number of requests, and bytes sent in response, for one kind of request */
+	public final static class KindStats {
+		private final AtomicLong requests   = new AtomicLong();
+		private final AtomicLong bytes      = new AtomicLong();
+		private final AtomicLong firstNanos = new AtomicLong(Long.MAX_VALUE);
+		private final AtomicLong lastNanos  = new AtomicLong(Long.MIN_VALUE);
+
+		private void record(long startNanos, long endNanos, long sent) {
+			requests.incrementAndGet();
+			bytes.addAndGet(sent);
+			firstNanos.accumulateAndGet(startNanos, Math::min);
+			lastNanos.accumulateAndGet(endNanos, Math::max);
+		}
+
+		public long getRequests() {
+			return requests.get();
+		}
+
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		/** When the first request of this kind arrived, as a {@link System#nanoTime()} */
+		public long getFirstNanos() {
+			return firstNanos.get();
+		}
+
+		/** When the last request of this kind was answered, as a {@link System#nanoTime()} */
+		public long getLastNanos() {
+			return lastNanos.get();
+		}
+	}
+
+	private final Map<String, String> pages = new HashMap<>();
+	private final Map<String, String> specialArticles = new HashMap<>();
+	private final Map<Kind, KindStats> stats = new EnumMap<>(Kind.class);
+	private String indexPage;
+	private byte[] image;
+
+	private int    latencyMillis  = 0;
+	private long   bytesPerSecond = 0;
+	private double pageErrorRate  = 0;
+	private double imageErrorRate = 0;
+
+	private HttpServer      server;
+	private ExecutorService executor;
+
+	public MockEconomist() throws IOException, HtmlParseException {
+		for (Kind kind : Kind.values())
+			stats.put(kind, new KindStats());
+		for (String page : ARTICLE_PAGES)
+			pages.put(page, Pages.load(page));
+
+		indexPage = Pages.load("printed-index.html");
+		PrintEdition edition = new PrintEditionParser(ISSUE).parse(URI.create("http://" + WWW_HOST + "/printedition/" + ISSUE.value()), indexPage);
+		specialArticles.put(edition.getPoliticsThisWeek().getPath(), Pages.load("pols-this-week.html"));
+		specialArticles.put(edition.getKalsCartoon().getPath(),      Pages.load("kal.html"));
+		specialArticles.put(edition.getLetters().getPath(),          Pages.load("letters.html"));
+		if (edition.getBusinessThisWeek().isPresent())
+			specialArticles.put(edition.getBusinessThisWeek().get().getPath(), Pages.load("biz-this-week.html"));
+
+		image = generateImage();
+	}
+
+	/**
+	 * Sets how long to wait before answering each request, in milliseconds.
+	 * By default requests are answered immediately.
+	 */
+	public void setLatencyMillis(int latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	/**
+	 * Sets the rate at which each response is sent, in bytes per second.
+	 * By default, or if zero, responses are sent as fast as possible.
+	 */
+	public void setBytesPerSecond(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Sets the probability with which a request for an article fails with
+	 * a 503 error. The login page and print-edition index never fail.
+	 */
+	public void setPageErrorRate(double pageErrorRate) {
+		this.pageErrorRate = pageErrorRate;
+	}
+
+	/**
+	 * Sets the probability with which a request for an image fails with
+	 * a 503 error.
+	 */
+	public void setImageErrorRate(double imageErrorRate) {
+		this.imageErrorRate = imageErrorRate;
+	}
+
+	/**
+	 * Starts serving on an ephemeral port on the loopback interface.
+	 */
+	public void start() throws IOException {
+		executor = Executors.newCachedThreadPool(r -> {
+			Thread t = new Thread(r, "mock-economist");
+			t.setDaemon(true);
+			return t;
+		});
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), BACKLOG);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * The address requests should be sent to, once {@link #start()}ed
+	 */
+	public URI getAddress() {
+		InetSocketAddress address = server.getAddress();
+		return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+	}
+
+	/**
+	 * The counts for the given kind of request
+	 */
+	public KindStats getStats(Kind kind) {
+		return stats.get(kind);
+	}
+
+	@Override
+	public void close() {
+		if (server != null)
+			server.stop(0);
+		if (executor != null)
+			executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		try {
+			if (latencyMillis > 0)
+				Thread.sleep(latencyMillis);
+
+			String host = hostOf(exchange);
+			String path = exchange.getRequestURI().getPath();
+			if (host.equals(PlainArticle.ECONOMIST_IMAGE_CDN)) {
+				if (fails(imageErrorRate))
+					respond(exchange, start, Kind.ERROR, 503, "text/plain", new byte[0]);
+				else
+					respond(exchange, start, Kind.IMAGE, 200, "image/jpeg", imageFor(path));
+			}
+			else if (! host.equals(WWW_HOST)) {
+				respond(exchange, start, Kind.ERROR, 404, "text/plain", new byte[0]);
+			}
+			else if (path.startsWith("/user")) {
+				login(exchange, start);
+			}
+			else if (! isLoggedIn(exchange)) {
+				respond(exchange, start, Kind.ERROR, 403, "text/plain", new byte[0]);
+			}
+			else if (path.equals("/printedition/" + ISSUE.value())) {
+				respond(exchange, start, Kind.INDEX, 200, "text/html; charset=utf-8", indexPage.getBytes(StandardCharsets.UTF_8));
+			}
+			else if (fails(pageErrorRate)) {
+				respond(exchange, start, Kind.ERROR, 503, "text/plain", new byte[0]);
+			}
+			else {
+				String page = specialArticles.get(path);
+				if (page == null)
+					page = pages.get(ARTICLE_PAGES.get(Math.floorMod(path.hashCode(), ARTICLE_PAGES.size())));
+				respond(exchange, start, Kind.ARTICLE, 200, "text/html; charset=utf-8", page.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Serves the login form, and accepts any user-name and password posted
+	 * to it, echoing the user-name back as the real site does.
+	 */
+	private void login(HttpExchange exchange, long start) throws IOException, InterruptedException {
+		if (! exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, start, Kind.LOGIN, 200, "text/html; charset=utf-8", LOGIN_PAGE.getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+
+		String user = "";
+		for (String field : readFully(exchange.getRequestBody()).split("&"))
+			if (field.startsWith("name="))
+				user = URLDecoder.decode(field.substring("name=".length()), "UTF-8");
+		exchange.getResponseHeaders().add("Set-Cookie", SESSION + "; Path=/");
+		respond(exchange, start, Kind.LOGIN, 200, "text/html; charset=utf-8",
+				("<html><body>Welcome back, " + user + "</body></html>").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void respond(HttpExchange exchange, long start, Kind kind, int status, String contentType, byte[] body)
+	throws IOException, InterruptedException {
+		exchange.getResponseHeaders().add("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		if (body.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				if (bytesPerSecond <= 0) {
+					out.write(body);
+				}
+				else {
+					for (int pos = 0; pos < body.length; pos += CHUNK_SIZE) {
+						int len = Math.min(CHUNK_SIZE, body.length - pos);
+						out.write(body, pos, len);
+						out.flush();
+						Thread.sleep(len * 1000L / bytesPerSecond);
+					}
+				}
+			}
+		}
+		stats.get(kind).record(start, System.nanoTime(), body.length);
+	}
+
+	/**
+	 * The image for the given path: the same JPEG for every path, but with
+	 * the path appended after its end-of-image marker, which decoders
+	 * ignore, so each is different.
+	 */
+	private byte[] imageFor(String path) {
+		byte[] suffix = path.getBytes(StandardCharsets.UTF_8);
+		byte[] result = Arrays.copyOf(image, image.length + suffix.length);
+		System.arraycopy(suffix, 0, result, image.length, suffix.length);
+		return result;
+	}
+
+	private boolean isLoggedIn(HttpExchange exchange) {
+		List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+		return cookies != null && cookies.stream().anyMatch(c -> c.contains(SESSION));
+	}
+
+	private static boolean fails(double errorRate) {
+		return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+	}
+
+	private static String hostOf(HttpExchange exchange) {
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		if (host == null)
+			return "";
+		int colon = host.indexOf(':');
+		return colon < 0 ? host : host.substring(0, colon);
+	}
+
+	private static String readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buf = new byte[CHUNK_SIZE];
+		int amt;
+		while ((amt = in.read(buf)) >= 0)
+			bytes.write(buf, 0, amt);
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A noisy 600x400 JPEG, around the size of the Economist's inline images
+	 */
+	private static byte[] generateImage() throws IOException {
+		BufferedImage img = new BufferedImage(600, 400, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(42);
+		for (int y = 0; y < img.getHeight(); y++)
+			for (int x = 0; x < img.getWidth(); x++)
+				img.setRGB(x, y, random.nextInt(0x1000000) & 0x3F7FBF | (x * 255 / img.getWidth()) << 16);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(img, "jpg", out);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,29 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the sample pages from kindlomist's tests, which are bundled with
+ * the benchmarks.
+ */
+final class Pages {
+
+	private Pages() {
+	}
+
+	static String load(String resource) throws IOException {
+		try (InputStream in = Pages.class.getClassLoader().getResourceAsStream(resource)) {
+			if (in == null)
+				throw new IOException("No such resource " + resource);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int amt;
+			while ((amt = in.read(buf)) >= 0)
+				bytes.write(buf, 0, amt);
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
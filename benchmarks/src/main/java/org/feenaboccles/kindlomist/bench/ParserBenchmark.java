@@ -0,0 +1,89 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.PrintEdition;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.LetterArticleParser;
+import org.feenaboccles.kindlomist.articles.html.ParserBackend;
+import org.feenaboccles.kindlomist.articles.html.PlainArticleParser;
+import org.feenaboccles.kindlomist.articles.html.PrintEditionParser;
+import org.feenaboccles.kindlomist.articles.html.WeeklyDigestArticleParser;
+import org.feenaboccles.kindlomist.download.DateStamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing each kind of downloaded page (an article, the letters,
+ * a weekly digest, and the print-edition index) with each
+ * {@link ParserBackend}: building a DOM of the whole page, or scanning the
+ * page for just the elements that are used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	private final static URI ARTICLE_URI = URI.create("http://www.economist.com/news/united-states/21636044-americas-police-kill-too-many-people");
+	private final static URI INDEX_URI   = URI.create("http://www.economist.com/printedition/2014-12-13");
+
+	@Param({ "DOM", "STREAMING" })
+	public ParserBackend backend;
+
+	private String articleHtml;
+	private String lettersHtml;
+	private String digestHtml;
+	private String indexHtml;
+	private PlainArticleParser        articleParser;
+	private LetterArticleParser       lettersParser;
+	private WeeklyDigestArticleParser digestParser;
+	private PrintEditionParser        indexParser;
+
+	@Setup
+	public void setUp() throws IOException {
+		articleHtml   = Pages.load("article.html");
+		lettersHtml   = Pages.load("letters.html");
+		digestHtml    = Pages.load("pols-this-week.html");
+		indexHtml     = Pages.load("printed-index.html");
+		articleParser = new PlainArticleParser(backend);
+		lettersParser = new LetterArticleParser(backend);
+		digestParser  = new WeeklyDigestArticleParser(backend);
+		indexParser   = new PrintEditionParser(DateStamp.of("2014-12-13"), backend);
+	}
+
+	@Benchmark
+	public PlainArticle article() throws HtmlParseException {
+		return articleParser.parse(ARTICLE_URI, articleHtml);
+	}
+
+	@Benchmark
+	public PlainArticle letters() throws HtmlParseException {
+		return lettersParser.parse(ARTICLE_URI, lettersHtml);
+	}
+
+	@Benchmark
+	public WeeklyDigestArticle weeklyDigest() throws HtmlParseException {
+		return digestParser.parse(ARTICLE_URI, digestHtml);
+	}
+
+	@Benchmark
+	public PrintEdition printEdition() throws HtmlParseException {
+		return indexParser.parse(INDEX_URI, indexHtml);
+	}
+}
@@ -0,0 +1,62 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.message.BasicHeader;
+import org.feenaboccles.kindlomist.download.HttpTransport;
+import org.feenaboccles.kindlomist.download.TransportStats;
+
+/**
+ * Sends every request to the one server, whatever host it's addressed to,
+ * keeping the original host in the <tt>Host</tt> header, so a
+ * {@link MockEconomist} can stand in for all of the Economist's hosts,
+ * over both HTTP and HTTPS, without any change to the URLs used by the
+ * downloader.
+ */
+final class RedirectingTransport implements HttpTransport {
+
+	private final HttpTransport delegate;
+	private final URI           server;
+
+	/**
+	 * @param delegate the transport used to send the redirected requests
+	 * @param server the server to which they should be sent, of which
+	 * only the scheme, host and port are used.
+	 */
+	RedirectingTransport(HttpTransport delegate, URI server) {
+		this.delegate = delegate;
+		this.server   = server;
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request) throws IOException {
+		URI original = request.getURI();
+		URI redirected = URI.create(server.getScheme() + "://" + server.getRawAuthority() + original.getRawPath()
+				+ (original.getRawQuery() == null ? "" : "?" + original.getRawQuery()));
+
+		return delegate.execute(RequestBuilder.copy(request)
+				.setUri(redirected)
+				.addHeader(new BasicHeader("Host", original.getHost()))
+				.build());
+	}
+
+	@Override
+	public RequestConfig getDefaultRequestConfig() {
+		return delegate.getDefaultRequestConfig();
+	}
+
+	@Override
+	public TransportStats getStats() {
+		return delegate.getStats();
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+}
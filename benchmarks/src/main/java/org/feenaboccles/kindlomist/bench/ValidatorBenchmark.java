@@ -0,0 +1,85 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.content.SubHeading;
+import org.feenaboccles.kindlomist.articles.content.Text;
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.PlainArticleParser;
+import org.feenaboccles.kindlomist.valid.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures validating a short article, with its paragraphs, and a full
+ * article parsed from the test pages, using either the hand-written checks
+ * or Bean Validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+	private final static String PARAGRAPH =
+		"The rising importance of mobiles—not simply to make calls but to access the internet as well—partly "
+		+ "explains why BT, a fixed-line telecoms firm, decided to make a £12.5 billion ($19.6 billion) bid for "
+		+ "EE, Britain's biggest mobile operator, on December 15th.";
+
+	@Param({ "false", "true" })
+	boolean beanValidation;
+
+	private PlainArticle article;
+	private PlainArticle parsedArticle;
+
+	@Setup(Level.Trial)
+	public void createArticle() throws IOException, HtmlParseException {
+		Validator.INSTANCE.setBeanValidation(beanValidation);
+		article = PlainArticle.builder()
+				.articleUri(URI.create("http://www.economist.com/news/business/21636765-bt-ee"))
+				.title("Reconnecting")
+				.topic("Telecoms in Britain")
+				.strap("BT’s bid for EE shows how the mobile and fixed-line businesses are converging")
+				.body(Arrays.asList(
+						new Text(PARAGRAPH),
+						new SubHeading("Rising importance"),
+						new Image("http://cdn.static-economist.com/sites/default/files/images/print-edition/20141220_FNC572.png"),
+						new Text(PARAGRAPH + " BT also hopes the merger will let it offer “quad-play”."),
+						new Text(PARAGRAPH + " Shareholders seem to agree."),
+						new Text(PARAGRAPH + " Regulators may not.")))
+				.mainImage(Optional.empty())
+				.build();
+
+		parsedArticle = new PlainArticleParser().parse(
+				URI.create("http://www.economist.com/news/united-states/21636044-americas-police-kill-too-many-people"),
+				Pages.load("article.html"));
+	}
+
+	@Benchmark
+	public PlainArticle validateArticle() {
+		return article.validate();
+	}
+
+	@Benchmark
+	public PlainArticle validateParsedArticle() {
+		return parsedArticle.validate();
+	}
+}
@@ -0,0 +1,87 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
+import org.feenaboccles.kindlomist.valid.VisibleTextValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares checking a paragraph against
+ * {@link PlainArticle#ECONOMIST_VISIBLE_TEXT} with a regular expression,
+ * as <tt>@Pattern</tt> does, against the lookup table in
+ * {@link VisibleTextValidator}, both directly and through Bean Validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisibleTextBenchmark {
+
+	/** A paragraph of typical length, with the usual typographic punctuation */
+	private final static String PARAGRAPH =
+		"Twenty-five years after the fall of the Berlin Wall, the “peace dividend” has run out. "
+		+ "Defence budgets in Europe fell by 15% in real terms between 2005 and 2014, while China’s "
+		+ "rose by 167%—to around $130 billion (£83 billion). America still spends more than the next "
+		+ "seven countries combined, but its lead is shrinking; some analysts reckon it will have halved "
+		+ "by 2030. “We are not going back to the cold war,” says one official, “but we are not in the "
+		+ "1990s either.” Still, the public is wary of new commitments…";
+
+	private final static Pattern VISIBLE_TEXT = Pattern.compile(PlainArticle.ECONOMIST_VISIBLE_TEXT);
+
+	public static class PatternParagraph {
+		@javax.validation.constraints.Pattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+		final String content;
+
+		PatternParagraph(String content) {
+			this.content = content;
+		}
+	}
+
+	public static class VisibleTextParagraph {
+		@VisibleText
+		final String content;
+
+		VisibleTextParagraph(String content) {
+			this.content = content;
+		}
+	}
+
+	private final PatternParagraph     patternParagraph     = new PatternParagraph(PARAGRAPH);
+	private final VisibleTextParagraph visibleTextParagraph = new VisibleTextParagraph(PARAGRAPH);
+
+	@Benchmark
+	public boolean regex() {
+		return VISIBLE_TEXT.matcher(PARAGRAPH).matches();
+	}
+
+	@Benchmark
+	public boolean bitset() {
+		return VisibleTextValidator.isVisible(PARAGRAPH);
+	}
+
+	@Benchmark
+	public PatternParagraph validatePattern() {
+		Validator.INSTANCE.validate(patternParagraph, "paragraph");
+		return patternParagraph;
+	}
+
+	@Benchmark
+	public VisibleTextParagraph validateVisibleText() {
+		Validator.INSTANCE.validate(visibleTextParagraph, "paragraph");
+		return visibleTextParagraph;
+	}
+}
@@ -0,0 +1,168 @@
+package org.feenaboccles.kindlomist.bench;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.SingleImageArticle;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.articles.content.Content;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.LetterArticleParser;
+import org.feenaboccles.kindlomist.articles.html.PlainArticleParser;
+import org.feenaboccles.kindlomist.articles.html.SingleImageArticleParser;
+import org.feenaboccles.kindlomist.articles.html.WeeklyDigestArticleParser;
+import org.feenaboccles.kindlomist.articles.markdown.ArticleWriter;
+import org.feenaboccles.kindlomist.articles.markdown.EconomistWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing out a single article, and a whole issue, as Markdown,
+ * with its sections rendered both in parallel and serially.
+ * The issue is made from the test pages: its digests, cartoon and letters
+ * are parsed from the real pages, and its sections are filled with the
+ * test articles, repeated to give an issue of a typical size. Images are
+ * given paths, but nothing is written to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+	private final static List<String> SECTIONS = Arrays.asList(
+			"Leaders", "United States", "The Americas", "Asia", "China",
+			"Middle East and Africa", "Europe", "Britain", "Business",
+			"Finance and economics", "Science and technology", "Books and arts");
+	private final static int ARTICLES_PER_SECTION = 6;
+
+	private final static List<String> ARTICLE_PAGES = Arrays.asList(
+			"article.html", "article2.html", "article4-economist-ranking.html",
+			"article5-lead-image-is-graph.html", "article6-short-graph-desc.html",
+			"article7-greece.html", "article8-financial-with-refs.html",
+			"article9-useless-congress.html", "article10-scary-ads.html",
+			"article11-french-book-review.html", "article13-with-pull-quote.html",
+			"article14-egypt.html");
+
+	private final static URI PAGE_URI = URI.create("http://www.economist.com/news/21636045");
+
+	private final CharArrayWriter out = new CharArrayWriter(1 << 20);
+	private Economist issue;
+	private PlainArticle article;
+
+	@Setup
+	public void createIssue() throws IOException, HtmlParseException {
+		ImageResolver images = new ImageResolver(Paths.get("images"));
+
+		List<PlainArticle> articles = new ArrayList<>(ARTICLE_PAGES.size());
+		PlainArticleParser articleParser = new PlainArticleParser();
+		for (String page : ARTICLE_PAGES)
+			articles.add(addImages(images, articleParser.parse(PAGE_URI, Pages.load(page))));
+		article = articles.get(0);
+
+		Map<String, List<PlainArticle>> sections = new HashMap<>();
+		int next = 0;
+		for (String section : SECTIONS) {
+			List<PlainArticle> sectionArticles = new ArrayList<>(ARTICLES_PER_SECTION);
+			for (int i = 0; i < ARTICLES_PER_SECTION; i++)
+				sectionArticles.add(articles.get(next++ % articles.size()));
+			sections.put(section, sectionArticles);
+		}
+
+		WeeklyDigestArticleParser digestParser = new WeeklyDigestArticleParser();
+		WeeklyDigestArticle politics = digestParser.parse(PAGE_URI, Pages.load("pols-this-week.html"));
+		WeeklyDigestArticle business = digestParser.parse(PAGE_URI, Pages.load("biz-this-week.html"));
+		addImages(images, politics.getBody());
+		addImages(images, business.getBody());
+
+		SingleImageArticle kal = new SingleImageArticleParser().parse(PAGE_URI, Pages.load("kal.html"));
+		images.putImage(kal.getMainImage().get(), imagePath(kal.getMainImage().get().toString()));
+
+		Image cover = new Image("http://cdn.static-economist.com/sites/default/files/imagecache/print-cover-full/print-covers/20141213_cuk400.jpg");
+		images.putImage(cover, imagePath(cover.getContent()));
+
+		issue = Economist.builder()
+				.dateStamp(LocalDate.of(2014, 12, 13))
+				.politicsThisWeek(politics)
+				.businessThisWeek(Optional.of(business))
+				.kalsCartoon(kal)
+				.letters(addImages(images, new LetterArticleParser().parse(PAGE_URI, Pages.load("letters.html"))))
+				.sections(sections)
+				.obituary(articles.get(articles.size() - 1))
+				.orderedSections(SECTIONS)
+				.images(images)
+				.coverImage(cover)
+				.build();
+	}
+
+	@Benchmark
+	public int article() throws IOException {
+		out.reset();
+		ArticleWriter.write(out, issue.getImages(), article);
+		return out.size();
+	}
+
+	@Benchmark
+	public int economist() throws IOException {
+		out.reset();
+		EconomistWriter.write(out, issue);
+		return out.size();
+	}
+
+	/**
+	 * Writes the issue with every section rendered on the calling thread,
+	 * for comparison with {@link #economist()}, which renders sections in
+	 * parallel on the common pool
+	 */
+	@Benchmark
+	public int economistSerial() throws IOException {
+		out.reset();
+		EconomistWriter.write(out, issue, Runnable::run);
+		return out.size();
+	}
+
+	/**
+	 * Gives every image in the article a path, as if it had been downloaded
+	 */
+	private static PlainArticle addImages(ImageResolver images, PlainArticle article) {
+		if (article.getMainImage().isPresent())
+			images.putImage(article.getMainImage().get(), imagePath(article.getMainImage().get().toString()));
+		addImages(images, article.getBody());
+		return article;
+	}
+
+	private static void addImages(ImageResolver images, List<Content> body) {
+		for (Content content : body)
+			if (content.getType() == Content.Type.IMAGE)
+				images.putImage((Image) content, imagePath(content.getContent()));
+	}
+
+	private static Path imagePath(String url) {
+		return Paths.get("images", url.substring(url.lastIndexOf('/') + 1));
+	}
+}
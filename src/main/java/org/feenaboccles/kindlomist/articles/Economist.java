@@ -18,13 +18,13 @@ import javax.validation.ValidationException;
 import javax.validation.constraints.Size;
 
 import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.valid.EachVisibleText;
 import org.feenaboccles.kindlomist.valid.Validator;
 
 import lombok.NonNull;
 import lombok.Value;
 import lombok.Builder;
 import cz.jirutka.validator.collection.constraints.EachLength;
-import cz.jirutka.validator.collection.constraints.EachPattern;
 
 /**
  * A fully parsed issue of the Economist
@@ -59,14 +59,18 @@ public class Economist implements Serializable {
 	@NonNull PlainArticle obituary;
 	
 	@NonNull @Size(min=MIN_SECTION_COUNT, max=MAX_SECTION_COUNT) 
-	@EachLength(min=MIN_SEC_NAME_LEN, max=MAX_SEC_NAME_LEN) @EachPattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+	@EachLength(min=MIN_SEC_NAME_LEN, max=MAX_SEC_NAME_LEN) @EachVisibleText
 	List<String> orderedSections;
 	
 	@NonNull ImageResolver images;
 	@NonNull Image coverImage;
 	
 	public Economist validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "Economist issue");
+		Validator.INSTANCE.validate(this, "Economist issue", c -> c
+				.size("sections", sections, MIN_SECTION_COUNT, MAX_SECTION_COUNT)
+				.size("orderedSections", orderedSections, MIN_SECTION_COUNT, MAX_SECTION_COUNT)
+				.eachLength("orderedSections", orderedSections, MIN_SEC_NAME_LEN, MAX_SEC_NAME_LEN)
+				.eachVisibleText("orderedSections", orderedSections));
 		
 		// Check that the section-articles map and list of section names is consistent
 		if (! new HashSet<>(orderedSections).equals (sections.keySet())) // more of a coding bug, this
@@ -0,0 +1,343 @@
+package org.feenaboccles.kindlomist.articles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.feenaboccles.kindlomist.articles.content.Content;
+import org.feenaboccles.kindlomist.articles.content.Footnote;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.content.LetterAuthor;
+import org.feenaboccles.kindlomist.articles.content.PullQuote;
+import org.feenaboccles.kindlomist.articles.content.Reference;
+import org.feenaboccles.kindlomist.articles.content.SubHeading;
+import org.feenaboccles.kindlomist.articles.content.Text;
+
+/**
+ * Saves a parsed {@link Economist} issue to disk, and loads it again, so that
+ * an issue can be re-rendered without downloading it again.
+ * <p>
+ * A snapshot is a directory, containing the issue in a compact binary file
+ * and a sub-directory holding its images. The file begins with a magic number
+ * and a format version, followed by the issue's articles. Strings are written
+ * as a length-prefixed UTF-8 byte array, and content items are tagged with a
+ * one-byte code. Image paths are stored relative to the images directory, so
+ * a snapshot can be moved.
+ * <p>
+ * Snapshots are validated when written, but not when read.
+ */
+@Slf4j
+public final class EconomistSnapshot {
+
+	public final static String SNAPSHOT_FILE = "issue.snapshot";
+	public final static String IMAGES_DIR    = "images";
+
+	private final static int MAGIC   = 0x4B4D534E; // "KMSN"
+	private final static int VERSION = 1;
+
+	private final static byte
+		TEXT          = 1,
+		SUB_HEADING   = 2,
+		IMAGE         = 3,
+		FOOTNOTE      = 4,
+		PULL_QUOTE    = 5,
+		LETTER_AUTHOR = 6,
+		REFERENCE     = 7;
+
+	private EconomistSnapshot() {
+	}
+
+	/**
+	 * Writes the given issue to a snapshot in the given directory, which is
+	 * created if necessary. The issue's images are copied into the snapshot.
+	 */
+	public static void write(Economist issue, Path directory) throws IOException {
+		Path imagesDir = directory.resolve(IMAGES_DIR);
+		Files.createDirectories(imagesDir);
+		copyImages(issue.getImages(), imagesDir);
+
+		Path tmp = Files.createTempFile(directory, SNAPSHOT_FILE, ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				write(issue, out);
+			}
+			Files.move(tmp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(tmp);
+		}
+		log.info("Saved a snapshot of the issue for " + issue.getDateStamp() + " to " + directory);
+	}
+
+	/**
+	 * Reads the issue from the snapshot in the given directory.
+	 */
+	public static Economist read(Path directory) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(SNAPSHOT_FILE))))) {
+			return read(in, directory.resolve(IMAGES_DIR));
+		}
+	}
+
+	/**
+	 * Reads just the date of the issue in the snapshot in the given directory.
+	 */
+	public static LocalDate readDate(Path directory) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(directory.resolve(SNAPSHOT_FILE))))) {
+			readHeader(in);
+			return LocalDate.ofEpochDay(in.readLong());
+		}
+	}
+
+	/**
+	 * Writes the given issue to the given stream. Image paths are written
+	 * relative to the issue's image directory.
+	 */
+	public static void write(Economist issue, DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeLong(issue.getDateStamp().toEpochDay());
+
+		writeDigest(out, issue.getPoliticsThisWeek());
+		out.writeBoolean(issue.getBusinessThisWeek().isPresent());
+		if (issue.getBusinessThisWeek().isPresent())
+			writeDigest(out, issue.getBusinessThisWeek().get());
+
+		writeUri(out, issue.getKalsCartoon().getArticleUri());
+		writeUri(out, issue.getKalsCartoon().getMainImage().get());
+		writePlain(out, issue.getLetters());
+		writePlain(out, issue.getObituary());
+
+		writeVarInt(out, issue.getOrderedSections().size());
+		for (String section : issue.getOrderedSections()) {
+			writeString(out, section);
+			List<PlainArticle> articles = issue.getSections().get(section);
+			writeVarInt(out, articles.size());
+			for (PlainArticle article : articles)
+				writePlain(out, article);
+		}
+
+		writeString(out, issue.getCoverImage().getContent());
+
+		ImageResolver images = issue.getImages();
+		writeVarInt(out, images.getImagesByKey().size());
+		for (Map.Entry<Image, Path> e : images.getImagesByKey().entrySet()) {
+			writeString(out, e.getKey().getContent());
+			writeString(out, e.getValue().getFileName().toString());
+		}
+		writeVarInt(out, images.getImagesByUri().size());
+		for (Map.Entry<URI, Path> e : images.getImagesByUri().entrySet()) {
+			writeUri(out, e.getKey());
+			writeString(out, e.getValue().getFileName().toString());
+		}
+	}
+
+	/**
+	 * Reads an issue from the given stream.
+	 * @param imagesDir the directory against which image paths are resolved
+	 */
+	public static Economist read(DataInputStream in, Path imagesDir) throws IOException {
+		readHeader(in);
+		LocalDate dateStamp = LocalDate.ofEpochDay(in.readLong());
+
+		WeeklyDigestArticle pols = readDigest(in);
+		Optional<WeeklyDigestArticle> biz = in.readBoolean()
+			? Optional.of(readDigest(in))
+			: Optional.empty();
+
+		SingleImageArticle kal = new SingleImageArticle(readUri(in), readUri(in));
+		PlainArticle letters   = readPlain(in);
+		PlainArticle obituary  = readPlain(in);
+
+		int sectionCount = readVarInt(in);
+		List<String> orderedSections = new ArrayList<>(sectionCount);
+		Map<String, List<PlainArticle>> sections = new HashMap<>(sectionCount * 2);
+		for (int s = 0; s < sectionCount; s++) {
+			String section = readString(in);
+			int articleCount = readVarInt(in);
+			List<PlainArticle> articles = new ArrayList<>(articleCount);
+			for (int a = 0; a < articleCount; a++)
+				articles.add(readPlain(in));
+			orderedSections.add(section);
+			sections.put(section, articles);
+		}
+
+		Image coverImage = new Image(readString(in));
+
+		ImageResolver images = new ImageResolver(imagesDir);
+		for (int i = readVarInt(in); i > 0; i--)
+			images.putImage(new Image(readString(in)), imagesDir.resolve(readString(in)));
+		for (int i = readVarInt(in); i > 0; i--)
+			images.putImage(readUri(in), imagesDir.resolve(readString(in)));
+
+		return Economist.builder()
+					.dateStamp(dateStamp)
+					.politicsThisWeek(pols)
+					.businessThisWeek(biz)
+					.kalsCartoon(kal)
+					.letters(letters)
+					.sections(sections)
+					.obituary(obituary)
+					.orderedSections(orderedSections)
+					.images(images)
+					.coverImage(coverImage)
+					.build();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static void readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC)
+			throw new IOException("This is not a snapshot of an Economist issue");
+		int version = in.readUnsignedShort();
+		if (version != VERSION)
+			throw new IOException("This snapshot uses version " + version + " of the snapshot format, but only version " + VERSION + " is supported");
+	}
+
+	private static void copyImages(ImageResolver images, Path imagesDir) throws IOException {
+		Set<Path> paths = new HashSet<>(images.getImagesByKey().values());
+		paths.addAll(images.getImagesByUri().values());
+		for (Path source : paths) {
+			Path target = imagesDir.resolve(source.getFileName());
+			if (! Files.exists(target) || ! Files.isSameFile(source, target))
+				Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writePlain(DataOutputStream out, PlainArticle article) throws IOException {
+		writeUri(out, article.getArticleUri());
+		writeString(out, article.getTitle());
+		writeString(out, article.getTopic());
+		writeString(out, article.getStrap());
+		writeBody(out, article.getBody());
+		out.writeBoolean(article.getMainImage().isPresent());
+		if (article.getMainImage().isPresent())
+			writeUri(out, article.getMainImage().get());
+	}
+
+	private static PlainArticle readPlain(DataInputStream in) throws IOException {
+		return PlainArticle.builder()
+				.articleUri(readUri(in))
+				.title(readString(in))
+				.topic(readString(in))
+				.strap(readString(in))
+				.body(readBody(in))
+				.mainImage(in.readBoolean() ? Optional.of(readUri(in)) : Optional.empty())
+				.build();
+	}
+
+	private static void writeDigest(DataOutputStream out, WeeklyDigestArticle article) throws IOException {
+		writeUri(out, article.getArticleUri());
+		writeBody(out, article.getBody());
+	}
+
+	private static WeeklyDigestArticle readDigest(DataInputStream in) throws IOException {
+		return new WeeklyDigestArticle(readUri(in), readBody(in));
+	}
+
+	private static void writeBody(DataOutputStream out, List<Content> body) throws IOException {
+		writeVarInt(out, body.size());
+		for (Content content : body) {
+			switch (content.getType()) {
+			case TEXT:          out.writeByte(TEXT);          break;
+			case SUB_HEADING:   out.writeByte(SUB_HEADING);   break;
+			case IMAGE:         out.writeByte(IMAGE);         break;
+			case FOOTNOTE:      out.writeByte(FOOTNOTE);      break;
+			case PULL_QUOTE:    out.writeByte(PULL_QUOTE);    break;
+			case LETTER_AUTHOR: out.writeByte(LETTER_AUTHOR); break;
+			case REFERENCE:
+				Reference ref = (Reference) content;
+				out.writeByte(REFERENCE);
+				writeString(out, ref.getBefore());
+				writeString(out, ref.getUrlText());
+				writeString(out, ref.getUrlHref());
+				writeString(out, ref.getAfter());
+				continue;
+			default:
+				throw new IllegalStateException("No snapshot code has been assigned to the content type " + content.getType());
+			}
+			writeString(out, content.getContent());
+		}
+	}
+
+	private static List<Content> readBody(DataInputStream in) throws IOException {
+		int size = readVarInt(in);
+		List<Content> body = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			byte code = in.readByte();
+			switch (code) {
+			case TEXT:          body.add(new Text(readString(in)));         break;
+			case SUB_HEADING:   body.add(new SubHeading(readString(in)));   break;
+			case IMAGE:         body.add(new Image(readString(in)));        break;
+			case FOOTNOTE:      body.add(new Footnote(readString(in)));     break;
+			case PULL_QUOTE:    body.add(new PullQuote(readString(in)));    break;
+			case LETTER_AUTHOR: body.add(new LetterAuthor(readString(in))); break;
+			case REFERENCE:
+				body.add(new Reference(readString(in), readString(in), readString(in), readString(in)));
+				break;
+			default:
+				throw new IOException("Unknown content code " + code + " in snapshot");
+			}
+		}
+		return body;
+	}
+
+	private static void writeUri(DataOutputStream out, URI uri) throws IOException {
+		writeString(out, uri.toString());
+	}
+
+	private static URI readUri(DataInputStream in) throws IOException {
+		return URI.create(readString(in));
+	}
+
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a non-negative integer using seven bits per byte, so that the
+	 * small lengths and counts which make up most of a snapshot take one byte.
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed length in snapshot");
+	}
+}
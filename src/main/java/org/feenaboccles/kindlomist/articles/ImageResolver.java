@@ -1,22 +1,42 @@
 package org.feenaboccles.kindlomist.articles;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.metrics.Metrics;
 
 /**
  * Resolves images when parsing files. Threadsafe
+ * <p>
+ * Also de-duplicates image downloads in two ways. Requests for the same image,
+ * identified by its {@link #canonicalKey(URI) canonical URL}, share a single
+ * download via {@link #singleFlight(URI, Supplier)}. Separately, downloaded
+ * files with identical content are merged by {@link #deduplicate(Path)}, so
+ * the same bytes published at two URLs are stored only once.
+ * <p>
+ * The time taken to write each image, and to compute the digest used to
+ * de-duplicate it, are recorded in the {@link Metrics} <tt>image.write</tt>
+ * and <tt>image.digest</tt>.
  * @author bryanfeeney
  */
 @Slf4j
@@ -26,11 +46,17 @@ public class ImageResolver implements Serializable
 	
 	private final static int EXPECTED_ARTICLE_COUNT      = 100;
 	private final static int EXPECTED_IMAGES_PER_ARTICLE = 2;
+	private final static String IMAGE_FILE_PREFIX        = "images-";
 	
 	private final Map<Image, Path> images;
 	private final Map<URI, Path>  imagesByUri;
 	private final Path downloadDirectory;
 	private final AtomicInteger imageCounter = new AtomicInteger(0);
+	private final ConcurrentMap<String, Path> pathsByDigest = new ConcurrentHashMap<>();
+	private transient ConcurrentMap<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+	
+	private final AtomicInteger sharedRequests = new AtomicInteger(0);
+	private final AtomicInteger mergedFiles    = new AtomicInteger(0);
 	
 	/**
 	 * Creates an {@link ImageResolver} to which paths can be
@@ -41,9 +67,30 @@ public class ImageResolver implements Serializable
 		this.images            = new ConcurrentHashMap<>(EXPECTED_ARTICLE_COUNT * EXPECTED_IMAGES_PER_ARTICLE);
 		this.imagesByUri       = new ConcurrentHashMap<>(EXPECTED_ARTICLE_COUNT);
 		this.downloadDirectory = downloadDirectory;
+		this.imageCounter.set(highestImageNumber(downloadDirectory));
 		log.info ("Temporary image directory is " + downloadDirectory);
 	}
 	
+	/**
+	 * Finds the highest number used in the name of an image already in the
+	 * given directory, so that new images are never given the same name when
+	 * a download directory is re-used.
+	 */
+	private static int highestImageNumber(Path directory) {
+		if (directory == null || ! Files.isDirectory(directory))
+			return 0;
+		
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(p -> StringUtils.substringBetween(p.getFileName().toString(), IMAGE_FILE_PREFIX, "."))
+						.filter(StringUtils::isNumeric)
+						.mapToInt(Integer::parseInt)
+						.max().orElse(0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException("Can't list the existing images in " + directory + " : " + e.getMessage(), e);
+		}
+	}
+	
 	public Path getImagePath(Image key) {
 		return images.get(key);
 	}
@@ -61,18 +108,25 @@ public class ImageResolver implements Serializable
 	}
 	
 	
+	/** The images keyed by inline image content, used to save a snapshot */
+	Map<Image, Path> getImagesByKey() {
+		return Collections.unmodifiableMap(images);
+	}
+
+	/** The images keyed by URI, used to save a snapshot */
+	Map<URI, Path> getImagesByUri() {
+		return Collections.unmodifiableMap(imagesByUri);
+	}
+
 	public void putImage(Image key, Path imageFile) {
-		imageCounter.incrementAndGet();
 		images.put(key, imageFile);
 	}
 	
 	public void putImage(URI key, Path imageFile) {
-		imageCounter.incrementAndGet();
 		imagesByUri.put(key, imageFile);
 	}
 	
 	public Path putImage(Image key, byte[] imageContents) throws IOException {
-		imageCounter.incrementAndGet();
 		try {
 			return putImageBytes(key, new URI(key.getContent()), images, imageContents);
 		}
@@ -82,35 +136,152 @@ public class ImageResolver implements Serializable
 	}
 	
 	public Path putImage(URI key, byte[] imageContents) throws IOException {
-		imageCounter.incrementAndGet();
 		return putImageBytes(key, key, imagesByUri, imageContents);
 	}
 	
 
 	
 	/**
-	 * Creates a file in which an image's content could be 
-	 * written, adds it to this lookup, and returns an
-	 * open stream to write the content should be written
-	 * straightaway, and then closed.
+	 * Creates a file in which an image's content is written, and then
+	 * adds it to this lookup. File names are allocated atomically, so
+	 * several threads may write images simultaneously without locking. The
+	 * image is only added to the lookup once its content is fully written.
 	 */
-	private synchronized <K> Path putImageBytes (K key, URI uri, Map<K, Path> map, byte[] bytes) throws IOException {
+	private <K> Path putImageBytes (K key, URI uri, Map<K, Path> map, byte[] bytes) throws IOException {
+		long start = System.nanoTime();
 		Path outputPath = generateImagePath(uri);
-		map.put(key, outputPath);
 		Files.write(outputPath, bytes, StandardOpenOption.CREATE_NEW);
+		map.put(key, outputPath);
+		Metrics.INSTANCE.timer("image.write").recordSince(start);
 		return outputPath;
 	}
 
+	/**
+	 * Returns the download of the given image, starting it with the given
+	 * function only if no download of the same image (according to its
+	 * {@link #canonicalKey(URI) canonical URL}) has already been started.
+	 * Concurrent and later requests for the same image therefore share a
+	 * single download. A download which fails, or which can't even be
+	 * started, is forgotten, so that a subsequent request will try again.
+	 */
+	public CompletableFuture<Path> singleFlight(URI uri, Supplier<CompletableFuture<Path>> download) {
+		String key = canonicalKey(uri);
+		CompletableFuture<Path> existing = downloads.get(key);
+		if (existing != null) {
+			sharedRequests.incrementAndGet();
+			return existing;
+		}
+		
+		CompletableFuture<Path> pending = new CompletableFuture<>();
+		existing = downloads.putIfAbsent(key, pending);
+		if (existing != null) {
+			sharedRequests.incrementAndGet();
+			return existing;
+		}
+		
+		// Only start the download once we know it's ours to make
+		CompletableFuture<Path> started;
+		try {
+			started = download.get();
+		}
+		catch (Throwable e) {
+			// e.g. the executor rejected it, in which case nothing will ever complete it
+			downloads.remove(key, pending);
+			pending.completeExceptionally(e);
+			return pending;
+		}
+		started.whenComplete((path, err) -> {
+			if (err == null) {
+				pending.complete(path);
+			} else {
+				downloads.remove(key, pending);
+				pending.completeExceptionally(err);
+			}
+		});
+		return pending;
+	}
+	
+	/**
+	 * Reduces an image URL to the form used to identify duplicate requests:
+	 * the scheme is dropped, as the CDN serves the same images over HTTP and
+	 * HTTPS, as is any fragment. The host is lower-cased, default ports
+	 * are removed, and the path is normalised.
+	 */
+	public static String canonicalKey(URI uri) {
+		URI normal = uri.normalize();
+		StringBuilder key = new StringBuilder();
+		if (normal.getHost() != null)
+			key.append(normal.getHost().toLowerCase());
+		if (normal.getPort() != -1 && normal.getPort() != 80 && normal.getPort() != 443)
+			key.append(':').append(normal.getPort());
+		if (normal.getRawPath() != null)
+			key.append(normal.getRawPath());
+		if (normal.getRawQuery() != null)
+			key.append('?').append(normal.getRawQuery());
+		return key.toString();
+	}
+	
+	/**
+	 * Checks whether an image with the same content as the given, newly
+	 * downloaded, file has already been stored. If so, the given file is
+	 * deleted and the path to the existing file is returned. Otherwise the
+	 * given path is returned, and recorded for future comparisons.
+	 */
+	public Path deduplicate(Path imageFile) throws IOException {
+		long start = System.nanoTime();
+		String digest = sha256Hex(imageFile);
+		Metrics.INSTANCE.timer("image.digest").recordSince(start);
+		Path existing = pathsByDigest.putIfAbsent(digest, imageFile);
+		if (existing == null || existing.equals(imageFile))
+			return imageFile;
+		
+		Files.deleteIfExists(imageFile);
+		mergedFiles.incrementAndGet();
+		log.debug("Image file " + imageFile + " has the same content as " + existing + ", and was removed");
+		return existing;
+	}
+	
+	/**
+	 * A summary of how many downloads were avoided by de-duplication
+	 */
+	public String getStats() {
+		return "images: " + pathsByDigest.size() + " distinct files, "
+				+ sharedRequests.get() + " duplicate requests shared a download, "
+				+ mergedFiles.get() + " identical files merged";
+	}
+	
+	private static String sha256Hex(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return DigestUtils.sha256Hex(in);
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		downloads = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Create a path to a new file to which the bytes of an image
+	 * can be saved. Used to stream an image straight to disk, after
+	 * which it should be registered using {@link #putImage(Image, Path)}
+	 * or {@link #putImage(URI, Path)}
+	 * @param key the URI of the image, used to determine the file extension
+	 */
+	public Path newImagePath(URI key) {
+		return generateImagePath(key);
+	}
+
 	/**
 	 * Create a path to a new file to which the bytes of an image
-	 * can be saved.
+	 * can be saved. Each call returns a distinct path.
 	 */
 	private Path generateImagePath(URI key) {
 		if (downloadDirectory == null)
 			throw new IllegalStateException("This image resolver was not created with a download directory, so downloads cannot be performed.");
 		
 		int imageCount   = imageCounter.incrementAndGet();
-		String imageFile = "images-" + imageCount;
+		String imageFile = IMAGE_FILE_PREFIX + imageCount;
 			
 		switch (StringUtils.substringAfterLast(key.getPath(), ".").toLowerCase()) {
 		case "jpg":
@@ -0,0 +1,71 @@
+package org.feenaboccles.kindlomist.articles;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * An issue of the Economist which is still being downloaded. Its layout -
+ * the date and the ordered list of sections - is known, and each of its
+ * parts becomes available as soon as that part, and all the images in it,
+ * have been downloaded. This allows an issue to be written out while it's
+ * still being downloaded.
+ * <p>
+ * A part is never validated on its own: only once {@link #getIssue()}
+ * completes is the whole issue known to be complete and valid, so anything
+ * writing out a pending issue should finish by waiting for it.
+ */
+@Value
+@Builder
+public class PendingIssue {
+
+	@NonNull LocalDate dateStamp;
+	@NonNull CompletableFuture<WeeklyDigestArticle> politicsThisWeek;
+	@NonNull CompletableFuture<Optional<WeeklyDigestArticle>> businessThisWeek;
+	@NonNull CompletableFuture<SingleImageArticle> kalsCartoon;
+	@NonNull CompletableFuture<PlainArticle> letters;
+
+	/** The articles in each section, skipping those which couldn't be parsed */
+	@NonNull Map<String, CompletableFuture<List<PlainArticle>>> sections;
+
+	@NonNull CompletableFuture<PlainArticle> obituary;
+	@NonNull List<String> orderedSections;
+	@NonNull ImageResolver images;
+
+	/** The whole issue, once every part of it is downloaded and it's been validated */
+	@NonNull CompletableFuture<Economist> issue;
+
+	public boolean isTheXmasIssue() {
+		return PrintEdition.isTheXmasIssue(dateStamp);
+	}
+
+	/**
+	 * An issue which has already been downloaded in full, every part of
+	 * which is therefore already available.
+	 */
+	public static PendingIssue of(Economist issue) {
+		Map<String, CompletableFuture<List<PlainArticle>>> sections = new LinkedHashMap<>(issue.getSections().size());
+		for (String section : issue.getOrderedSections())
+			sections.put(section, CompletableFuture.completedFuture(issue.getSections().get(section)));
+
+		return PendingIssue.builder()
+				.dateStamp(issue.getDateStamp())
+				.politicsThisWeek(CompletableFuture.completedFuture(issue.getPoliticsThisWeek()))
+				.businessThisWeek(CompletableFuture.completedFuture(issue.getBusinessThisWeek()))
+				.kalsCartoon(CompletableFuture.completedFuture(issue.getKalsCartoon()))
+				.letters(CompletableFuture.completedFuture(issue.getLetters()))
+				.sections(sections)
+				.obituary(CompletableFuture.completedFuture(issue.getObituary()))
+				.orderedSections(issue.getOrderedSections())
+				.images(issue.getImages())
+				.issue(CompletableFuture.completedFuture(issue))
+				.build();
+	}
+}
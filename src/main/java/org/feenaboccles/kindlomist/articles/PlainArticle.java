@@ -5,7 +5,6 @@ import java.net.URISyntaxException;
 import java.util.*;
 
 import javax.validation.ValidationException;
-import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
 import lombok.NonNull;
@@ -14,6 +13,7 @@ import lombok.Builder;
 
 import org.feenaboccles.kindlomist.articles.content.Content;
 import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
 import org.hibernate.validator.constraints.Length;
 
 /**
@@ -31,13 +31,13 @@ public class PlainArticle implements Article, MainImageArticle, ContentBasedArti
 	@NonNull
 	URI articleUri;
 	
-	@NonNull @Length(min=4, max=80) @Pattern(regexp=ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=4, max=80) @VisibleText
 	String title;
 	
-	@NonNull @Length(min=3, max=80) @Pattern(regexp=ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=3, max=80) @VisibleText
 	String topic;
 	
-	@NonNull @Length(min=4, max=200) @Pattern(regexp=ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=4, max=200) @VisibleText
 	String strap;
 	
 	@NonNull @Size(min=1, max=100)
@@ -53,7 +53,14 @@ public class PlainArticle implements Article, MainImageArticle, ContentBasedArti
 	 * @throws IllegalArgumentException
 	 */
 	public PlainArticle validate() throws ValidationException
-	{	Validator.INSTANCE.validate(this, "article");
+	{	Validator.INSTANCE.validate(this, "article", c -> c
+			.length("title", title, 4, 80)
+			.visibleText("title", title)
+			.length("topic", topic, 3, 80)
+			.visibleText("topic", topic)
+			.length("strap", strap, 4, 200)
+			.visibleText("strap", strap)
+			.size("body", body, 1, 100));
 		
 		if (mainImage.isPresent() && ! mainImage.get().getHost().equals(ECONOMIST_IMAGE_CDN))
 			throw new ValidationException("Invalid article: \n\tThe main image URL - " + mainImage + " - accesses an unexpected host.");
@@ -18,10 +18,10 @@ import lombok.Value;
 import lombok.Builder;
 
 import org.feenaboccles.kindlomist.download.DateStamp;
+import org.feenaboccles.kindlomist.valid.EachVisibleText;
 import org.feenaboccles.kindlomist.valid.Validator;
 
 import cz.jirutka.validator.collection.constraints.EachLength;
-import cz.jirutka.validator.collection.constraints.EachPattern;
 
 /**
  * An object representing the current printed edition of the Economist
@@ -49,12 +49,16 @@ public class PrintEdition implements Serializable {
 	Map<String, List<URI>> sections;
 	
 	@NonNull @Size(min=MIN_SECTION_COUNT, max=MAX_SECTION_COUNT) 
-	@EachLength(min=MIN_SEC_NAME_LEN, max=MAX_SEC_NAME_LEN) @EachPattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+	@EachLength(min=MIN_SEC_NAME_LEN, max=MAX_SEC_NAME_LEN) @EachVisibleText
 	List<String> orderedSections;
 	
 	
 	public PrintEdition validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "print edition article list");
+		Validator.INSTANCE.validate(this, "print edition article list", c -> c
+				.size("sections", sections, MIN_SECTION_COUNT, MAX_SECTION_COUNT)
+				.size("orderedSections", orderedSections, MIN_SECTION_COUNT, MAX_SECTION_COUNT)
+				.eachLength("orderedSections", orderedSections, MIN_SEC_NAME_LEN, MAX_SEC_NAME_LEN)
+				.eachVisibleText("orderedSections", orderedSections));
 		
 		// Check that the section-articles map and list of section names are consistent
 		if (! new HashSet<>(orderedSections).equals (sections.keySet())) // more of a coding bug, this
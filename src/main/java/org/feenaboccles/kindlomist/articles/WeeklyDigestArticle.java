@@ -38,7 +38,8 @@ public class WeeklyDigestArticle implements Article, ContentBasedArticle {
 	 * @throws IllegalArgumentException
 	 */
 	public WeeklyDigestArticle validate() throws ValidationException
-	{	Validator.INSTANCE.validate(this, "weekly digest article");
+	{	Validator.INSTANCE.validate(this, "weekly digest article", c -> c
+			.size("body", body, 1, 100));
 		
 		if (new HashSet<>(body).size() != body.size())
 			throw new ValidationException("Duplicate images or paragraphs in this article");
@@ -1,13 +1,12 @@
 package org.feenaboccles.kindlomist.articles.content;
 
 import javax.validation.ValidationException;
-import javax.validation.constraints.Pattern;
 
 import lombok.NonNull;
 import lombok.Value;
 
-import org.feenaboccles.kindlomist.articles.PlainArticle;
 import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
 import org.hibernate.validator.constraints.Length;
 
 @Value
@@ -15,12 +14,14 @@ public class Footnote implements Content {
 
 	private static final long serialVersionUID = 1L;
 
-	@NonNull @Length(min=10, max=300) @Pattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=10, max=300) @VisibleText
 	String content;
 
 	@Override
 	public Footnote validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "footnote content");
+		Validator.INSTANCE.validate(this, "footnote content", c -> c
+				.length("content", content, 10, 300)
+				.visibleText("content", content));
 		return this;
 	}
 	
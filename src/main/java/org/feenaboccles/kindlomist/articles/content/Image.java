@@ -22,7 +22,8 @@ public final class Image implements Content {
 
 	@Override
 	public Image validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "image URL");
+		Validator.INSTANCE.validate(this, "image URL", c -> c
+				.length("content", content, 10, 1000));
 		
 		try {
 			if (! new URI(content).getHost().equals (PlainArticle.ECONOMIST_IMAGE_CDN))
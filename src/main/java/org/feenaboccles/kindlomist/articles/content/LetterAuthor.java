@@ -16,13 +16,16 @@ public class LetterAuthor implements Content {
 	// Names are always in upper case. It can be any sequence of initials and words,
 	// so long as it ends with a word
 	public static final String REGEX = "(?:\\p{Lu}[\\.\\s]+|\\p{Lu}{2,}\\s+)+[\\p{Lu}'´‘’]{2,}" + PlainArticle.ECONOMIST_VISIBLE_TEXT;
+	public static final java.util.regex.Pattern PATTERN = java.util.regex.Pattern.compile(REGEX);
 
 	@NonNull @Length(min=10, max=300) @Pattern(regexp=REGEX)
 	String content;
 
 	@Override
 	public LetterAuthor validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "letter author");
+		Validator.INSTANCE.validate(this, "letter author", c -> c
+				.length("content", content, 10, 300)
+				.pattern("content", content, PATTERN));
 		return this;
 	}
 	
@@ -2,24 +2,25 @@ package org.feenaboccles.kindlomist.articles.content;
 
 import lombok.NonNull;
 import lombok.Value;
-import org.feenaboccles.kindlomist.articles.PlainArticle;
 import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
 import org.hibernate.validator.constraints.Length;
 
 import javax.validation.ValidationException;
-import javax.validation.constraints.Pattern;
 
 @Value
 public class PullQuote implements Content {
 
 	private static final long serialVersionUID = 1L;
 
-	@NonNull @Length(min=10, max=200) @Pattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=10, max=200) @VisibleText
 	String content;
 
 	@Override
 	public PullQuote validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "pull-quote content");
+		Validator.INSTANCE.validate(this, "pull-quote content", c -> c
+				.length("content", content, 10, 200)
+				.visibleText("content", content));
 		return this;
 	}
 	
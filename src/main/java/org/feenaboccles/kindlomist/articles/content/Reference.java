@@ -2,12 +2,13 @@ package org.feenaboccles.kindlomist.articles.content;
 
 import lombok.NonNull;
 import lombok.Value;
-import org.feenaboccles.kindlomist.articles.PlainArticle;
+import lombok.extern.slf4j.Slf4j;
 import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
+import org.feenaboccles.kindlomist.valid.VisibleTextValidator;
 import org.hibernate.validator.constraints.Length;
 
 import javax.validation.ValidationException;
-import javax.validation.constraints.Pattern;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -15,6 +16,7 @@ import java.net.URISyntaxException;
  * A short piece of text describing a URL. Basically a reference of the form
  * "See this article"
  */
+@Slf4j
 @Value
 public class Reference implements Content {
 
@@ -27,12 +29,12 @@ public class Reference implements Content {
 
     @NonNull
     @Length(min=4, max=100)
-    @Pattern(regexp= PlainArticle.ECONOMIST_VISIBLE_TEXT)
+    @VisibleText
     String urlText;
 
     @NonNull
     @Length(min=20, max=150)
-    @Pattern(regexp= PlainArticle.ECONOMIST_VISIBLE_TEXT)
+    @VisibleText
     String urlHref;
 
     @NonNull
@@ -53,13 +55,20 @@ public class Reference implements Content {
     @Override
     public Reference validate() throws ValidationException {
         try {
-            Validator.INSTANCE.validate(this, "reference-text content");
+            Validator.INSTANCE.validate(this, "reference-text content", c -> c
+                    .length("before", before, 0, 50)
+                    .length("urlText", urlText, 4, 100)
+                    .visibleText("urlText", urlText)
+                    .length("urlHref", urlHref, 20, 150)
+                    .visibleText("urlHref", urlHref)
+                    .length("after", after, 0, 50));
 
             String fullContent = getContent();
             if (fullContent.length() < MIN_VISIBLE_TEXT_LEN) {
                 throw new ValidationException("Error validating reference-text content: not enough text either side of the URL");
             }
-            if (! fullContent.matches(PlainArticle.ECONOMIST_VISIBLE_TEXT)) {
+            if (! VisibleTextValidator.isVisible(fullContent)) {
+                VisibleTextValidator.logIllegalCharacters("reference-text content", fullContent);
                 throw new ValidationException("Error validating reference-text content: invalid character detected.");
             }
             try {
@@ -68,7 +77,7 @@ public class Reference implements Content {
                 throw new ValidationException("Error validating reference-text content: the wrapped URL is not a proper URL : " + e.getMessage());
             }
         } catch (ValidationException e) {
-            System.out.println(e.getMessage());
+            log.warn(e.getMessage());
             throw e;
         }
         return this;
@@ -1,13 +1,12 @@
 package org.feenaboccles.kindlomist.articles.content;
 
 import javax.validation.ValidationException;
-import javax.validation.constraints.Pattern;
 
 import lombok.NonNull;
 import lombok.Value;
 
-import org.feenaboccles.kindlomist.articles.PlainArticle;
 import org.feenaboccles.kindlomist.valid.Validator;
+import org.feenaboccles.kindlomist.valid.VisibleText;
 import org.hibernate.validator.constraints.Length;
 
 @Value
@@ -15,12 +14,14 @@ public class SubHeading implements Content {
 
 	private static final long serialVersionUID = 1L;
 
-	@NonNull @Length(min=3, max=200) @Pattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)
+	@NonNull @Length(min=3, max=200) @VisibleText
 	String content;
 
 	@Override
 	public SubHeading validate() throws ValidationException {
-		Validator.INSTANCE.validate(this, "sub-heading");
+		Validator.INSTANCE.validate(this, "sub-heading", c -> c
+				.length("content", content, 3, 200)
+				.visibleText("content", content));
 		return this;
 	}
 	
@@ -0,0 +1,59 @@
+package org.feenaboccles.kindlomist.articles.epub;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import lombok.Value;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.SingleImageArticle;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.articles.content.Content;
+
+/**
+ * A chapter of an EPUB book, held in a single XHTML file: either a section
+ * of the issue, with a heading followed by its articles, or a single
+ * article which is a section in its own right, such as the letters.
+ */
+@Value
+final class Chapter {
+	/** The name of the XHTML file, relative to the other content documents */
+	String fileName;
+	/** The chapter's heading */
+	String title;
+	/** Whether the chapter is a single article, whose title is the chapter's */
+	boolean singleArticle;
+	List<Entry> articles;
+
+	/**
+	 * The parts of an article that are written out, whatever its type
+	 */
+	@Value
+	static class Entry {
+		String title;
+		Optional<String> strap;
+		Optional<URI> mainImage;
+		List<Content> body;
+
+		static Entry of(PlainArticle article) {
+			return new Entry(article.getTopic() + ": " + article.getTitle(), Optional.of(article.getStrap()), article.getMainImage(), article.getBody());
+		}
+
+		static Entry of(String title, WeeklyDigestArticle article) {
+			return new Entry(title, Optional.empty(), Optional.empty(), article.getBody());
+		}
+
+		static Entry of(String title, SingleImageArticle article) {
+			return new Entry(title, Optional.empty(), article.getMainImage(), Collections.emptyList());
+		}
+	}
+
+	/**
+	 * The id of the anchor at the start of the article with the given index
+	 */
+	static String anchorOf(int article) {
+		return "article-" + (article + 1);
+	}
+}
@@ -0,0 +1,58 @@
+package org.feenaboccles.kindlomist.articles.epub;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The images used by the chapters of an EPUB book, each identified by its
+ * path on disk, and the names under which they're stored in the book.
+ * Chapters add images as they're rendered, so this is threadsafe.
+ */
+final class EpubImages {
+
+	final static String IMAGE_DIR = "images/";
+
+	private final ConcurrentMap<Path, String> hrefs = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Path> paths = new ConcurrentHashMap<>();
+
+	/**
+	 * The location in the book, relative to its content documents, of the
+	 * image at the given path, which is added to the book if necessary.
+	 * Images are stored under their file names, which are unique within
+	 * an {@link org.feenaboccles.kindlomist.articles.ImageResolver}'s directory,
+	 * with a numeric prefix added in the unlikely event of a clash.
+	 */
+	String hrefOf(Path image) {
+		return hrefs.computeIfAbsent(image, p -> {
+			String name = p.getFileName().toString();
+			for (int i = 1; paths.putIfAbsent(IMAGE_DIR + name, p) != null; i++)
+				name = i + "-" + p.getFileName();
+			return IMAGE_DIR + name;
+		});
+	}
+
+	/**
+	 * Every image added so far, keyed by its location in the book, in order
+	 */
+	Map<String, Path> byHref() {
+		return new TreeMap<>(paths);
+	}
+
+	/**
+	 * The media type of the image with the given location, based on its
+	 * extension, as assigned by the ImageResolver
+	 */
+	static String mediaTypeOf(String href) {
+		switch (StringUtils.substringAfterLast(href, ".").toLowerCase()) {
+		case "png":  return "image/png";
+		case "gif":  return "image/gif";
+		case "svg":  return "image/svg+xml";
+		default:     return "image/jpeg";
+		}
+	}
+}
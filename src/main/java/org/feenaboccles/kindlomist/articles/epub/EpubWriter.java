@@ -0,0 +1,453 @@
+package org.feenaboccles.kindlomist.articles.epub;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.metrics.Metrics;
+
+/**
+ * Writes out the Economist issue directly as an EPUB 3 book, with the same
+ * structure as the book pandoc creates from the Markdown written by
+ * {@link org.feenaboccles.kindlomist.articles.markdown.EconomistWriter}:
+ * a chapter per section, each article a sub-chapter, and a table of
+ * contents two levels deep. An EPUB 2 NCX table of contents is included
+ * too, for older readers and kindlegen.
+ * <p>
+ * Chapters are rendered to XHTML in parallel, and then stored, in order,
+ * in the book. A {@link PendingIssue} may be written while it's still
+ * being downloaded, each chapter being rendered as soon as it's ready.
+ * The XHTML, which compresses well, is deflated, while the images, which
+ * are already compressed, are stored as they are, being streamed straight
+ * from the files named by the issue's {@link ImageResolver}. The book
+ * depends only on the issue, and not on when it's written.
+ * <p>
+ * The time taken to write each book is recorded in the {@link Metrics}
+ * <tt>epub.write</tt>.
+ */
+public class EpubWriter {
+
+	private final static String MIMETYPE     = "application/epub+zip";
+	private final static String CONTENT_DIR  = "OEBPS/";
+	private final static String PACKAGE_FILE = "content.opf";
+	private final static String NAV_FILE     = "nav.xhtml";
+	private final static String NCX_FILE     = "toc.ncx";
+	private final static String COVER_FILE   = "cover.xhtml";
+	private final static int    BUFFER_SIZE  = 64 * 1024;
+
+	private final static String STYLE =
+			  "body { font-family: serif; }\n"
+			+ "h1, h2, h3 { font-family: sans-serif; }\n"
+			+ "p.strap { font-size: 1.1em; }\n"
+			+ "p.footnote { font-size: 0.8em; }\n"
+			+ "p.letter-author { font-style: italic; }\n"
+			+ "blockquote { margin: 1em 2em; }\n"
+			+ "div.image { text-align: center; margin: 1em 0; }\n"
+			+ "div.image img { max-width: 100%; }\n"
+			+ "div.cover { text-align: center; }\n"
+			+ "div.cover img { max-width: 100%; max-height: 100%; }\n";
+
+	private EpubWriter() { }
+
+	/**
+	 * Writes the given issue as an EPUB book to the given file, rendering
+	 * chapters on the common fork-join pool.
+	 */
+	public static void write (Path epub, Economist issue) throws IOException {
+		write(epub, issue, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Writes the given issue as an EPUB book to the given file, rendering
+	 * chapters in parallel using the given executor.
+	 */
+	public static void write (Path epub, Economist issue, Executor executor) throws IOException {
+		write(epub, PendingIssue.of(issue), executor);
+	}
+
+	/**
+	 * Writes the given issue as an EPUB book to the given file while it's
+	 * still being downloaded, rendering each chapter, using the given
+	 * executor, as soon as its articles and images have been downloaded.
+	 * Returns once the issue has been downloaded in full. The book is written
+	 * to a temporary file, which is only moved into place once it's complete,
+	 * so a failed download never leaves a truncated book behind.
+	 */
+	public static void write (Path epub, PendingIssue issue, Executor executor) throws IOException {
+		long start = System.nanoTime();
+		Path tmpEpub = Files.createTempFile(epub.toAbsolutePath().getParent(), "epub-", ".tmp");
+		try {
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpEpub), BUFFER_SIZE)) {
+				write(out, issue, executor);
+			}
+			Files.move(tmpEpub, epub, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(tmpEpub);
+		}
+		Metrics.INSTANCE.timer("epub.write").recordSince(start);
+	}
+
+	/**
+	 * Writes the given issue as an EPUB book to the given stream, rendering
+	 * chapters in parallel using the given executor. The stream is not
+	 * closed.
+	 */
+	public static void write (OutputStream out, Economist issue, Executor executor) throws IOException {
+		write(out, PendingIssue.of(issue), executor);
+	}
+
+	/**
+	 * Writes the given issue as an EPUB book to the given stream while it's
+	 * still being downloaded, rendering each chapter, using the given
+	 * executor, as soon as its articles and images have been downloaded.
+	 * The stream is not closed.
+	 */
+	public static void write (OutputStream out, PendingIssue pending, Executor executor) throws IOException {
+		List<CompletableFuture<Chapter>> chapters = chaptersOf(pending);
+		EpubImages links = new EpubImages();
+
+		// Render each chapter in parallel, once it's been downloaded
+		List<CompletableFuture<byte[]>> rendered = new ArrayList<>(chapters.size());
+		for (CompletableFuture<Chapter> chapter : chapters)
+			rendered.add(chapter.thenApplyAsync(c -> render(c, pending.getImages(), links), executor));
+
+		long modified = pending.getDateStamp().atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+		ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+
+		// The mimetype must come first, and be stored uncompressed
+		storeEntry(zip, "mimetype", MIMETYPE.getBytes(StandardCharsets.US_ASCII), modified);
+		deflateEntry(zip, "META-INF/container.xml", containerXml(), modified);
+		deflateEntry(zip, CONTENT_DIR + XhtmlWriter.STYLESHEET, STYLE.getBytes(StandardCharsets.UTF_8), modified);
+
+		List<Chapter> written = new ArrayList<>(chapters.size());
+		for (int i = 0; i < chapters.size(); i++) {
+			byte[] xhtml = join(rendered.get(i));
+			written.add(chapters.get(i).join());
+			deflateEntry(zip, CONTENT_DIR + written.get(i).getFileName(), xhtml, modified);
+		}
+
+		// The cover is only known once the whole issue's been downloaded
+		Economist issue = join(pending.getIssue());
+		Path cover = issue.getPathToCoverImage();
+		String coverHref = cover == null ? null : links.hrefOf(cover);
+		if (coverHref != null)
+			deflateEntry(zip, CONTENT_DIR + COVER_FILE, coverXhtml(coverHref), modified);
+
+		// Every chapter's been rendered, so all the images are known
+		Map<String, Path> images = links.byHref();
+		for (Map.Entry<String, Path> image : images.entrySet())
+			storeFile(zip, CONTENT_DIR + image.getKey(), image.getValue(), modified);
+
+		String title = titleOf(issue);
+		deflateEntry(zip, CONTENT_DIR + NAV_FILE, navXhtml(title, written), modified);
+		deflateEntry(zip, CONTENT_DIR + NCX_FILE, tocNcx(identifierOf(issue), title, written), modified);
+		deflateEntry(zip, CONTENT_DIR + PACKAGE_FILE, packageOpf(issue, title, written, images.keySet(), coverHref), modified);
+		zip.finish();
+	}
+
+	/**
+	 * Divides the issue into chapters, as pandoc does with
+	 * <tt>--epub-chapter-level 1</tt> and the Markdown written by
+	 * {@link org.feenaboccles.kindlomist.articles.markdown.EconomistWriter}.
+	 * Each chapter is available once all its articles have been downloaded.
+	 */
+	static List<CompletableFuture<Chapter>> chaptersOf(PendingIssue issue) {
+		List<CompletableFuture<Chapter>> chapters = new ArrayList<>(issue.getOrderedSections().size() + 3);
+
+		String digestsFile  = chapterFile(chapters.size());
+		String digestsTitle = issue.isTheXmasIssue() ? "The World this Year" : "The World this Week";
+		chapters.add(CompletableFuture.allOf(issue.getPoliticsThisWeek(), issue.getBusinessThisWeek(), issue.getKalsCartoon()).thenApply(v -> {
+			List<Chapter.Entry> digests = new ArrayList<>(3);
+			digests.add(Chapter.Entry.of("Politics this Week", issue.getPoliticsThisWeek().join()));
+			Optional<WeeklyDigestArticle> business = issue.getBusinessThisWeek().join();
+			if (business.isPresent())
+				digests.add(Chapter.Entry.of("Business this Week", business.get()));
+			digests.add(Chapter.Entry.of("KAL's Cartoon", issue.getKalsCartoon().join()));
+			return new Chapter(digestsFile, digestsTitle, false, digests);
+		}));
+
+		String lettersFile = chapterFile(chapters.size());
+		chapters.add(issue.getLetters().thenApply(letters -> singleArticleChapter(lettersFile, letters)));
+
+		for (String section : issue.getOrderedSections()) {
+			String sectionFile = chapterFile(chapters.size());
+			chapters.add(issue.getSections().get(section).thenApply(articles -> {
+				List<Chapter.Entry> entries = new ArrayList<>(articles.size());
+				for (PlainArticle article : articles)
+					entries.add(Chapter.Entry.of(article));
+				return new Chapter(sectionFile, section, false, entries);
+			}));
+		}
+
+		String obituaryFile = chapterFile(chapters.size());
+		chapters.add(issue.getObituary().thenApply(obituary -> singleArticleChapter(obituaryFile, obituary)));
+		return chapters;
+	}
+
+	private static Chapter singleArticleChapter(String fileName, PlainArticle article) {
+		Chapter.Entry entry = Chapter.Entry.of(article);
+		return new Chapter(fileName, entry.getTitle(), true, Collections.singletonList(entry));
+	}
+
+	private static String chapterFile(int preceding) {
+		return String.format("chapter-%02d.xhtml", preceding + 1);
+	}
+
+	private static byte[] render(Chapter chapter, ImageResolver images, EpubImages links) {
+		long start = System.nanoTime();
+		StringWriter xhtml = new StringWriter(64 * 1024);
+		try {
+			new XhtmlWriter(xhtml, images, links).write(chapter);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e); // can't happen with a StringWriter
+		}
+		byte[] bytes = xhtml.toString().getBytes(StandardCharsets.UTF_8);
+		Metrics.INSTANCE.timer("epub.chapter").recordSince(start);
+		return bytes;
+	}
+
+	private static <T> T join(CompletableFuture<T> part) throws IOException {
+		try {
+			return part.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static void deflateEntry(ZipOutputStream zip, String name, byte[] content, long modified) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.DEFLATED);
+		entry.setTime(modified);
+		zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static void storeEntry(ZipOutputStream zip, String name, byte[] content, long modified) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setTime(modified);
+		entry.setSize(content.length);
+		entry.setCompressedSize(content.length);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	/**
+	 * Stores the given file uncompressed, streaming it twice: once to find
+	 * its checksum, which a stored entry must declare up-front, and once
+	 * to copy it.
+	 */
+	private static void storeFile(ZipOutputStream zip, String name, Path file, long modified) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		CRC32 crc = new CRC32();
+		long size = 0;
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int amt; (amt = in.read(buf)) >= 0; size += amt)
+				crc.update(buf, 0, amt);
+		}
+
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setTime(modified);
+		entry.setSize(size);
+		entry.setCompressedSize(size);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int amt; (amt = in.read(buf)) >= 0; )
+				zip.write(buf, 0, amt);
+		}
+		zip.closeEntry();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static String titleOf(Economist issue) {
+		return "The Economist, " + DateTimeFormatter.ofPattern("MMMM d, yyyy").format(issue.getDateStamp());
+	}
+
+	private static String identifierOf(Economist issue) {
+		return "urn:kindlomist:economist:" + issue.getDateStamp();
+	}
+
+	private static byte[] containerXml() {
+		return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+				+ "<rootfiles>\n"
+				+ "<rootfile full-path=\"" + CONTENT_DIR + PACKAGE_FILE + "\" media-type=\"application/oebps-package+xml\"/>\n"
+				+ "</rootfiles>\n"
+				+ "</container>\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] coverXhtml(String coverHref) throws IOException {
+		return xml(x -> {
+			x.writeHeader("Cover");
+			x.markup("<div class=\"cover\"><img src=\"");
+			x.escaped(coverHref);
+			x.markup("\" alt=\"Cover\"/></div>\n");
+			x.writeFooter();
+		});
+	}
+
+	private static byte[] navXhtml(String title, List<Chapter> chapters) throws IOException {
+		return xml(x -> {
+			x.writeHeader(title);
+			x.markup("<nav epub:type=\"toc\" id=\"toc\">\n<h1>");
+			x.escaped(title);
+			x.markup("</h1>\n<ol>\n");
+			for (Chapter chapter : chapters) {
+				x.markup("<li><a href=\"" + chapter.getFileName() + "\">");
+				x.escaped(chapter.getTitle());
+				x.markup("</a>");
+				if (! chapter.isSingleArticle()) {
+					x.markup("\n<ol>\n");
+					for (int i = 0; i < chapter.getArticles().size(); i++) {
+						x.markup("<li><a href=\"" + chapter.getFileName() + "#" + Chapter.anchorOf(i) + "\">");
+						x.escaped(chapter.getArticles().get(i).getTitle());
+						x.markup("</a></li>\n");
+					}
+					x.markup("</ol>\n");
+				}
+				x.markup("</li>\n");
+			}
+			x.markup("</ol>\n</nav>\n");
+			x.writeFooter();
+		});
+	}
+
+	private static byte[] tocNcx(String identifier, String title, List<Chapter> chapters) throws IOException {
+		return xml(x -> {
+			x.markup("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n"
+					+ "<head>\n<meta name=\"dtb:uid\" content=\"");
+			x.escaped(identifier);
+			x.markup("\"/>\n<meta name=\"dtb:depth\" content=\"2\"/>\n</head>\n<docTitle><text>");
+			x.escaped(title);
+			x.markup("</text></docTitle>\n<navMap>\n");
+			int playOrder = 0;
+			for (Chapter chapter : chapters) {
+				x.markup("<navPoint id=\"nav-" + (++playOrder) + "\" playOrder=\"" + playOrder + "\"><navLabel><text>");
+				x.escaped(chapter.getTitle());
+				x.markup("</text></navLabel><content src=\"" + chapter.getFileName() + "\"/>\n");
+				if (! chapter.isSingleArticle()) {
+					for (int i = 0; i < chapter.getArticles().size(); i++) {
+						x.markup("<navPoint id=\"nav-" + (++playOrder) + "\" playOrder=\"" + playOrder + "\"><navLabel><text>");
+						x.escaped(chapter.getArticles().get(i).getTitle());
+						x.markup("</text></navLabel><content src=\"" + chapter.getFileName() + "#" + Chapter.anchorOf(i) + "\"/></navPoint>\n");
+					}
+				}
+				x.markup("</navPoint>\n");
+			}
+			x.markup("</navMap>\n</ncx>\n");
+		});
+	}
+
+	private static byte[] packageOpf(Economist issue, String title, List<Chapter> chapters, Iterable<String> imageHrefs, String coverHref) throws IOException {
+		LocalDate date = issue.getDateStamp();
+		return xml(x -> {
+			x.markup("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\" unique-identifier=\"book-id\" xml:lang=\"en\">\n"
+					+ "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n"
+					+ "<dc:identifier id=\"book-id\">");
+			x.escaped(identifierOf(issue));
+			x.markup("</dc:identifier>\n<dc:title>");
+			x.escaped(title);
+			x.markup("</dc:title>\n"
+					+ "<dc:creator>The Economist</dc:creator>\n"
+					+ "<dc:language>en</dc:language>\n"
+					+ "<dc:date>" + date + "</dc:date>\n"
+					+ "<meta property=\"dcterms:modified\">" + date + "T00:00:00Z</meta>\n");
+			if (coverHref != null)
+				x.markup("<meta name=\"cover\" content=\"" + idOf(coverHref) + "\"/>\n");
+			x.markup("</metadata>\n<manifest>\n"
+					+ "<item id=\"nav\" href=\"" + NAV_FILE + "\" media-type=\"application/xhtml+xml\" properties=\"nav\"/>\n"
+					+ "<item id=\"ncx\" href=\"" + NCX_FILE + "\" media-type=\"application/x-dtbncx+xml\"/>\n"
+					+ "<item id=\"style\" href=\"" + XhtmlWriter.STYLESHEET + "\" media-type=\"text/css\"/>\n");
+			if (coverHref != null)
+				x.markup("<item id=\"cover\" href=\"" + COVER_FILE + "\" media-type=\"application/xhtml+xml\"/>\n");
+			for (Chapter chapter : chapters)
+				x.markup("<item id=\"" + idOf(chapter.getFileName()) + "\" href=\"" + chapter.getFileName() + "\" media-type=\"application/xhtml+xml\"/>\n");
+			for (String href : imageHrefs) {
+				x.markup("<item id=\"" + idOf(href) + "\" href=\"");
+				x.escaped(href);
+				x.markup("\" media-type=\"" + EpubImages.mediaTypeOf(href) + "\""
+						+ (href.equals(coverHref) ? " properties=\"cover-image\"" : "") + "/>\n");
+			}
+			x.markup("</manifest>\n<spine toc=\"ncx\">\n");
+			if (coverHref != null)
+				x.markup("<itemref idref=\"cover\" linear=\"no\"/>\n");
+			x.markup("<itemref idref=\"nav\"/>\n");
+			for (Chapter chapter : chapters)
+				x.markup("<itemref idref=\"" + idOf(chapter.getFileName()) + "\"/>\n");
+			x.markup("</spine>\n</package>\n");
+		});
+	}
+
+	/**
+	 * A manifest id for the file with the given location: the location,
+	 * with everything but letters, digits and hyphens replaced
+	 */
+	private static String idOf(String href) {
+		return "item-" + href.replaceAll("[^A-Za-z0-9-]", "-");
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Something which writes an XML document, using an {@link XhtmlWriter}
+	 * for its markup and escaping
+	 */
+	@FunctionalInterface
+	private interface XmlContent {
+		void writeTo(XhtmlWriter x) throws IOException;
+	}
+
+	private static byte[] xml(XmlContent content) throws IOException {
+		StringWriter xml = new StringWriter(8 * 1024);
+		content.writeTo(new XhtmlWriter(xml, null, null));
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
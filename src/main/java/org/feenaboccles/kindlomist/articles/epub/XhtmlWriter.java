@@ -0,0 +1,179 @@
+package org.feenaboccles.kindlomist.articles.epub;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.file.Path;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.content.*;
+
+/**
+ * Writes a {@link Chapter} as an XHTML content document, following the
+ * same structure as {@link org.feenaboccles.kindlomist.articles.markdown.ArticleWriter}
+ * does in Markdown. Images are linked to their location in the book, as
+ * assigned by the given {@link EpubImages}.
+ * <p>
+ * Since this is created from objects which have already been validated,
+ * no validation is undertaken by this class.
+ */
+@Slf4j
+final class XhtmlWriter {
+
+	final static String STYLESHEET = "style.css";
+
+	private final Writer        writer;
+	private final ImageResolver images;
+	private final EpubImages    links;
+
+	XhtmlWriter(Writer writer, ImageResolver images, EpubImages links) {
+		this.writer = writer;
+		this.images = images;
+		this.links  = links;
+	}
+
+	/**
+	 * Writes the given chapter as a complete XHTML document
+	 */
+	void write(Chapter chapter) throws IOException {
+		writeHeader(chapter.getTitle());
+		if (chapter.isSingleArticle()) {
+			writeArticle(chapter.getArticles().get(0), "h1", Chapter.anchorOf(0));
+		}
+		else {
+			writer.write("<h1>");
+			escaped(chapter.getTitle());
+			writer.write("</h1>\n");
+			for (int i = 0; i < chapter.getArticles().size(); i++)
+				writeArticle(chapter.getArticles().get(i), "h2", Chapter.anchorOf(i));
+		}
+		writeFooter();
+	}
+
+	/**
+	 * Writes the opening of an XHTML document, up to the start of its body
+	 */
+	void writeHeader(String title) throws IOException {
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<!DOCTYPE html>\n"
+				+ "<html xmlns=\"http://www.w3.org/1999/xhtml\" xmlns:epub=\"http://www.idpf.org/2007/ops\" xml:lang=\"en\" lang=\"en\">\n"
+				+ "<head>\n<meta charset=\"UTF-8\"/>\n<title>");
+		escaped(title);
+		writer.write("</title>\n<link rel=\"stylesheet\" type=\"text/css\" href=\"" + STYLESHEET + "\"/>\n</head>\n<body>\n");
+	}
+
+	void writeFooter() throws IOException {
+		writer.write("</body>\n</html>\n");
+	}
+
+	private void writeArticle(Chapter.Entry article, String heading, String anchor) throws IOException {
+		writer.write("<" + heading + " id=\"" + anchor + "\">");
+		escaped(article.getTitle());
+		writer.write("</" + heading + ">\n");
+
+		if (article.getStrap().isPresent()) {
+			writer.write("<p class=\"strap\"><strong>");
+			escaped(article.getStrap().get());
+			writer.write("</strong></p>\n");
+		}
+		if (article.getMainImage().isPresent())
+			writeMainImage(article.getMainImage().get());
+		for (Content content : article.getBody())
+			writeContent(content);
+	}
+
+	private void writeMainImage(URI image) throws IOException {
+		Path path = images.getImagePath(image);
+		if (path == null)
+			log.warn("No path for image at " + image);
+		else
+			writeImageTag(path);
+	}
+
+	private void writeContent(Content content) throws IOException {
+		switch (content.getType()) {
+			case TEXT:          writeElement("p", null, content.getContent()); break;
+			case SUB_HEADING:   writeElement("h3", null, content.getContent()); break;
+			case IMAGE:         writeImage((Image) content); break;
+			case FOOTNOTE:      writeElement("p", "footnote", content.getContent()); break;
+			case PULL_QUOTE:    writePullQuote((PullQuote) content); break;
+			case LETTER_AUTHOR: writeElement("p", "letter-author", content.getContent()); break;
+			case REFERENCE:     writeReference((Reference) content); break;
+			default:
+				throw new IllegalStateException ("No writer is defined for content of type " + content.getType());
+		}
+	}
+
+	private void writeImage(Image image) throws IOException {
+		if (images.hasImage(image))
+			writeImageTag(images.getImagePath(image));
+	}
+
+	private void writeImageTag(Path path) throws IOException {
+		writer.write("<div class=\"image\"><img src=\"");
+		escaped(links.hrefOf(path));
+		writer.write("\" alt=\"\"/></div>\n");
+	}
+
+	private void writePullQuote(PullQuote pullQuote) throws IOException {
+		writer.write("<blockquote><p><em>“");
+		escaped(pullQuote.getContent());
+		writer.write("”</em></p></blockquote>\n");
+	}
+
+	private void writeReference(Reference ref) throws IOException {
+		writer.write("<p>");
+		escaped(ref.getBefore());
+		writer.write(" <a href=\"");
+		escaped(ref.getUrlHref());
+		writer.write("\">");
+		escaped(ref.getUrlText());
+		writer.write("</a> ");
+		escaped(ref.getAfter());
+		writer.write("</p>\n");
+	}
+
+	private void writeElement(String tag, String cssClass, String text) throws IOException {
+		writer.write('<');
+		writer.write(tag);
+		if (cssClass != null)
+			writer.write(" class=\"" + cssClass + "\"");
+		writer.write('>');
+		escaped(text);
+		writer.write("</");
+		writer.write(tag);
+		writer.write(">\n");
+	}
+
+	/**
+	 * Writes the given markup as it is, without escaping
+	 */
+	void markup(String markup) throws IOException {
+		writer.write(markup);
+	}
+
+	/**
+	 * Writes the given text, escaping the characters which are special in
+	 * XML text and attribute values. Runs of ordinary characters are
+	 * written in one go.
+	 */
+	void escaped(String text) throws IOException {
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			String entity;
+			switch (text.charAt(i)) {
+				case '&': entity = "&amp;";  break;
+				case '<': entity = "&lt;";   break;
+				case '>': entity = "&gt;";   break;
+				case '"': entity = "&quot;"; break;
+				default:  continue;
+			}
+			writer.write(text, start, i - start);
+			writer.write(entity);
+			start = i + 1;
+		}
+		writer.write(text, start, text.length() - start);
+	}
+}
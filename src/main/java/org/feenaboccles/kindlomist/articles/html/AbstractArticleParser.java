@@ -3,17 +3,22 @@ package org.feenaboccles.kindlomist.articles.html;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Optional;
+import java.util.Set;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Value;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.feenaboccles.kindlomist.articles.PlainArticle;
 import org.feenaboccles.kindlomist.articles.content.*;
+import org.feenaboccles.kindlomist.articles.html.HtmlRegionScanner.Target;
+import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -33,6 +38,18 @@ public class AbstractArticleParser {
 		String strap;
 	}
 
+	/**
+	 * The parts of an article page we actually read: the <tt>hgroup</tt>
+	 * with the headers, and the DIV with the article's content. Either
+	 * may be null if missing from the page.
+	 */
+	@Value
+	protected
+	static class ArticleElements
+	{	Element headerGroup;
+		Element articleDiv;
+	}
+
 
 	protected static final String CONTENT_IMAGE_DIV_CLASS_PREFIX = "content-image-";
 	protected static final String MAIN_IMAGE_DIV_CLASS = CONTENT_IMAGE_DIV_CLASS_PREFIX + "full";
@@ -42,9 +59,18 @@ public class AbstractArticleParser {
 	private static final int FOOTNOTES_PER_PARAGRAPH = 2;
 	private final static String UNBOLDED_PUNC_CHARS = ":;,,.\"´‘’'“”(){}[]’.%…!? \t\n\r";
 
-	
+	private final static HtmlRegionScanner ARTICLE_SCANNER = new HtmlRegionScanner(
+			Target.first("hgroup", null, null),
+			Target.first("div", "main-content", "article"));
+
+	protected final ParserBackend backend;
+
 	public AbstractArticleParser() {
-		super();
+		this(ParserBackend.DOM);
+	}
+
+	public AbstractArticleParser(ParserBackend backend) {
+		this.backend = backend;
 	}
 
 	/**
@@ -63,6 +89,52 @@ public class AbstractArticleParser {
 		return doc.select("article div.main-content").first();
 	}
 
+	/**
+	 * Fixes any problems in the HTML before it's parsed. With the
+	 * {@link ParserBackend#STREAMING streaming} backend, this is given only
+	 * the elements we read, rather than the whole page. By default it
+	 * returns the HTML unchanged.
+	 */
+	protected String cleanUpHtml(String html) {
+		return html;
+	}
+
+	/**
+	 * Finds the header group (see {@link #readHeaders(Element)}) and the
+	 * article DIV (see {@link #findArticleDiv(Document)}) in the given page,
+	 * using this parser's {@link ParserBackend}. The HTML is cleaned up
+	 * with {@link #cleanUpHtml(String)} first.
+	 */
+	protected ArticleElements findArticleElements(String html) {
+		switch (backend) {
+		case STREAMING:
+			List<List<String>> regions = ARTICLE_SCANNER.scan(html);
+			return new ArticleElements(
+					parseRegion(cleanUpRegion(HtmlRegionScanner.first(regions.get(0)))),
+					parseRegion(cleanUpRegion(HtmlRegionScanner.first(regions.get(1)))));
+		case DOM:
+			Document doc = Jsoup.parse(cleanUpHtml(html));
+			return new ArticleElements(doc.getElementsByTag("hgroup").first(), findArticleDiv(doc));
+		default:
+			throw new IllegalStateException ("No code has been written to handle the new parser backend " + backend);
+		}
+	}
+
+	private String cleanUpRegion(String elementHtml) {
+		return elementHtml == null ? null : cleanUpHtml(elementHtml);
+	}
+
+	/**
+	 * Parses the source of a single element, as found by an
+	 * {@link HtmlRegionScanner}, returning that element, or null if
+	 * the source is null.
+	 */
+	static Element parseRegion(String elementHtml) {
+		return elementHtml == null
+			? null
+			: Jsoup.parseBodyFragment(elementHtml).body().child(0);
+	}
+
 	/**
 	 * Find within the article DIV (see {@link #findArticleDiv(Document)}) the
 	 * IMG tag that has the main article image. This may return null, as not all
@@ -98,9 +170,15 @@ public class AbstractArticleParser {
 	 * object
 	 */
 	protected ArticleHeader readHeaders(Document doc) {
-		// Parse the title and the strap
-		Element hgroup = doc.getElementsByTag("hgroup").first();
+		return readHeaders(doc.getElementsByTag("hgroup").first());
+	}
 
+	/**
+	 * Reads the title, topic and strap of an article from its <tt>hgroup</tt>
+	 * element.
+	 */
+	protected ArticleHeader readHeaders(Element hgroup) {
+		// Parse the title and the strap
 		String  title  = childTagText (hgroup, "h3", "");
 		String  topic  = childTagText(hgroup, "h2", "");
 		String  strap  = childTagText(hgroup, "h1", "");
@@ -131,13 +209,12 @@ public class AbstractArticleParser {
 	 * some Economist authors just prefer to hit the bold button than the
 	 * heading button.
 	 */
-	private boolean isHeadingInBoldTag (Element elem, String paraText) {
+	private boolean isHeadingInBoldTag (ParagraphFacts facts, String paraText) {
 		// sometimes you see headings like "<strong>Sources</strong>:"
 		paraText = StringUtils.strip(paraText, UNBOLDED_PUNC_CHARS);
 		
-		Elements strongs = elem.getElementsByTag("strong");
-		if (! strongs.isEmpty()) {
-			String strongText = clean(strongs.first().text());
+		if (facts.strongText() != null) {
+			String strongText = clean(facts.strongText());
 			strongText = StringUtils.strip(strongText, UNBOLDED_PUNC_CHARS);
 		
 			if (strongText.equals(paraText)) {
@@ -145,9 +222,8 @@ public class AbstractArticleParser {
 			}
 		}
 
-		Elements bolds = elem.getElementsByTag("b");
-		if (! bolds.isEmpty()) {
-			String boldText = clean(bolds.first().text());
+		if (facts.boldText() != null) {
+			String boldText = clean(facts.boldText());
 			boldText = StringUtils.strip(boldText, UNBOLDED_PUNC_CHARS);
 		
 			if (boldText.equals(paraText)) {
@@ -165,28 +241,33 @@ public class AbstractArticleParser {
 	 */
 	protected List<Content> readContent(Element bodyDiv, boolean convertShortTextToHeading, boolean permitLetterAuthor) {
 		List<Content> content = new ArrayList<>(EXPECTED_IMAGE_COUNT + EXPECTED_PARAGRAPH_COUNT);
+		Set<Content>  images  = new HashSet<>(EXPECTED_IMAGE_COUNT * 2);
 		
 		int maxAllowedFootnotes = 0; // allow FOOTNOTES_PER_PARAGRAPH per textual paragraph.
 		
 		// Extract the body text, and any other images.
-		String paraText;
 		for (Element element : bodyDiv.children()) {
-			if (element.nodeName().equalsIgnoreCase("p") && (! (paraText = clean(element.text())).isEmpty())) {
+			if (element.nodeName().equalsIgnoreCase("p")) {
+				// Everything we need to know about the paragraph, found in one pass
+				ParagraphFacts facts = ParagraphFacts.of(element);
+				String paraText = clean(facts.text());
+				if (paraText.isEmpty())
+					continue;
+
 				if (element.className().equals ("xhead")
-						|| isHeadingInBoldTag(element, paraText)
+						|| isHeadingInBoldTag(facts, paraText)
 						|| (convertShortTextToHeading && paraText.length() < Text.MIN_TEXT_LEN)) {
 					content.add (new SubHeading (paraText));
 				}
 				else { // check for a footnote, should all be in a <sup> tag
-					Elements sups = element.getElementsByTag("sup");
-					if (sups.isEmpty()) {
-						content.add(textRefOrAuthor(paraText, element, permitLetterAuthor));
+					if (facts.sup() == null) {
+						content.add(textRefOrAuthor(paraText, facts, permitLetterAuthor));
 						maxAllowedFootnotes += FOOTNOTES_PER_PARAGRAPH;
 					}
 					else {
-						String supText = clean(sups.first().text());
+						String supText = clean(facts.supText());
 						if (supText.equals(paraText)) { // the entire paragraph text is in the <sup> tag
-							if (sups.first().hasClass("pullquote")) {
+							if (facts.sup().hasClass("pullquote")) {
 								content.add (new PullQuote(supText));
 							}
 							else {
@@ -194,7 +275,7 @@ public class AbstractArticleParser {
 							}
 						}
 						else {
-							content.add (textRefOrAuthor(paraText, element, permitLetterAuthor));
+							content.add (textRefOrAuthor(paraText, facts, permitLetterAuthor));
 						}
 					}
 				}
@@ -205,7 +286,7 @@ public class AbstractArticleParser {
 					Content imageContent = new Image(imgs.first().attr("src"));
 					// occasionally the same image appears in an article twice. This is almost
 					// certainly by mistake, but it's a mistake the Economist often makes.
-					if (! content.contains(imageContent))
+					if (images.add(imageContent))
 						content.add(imageContent);
 				}
 			}
@@ -224,16 +305,16 @@ public class AbstractArticleParser {
 	 * and return as appropriate. If <tt>permitLetterAuthor</tt> is false, don't
 	 * do the check, just convert it to {@link Text}
 	 * @param text the element text, should match element.text().
-	 * @param element the element encapsulating the text
+	 * @param facts what we know of the element encapsulating the text
 	 * @param permitLetterAuthor whether we should check invalid short
 	 *                           texts to see if they're author names
 	 */
-	private static Content textRefOrAuthor(String text, Element element, boolean permitLetterAuthor) {
+	private static Content textRefOrAuthor(String text, ParagraphFacts facts, boolean permitLetterAuthor) {
 		return permitLetterAuthor
-				? text.matches(LetterAuthor.REGEX)
+				? LetterAuthor.PATTERN.matcher(text).matches()
 					? new LetterAuthor(text)
-					: textOrRef(text, element)
-				: textOrRef(text, element);
+					: textOrRef(text, facts)
+				: textOrRef(text, facts);
 	}
 
 	/**
@@ -241,14 +322,13 @@ public class AbstractArticleParser {
 	 * text fragment wrapping a URL. If so return as such, else return as plain
 	 * {@link Text}
 	 * @param text the element text, should match element.text().
-	 * @param element the element encapsulating the text
+	 * @param facts what we know of the element encapsulating the text
 	 */
-	private static Content textOrRef(String text, Element element) {
+	private static Content textOrRef(String text, ParagraphFacts facts) {
 		if (text.length() < Text.MIN_TEXT_LEN) {
-			Elements uris = element.getElementsByTag("a");
-			if (uris.size() == 1) {
-				Element uri = uris.first();
-				String uriText = uri.text();
+			if (facts.linkCount() == 1) {
+				Element uri = facts.link();
+				String uriText = facts.linkText();
 				String before = StringUtils.substringBefore(text, uriText);
 				String after  = StringUtils.substringAfter(text, uriText);
 				if (before.length() + after.length() <= Reference.MAX_NON_URL_TEXT) {
@@ -300,12 +380,27 @@ public class AbstractArticleParser {
 	}
 
 	/**
-	 * Trims a string, including unusal space characters
+	 * Trims a string, and removes unusual space characters from it. Returns
+	 * the trimmed string itself if there are none, which is nearly always.
 	 */
-	private String clean(String text) {
+	private static String clean(String text) {
 		text = StringUtils.trimToEmpty(text);
-		text = text.replaceAll("[\u00a0\u2003]+", ""); // fancy space characters
-		
-		return text;
+
+		StringBuilder cleaned = null;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (isFancySpace(c)) {
+				if (cleaned == null)
+					cleaned = new StringBuilder(text.length()).append(text, 0, i);
+			}
+			else if (cleaned != null) {
+				cleaned.append(c);
+			}
+		}
+		return cleaned == null ? text : cleaned.toString();
+	}
+
+	private static boolean isFancySpace(char c) {
+		return c == '\u00a0' || c == '\u2003';
 	}
 }
\ No newline at end of file
@@ -0,0 +1,312 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Finds, in a single pass over a page's HTML, the source of the few elements
+ * that we actually parse, such as the article header and body, so that only
+ * those elements need be parsed into a DOM.
+ * <p>
+ * This is a tokenizer rather than a parser: it recognises start tags, end
+ * tags, comments and declarations, and skips over the content of
+ * <tt>script</tt>, <tt>style</tt> and similar elements without examining it. It
+ * keeps no tree: it just counts how deeply nested it is in the tags that
+ * bound each region. Scanning stops as soon as every region that's
+ * wanted only once has been found, so the adverts, scripts and navigation
+ * that follow an article are never read.
+ * <p>
+ * As with browsers, an end tag for an ancestor also closes any unclosed
+ * region within it.
+ * <p>
+ * Threadsafe.
+ */
+final class HtmlRegionScanner {
+
+	/**
+	 * Describes an element to find.
+	 */
+	@Value
+	static class Target {
+		/** The element's tag name, in lower-case */
+		String tag;
+		/** A CSS class the element must have, or null if any will do */
+		String cssClass;
+		/** The tag name of an element the element must be within, or null if it can be anywhere */
+		String ancestor;
+		/** Whether we want only the first such element, or all of them */
+		boolean firstOnly;
+
+		static Target first(String tag, String cssClass, String ancestor) {
+			return new Target(tag, cssClass, ancestor, true);
+		}
+
+		static Target all(String tag, String cssClass) {
+			return new Target(tag, cssClass, null, false);
+		}
+	}
+
+	private final static String[] RAW_TEXT_TAGS = { "script", "style", "textarea", "title" };
+
+	private final Target[] targets;
+	private final boolean  stopEarly; // true if every target wants only its first element
+
+	/**
+	 * Creates a scanner which finds the given elements. Where several
+	 * elements matching a target are nested, only the outermost is returned,
+	 * as it contains the others.
+	 */
+	HtmlRegionScanner(Target... targets) {
+		this.targets = targets.clone();
+
+		boolean stopEarly = true;
+		for (Target target : targets)
+			stopEarly &= target.isFirstOnly();
+		this.stopEarly = stopEarly;
+	}
+
+	/**
+	 * Returns the source of each element found for each target, in the order
+	 * the targets were given.
+	 */
+	List<List<String>> scan(String html) {
+		int n = targets.length;
+		List<List<String>> results = new ArrayList<>(n);
+		for (int t = 0; t < n; t++)
+			results.add(new ArrayList<>(1));
+
+		int[] regionStart    = new int[n]; // where the current region begins, or -1 if none is open
+		int[] regionDepth    = new int[n]; // how many tags of the region's name are open within it
+		int[] ancestorDepth  = new int[n]; // how many ancestor tags are open
+		boolean[] done       = new boolean[n];
+		int remaining        = 0;
+		for (int t = 0; t < n; t++) {
+			regionStart[t] = -1;
+			if (targets[t].isFirstOnly())
+				remaining++;
+		}
+
+		int length = html.length();
+		int i = 0;
+		while (i < length && (remaining > 0 || ! stopEarly)) {
+			int lt = html.indexOf('<', i);
+			if (lt < 0 || lt + 1 >= length)
+				break;
+
+			char next = html.charAt(lt + 1);
+			if (next == '!' || next == '?') {
+				i = skipCommentOrDeclaration(html, lt);
+				continue;
+			}
+
+			boolean endTag = next == '/';
+			int nameStart  = endTag ? lt + 2 : lt + 1;
+			int nameEnd    = nameStart;
+			while (nameEnd < length && isNameChar(html.charAt(nameEnd)))
+				nameEnd++;
+			if (nameEnd == nameStart || ! Character.isLetter(html.charAt(nameStart))) {
+				i = lt + 1; // a literal '<' in text
+				continue;
+			}
+
+			String name     = html.substring(nameStart, nameEnd).toLowerCase();
+			int    tagEnd   = findTagEnd(html, nameEnd);
+			boolean selfClosing = ! endTag && tagEnd - 2 >= nameEnd && html.charAt(tagEnd - 2) == '/';
+			String classes  = endTag ? null : attributeValue(html, nameEnd, tagEnd, "class");
+
+			for (int t = 0; t < n; t++) {
+				if (done[t])
+					continue;
+				Target target = targets[t];
+
+				if (endTag) {
+					if (regionStart[t] >= 0 && name.equals(target.getTag()) && --regionDepth[t] == 0)
+						remaining -= closeRegion(html, t, regionStart, tagEnd, results, done);
+					if (name.equals(target.getAncestor()) && ancestorDepth[t] > 0) {
+						if (--ancestorDepth[t] == 0 && regionStart[t] >= 0)
+							remaining -= closeRegion(html, t, regionStart, lt, results, done);
+					}
+				}
+				else if (! selfClosing) {
+					if (name.equals(target.getTag())) {
+						if (regionStart[t] >= 0)
+							regionDepth[t]++;
+						else if ((target.getAncestor() == null || ancestorDepth[t] > 0) && hasClass(classes, target.getCssClass())) {
+							regionStart[t] = lt;
+							regionDepth[t] = 1;
+						}
+					}
+					if (name.equals(target.getAncestor()))
+						ancestorDepth[t]++;
+				}
+			}
+
+			i = endTag || ! isRawTextTag(name)
+				? tagEnd
+				: skipRawText(html, tagEnd, name);
+		}
+
+		// Like a browser, close anything left open at the end of the page
+		for (int t = 0; t < n; t++)
+			if (! done[t] && regionStart[t] >= 0)
+				closeRegion(html, t, regionStart, length, results, done);
+
+		return results;
+	}
+
+	/**
+	 * Convenience method returning the first of the elements found for a
+	 * target, or null if none were found
+	 */
+	static String first(List<String> regions) {
+		return regions.isEmpty() ? null : regions.get(0);
+	}
+
+	/**
+	 * Records the region for target <tt>t</tt> which ends at <tt>end</tt>.
+	 * @return 1 if this target is now done with, 0 otherwise
+	 */
+	private int closeRegion(String html, int t, int[] regionStart, int end, List<List<String>> results, boolean[] done) {
+		results.get(t).add(html.substring(regionStart[t], end));
+		regionStart[t] = -1;
+		if (targets[t].isFirstOnly()) {
+			done[t] = true;
+			return 1;
+		}
+		return 0;
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == ':' || c == '_';
+	}
+
+	private static boolean isRawTextTag(String name) {
+		for (String tag : RAW_TEXT_TAGS)
+			if (tag.equals(name))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the index just after the '&gt;' which ends the tag whose
+	 * attributes begin at the given index, ignoring any '&gt;' in quoted
+	 * attribute values.
+	 */
+	private static int findTagEnd(String html, int from) {
+		char quote = 0;
+		for (int i = from; i < html.length(); i++) {
+			char c = html.charAt(i);
+			if (quote != 0) {
+				if (c == quote)
+					quote = 0;
+			}
+			else if (c == '"' || c == '\'') {
+				quote = c;
+			}
+			else if (c == '>') {
+				return i + 1;
+			}
+		}
+		return html.length();
+	}
+
+	private static int skipCommentOrDeclaration(String html, int lt) {
+		if (html.startsWith("<!--", lt)) {
+			int end = html.indexOf("-->", lt + 4);
+			return end < 0 ? html.length() : end + 3;
+		}
+		int end = html.indexOf('>', lt);
+		return end < 0 ? html.length() : end + 1;
+	}
+
+	/**
+	 * Skips the content of a script or style element, returning the index of
+	 * its end tag.
+	 */
+	private static int skipRawText(String html, int from, String tag) {
+		String endTag = "</" + tag;
+		for (int i = html.indexOf('<', from); i >= 0; i = html.indexOf('<', i + 1)) {
+			if (html.regionMatches(true, i, endTag, 0, endTag.length())) {
+				int after = i + endTag.length();
+				if (after >= html.length() || ! isNameChar(html.charAt(after)))
+					return i;
+			}
+		}
+		return html.length();
+	}
+
+	/**
+	 * Returns the value of the given attribute in the tag whose attributes
+	 * lie between the given indices, or null if the tag lacks it.
+	 */
+	private static String attributeValue(String html, int from, int to, String attribute) {
+		int i = from;
+		while (i < to) {
+			char c = html.charAt(i);
+			if (! isNameChar(c)) {
+				i++;
+				continue;
+			}
+
+			int nameStart = i;
+			while (i < to && isNameChar(html.charAt(i)))
+				i++;
+			boolean matches = html.regionMatches(true, nameStart, attribute, 0, attribute.length())
+							&& i - nameStart == attribute.length();
+
+			while (i < to && Character.isWhitespace(html.charAt(i)))
+				i++;
+			if (i >= to || html.charAt(i) != '=') {
+				if (matches)
+					return "";
+				continue;
+			}
+			i++;
+			while (i < to && Character.isWhitespace(html.charAt(i)))
+				i++;
+
+			int valueStart, valueEnd;
+			if (i < to && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+				char quote = html.charAt(i);
+				valueStart = i + 1;
+				valueEnd   = html.indexOf(quote, valueStart);
+				if (valueEnd < 0 || valueEnd > to)
+					valueEnd = to;
+				i = valueEnd + 1;
+			}
+			else {
+				valueStart = i;
+				while (i < to && ! Character.isWhitespace(html.charAt(i)) && html.charAt(i) != '>')
+					i++;
+				valueEnd = i;
+			}
+
+			if (matches)
+				return html.substring(valueStart, valueEnd);
+		}
+		return null;
+	}
+
+	/**
+	 * Whether the given space-separated list of CSS classes contains the given
+	 * class. A null class is contained by any list.
+	 */
+	private static boolean hasClass(String classes, String cssClass) {
+		if (cssClass == null)
+			return true;
+		if (classes == null)
+			return false;
+
+		int from = 0;
+		while ((from = classes.indexOf(cssClass, from)) >= 0) {
+			int end = from + cssClass.length();
+			if ((from == 0 || Character.isWhitespace(classes.charAt(from - 1)))
+					&& (end == classes.length() || Character.isWhitespace(classes.charAt(end))))
+				return true;
+			from = end;
+		}
+		return false;
+	}
+}
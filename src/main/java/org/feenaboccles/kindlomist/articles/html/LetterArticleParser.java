@@ -13,6 +13,14 @@ import java.util.Optional;
  */
 public class LetterArticleParser extends PlainArticleParser {
 
+    public LetterArticleParser() {
+        super();
+    }
+
+    public LetterArticleParser(ParserBackend backend) {
+        super(backend);
+    }
+
     /**
      * {@inheritDoc}
      * <p>
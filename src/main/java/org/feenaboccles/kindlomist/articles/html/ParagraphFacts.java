@@ -0,0 +1,271 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+/**
+ * Everything {@link AbstractArticleParser#readContent(Element, boolean, boolean)}
+ * needs to know about a paragraph, collected in a single traversal of the
+ * paragraph's tree: its text, the text of its first <tt>strong</tt>,
+ * <tt>b</tt> and <tt>sup</tt> tags, and its links. Previously each of these
+ * was found with its own traversal.
+ * <p>
+ * Texts are exactly as {@link Element#text()} would return them, though
+ * text which needs no whitespace normalising, which is most of it, is
+ * copied whole, rather than one code-point at a time, as that's where most
+ * of the time goes.
+ */
+final class ParagraphFacts implements NodeVisitor {
+
+	private final TextCollector text;
+	private TextCollector strong;
+	private TextCollector bold;
+	private TextCollector sup;
+	private TextCollector link;
+	private int linkCount = 0;
+
+	private ParagraphFacts(Element paragraph) {
+		this.text = new TextCollector(paragraph);
+	}
+
+	/**
+	 * Collects the facts about the given paragraph
+	 */
+	static ParagraphFacts of(Element paragraph) {
+		ParagraphFacts facts = new ParagraphFacts(paragraph);
+		new NodeTraversor(facts).traverse(paragraph);
+		return facts;
+	}
+
+	/**
+	 * Equivalent to <tt>paragraph.text()</tt>
+	 */
+	String text() {
+		return text.text();
+	}
+
+	/**
+	 * The text of the first <tt>strong</tt> tag, or null if there is none
+	 */
+	String strongText() {
+		return strong == null ? null : strong.text();
+	}
+
+	/**
+	 * The text of the first <tt>b</tt> tag, or null if there is none
+	 */
+	String boldText() {
+		return bold == null ? null : bold.text();
+	}
+
+	/**
+	 * The first <tt>sup</tt> tag, or null if there is none
+	 */
+	Element sup() {
+		return sup == null ? null : sup.root;
+	}
+
+	/**
+	 * The text of the first <tt>sup</tt> tag, or null if there is none
+	 */
+	String supText() {
+		return sup == null ? null : sup.text();
+	}
+
+	/**
+	 * The number of links, i.e. <tt>a</tt> tags
+	 */
+	int linkCount() {
+		return linkCount;
+	}
+
+	/**
+	 * The first link, or null if there is none
+	 */
+	Element link() {
+		return link == null ? null : link.root;
+	}
+
+	/**
+	 * The text of the first link, or null if there is none
+	 */
+	String linkText() {
+		return link == null ? null : link.text();
+	}
+
+	@Override
+	public void head(Node node, int depth) {
+		if (node instanceof Element) {
+			Element element = (Element) node;
+			switch (element.tagName()) {
+			case "strong":
+				if (strong == null)
+					strong = new TextCollector(element);
+				break;
+			case "b":
+				if (bold == null)
+					bold = new TextCollector(element);
+				break;
+			case "sup":
+				if (sup == null)
+					sup = new TextCollector(element);
+				break;
+			case "a":
+				if (linkCount++ == 0)
+					link = new TextCollector(element);
+				break;
+			}
+		}
+
+		text.head(node);
+		if (strong != null) strong.head(node);
+		if (bold   != null) bold.head(node);
+		if (sup    != null) sup.head(node);
+		if (link   != null) link.head(node);
+	}
+
+	@Override
+	public void tail(Node node, int depth) {
+		if (strong != null) strong.tail(node);
+		if (bold   != null) bold.tail(node);
+		if (sup    != null) sup.tail(node);
+		if (link   != null) link.tail(node);
+	}
+
+	/**
+	 * Accumulates the text of a single element, following the same rules
+	 * as {@link Element#text()}, stopping once the traversal leaves it.
+	 */
+	private static final class TextCollector {
+		private final Element root;
+		private final StringBuilder text = new StringBuilder();
+		private boolean open = true;
+
+		TextCollector(Element root) {
+			this.root = root;
+		}
+
+		void head(Node node) {
+			if (! open)
+				return;
+
+			if (node instanceof TextNode) {
+				TextNode textNode = (TextNode) node;
+				if (preserveWhitespace(textNode.parent()))
+					text.append(textNode.getWholeText());
+				else
+					appendNormalisedWhitespace(textNode.getWholeText(), lastCharIsWhitespace());
+			}
+			else if (node instanceof Element) {
+				Element element = (Element) node;
+				if (text.length() > 0
+						&& (element.isBlock() || element.tagName().equals("br"))
+						&& ! lastCharIsWhitespace())
+					text.append(' ');
+			}
+		}
+
+		void tail(Node node) {
+			if (node == root)
+				open = false;
+		}
+
+		String text() {
+			return text.toString().trim();
+		}
+
+		/**
+		 * Appends the given string with each run of whitespace replaced by a
+		 * single space, and with leading whitespace removed if
+		 * <tt>stripLeading</tt> is set, as Jsoup's
+		 * <tt>StringUtil.appendNormalisedWhitespace()</tt> does.
+		 */
+		private void appendNormalisedWhitespace(String string, boolean stripLeading) {
+			int start = normalisedPrefixLength(string, stripLeading);
+			if (start == string.length()) {
+				text.append(string);
+				return;
+			}
+
+			boolean lastWasWhite    = start > 0 && string.charAt(start - 1) == ' ';
+			boolean reachedNonWhite = start > 0;
+			int     runStart        = -1; // the start of the current run of non-whitespace
+			text.append(string, 0, start);
+
+			for (int i = start; i < string.length(); i++) {
+				if (isWhitespace(string.charAt(i))) {
+					if (runStart >= 0) {
+						text.append(string, runStart, i);
+						runStart = -1;
+					}
+					if ((stripLeading && ! reachedNonWhite) || lastWasWhite)
+						continue;
+					text.append(' ');
+					lastWasWhite = true;
+				}
+				else {
+					if (runStart < 0)
+						runStart = i;
+					lastWasWhite    = false;
+					reachedNonWhite = true;
+				}
+			}
+			if (runStart >= 0)
+				text.append(string, runStart, string.length());
+		}
+
+		/**
+		 * The length of the longest prefix of the string which normalising
+		 * would leave unchanged: one without leading whitespace, if it's
+		 * to be stripped, and in which the only whitespace is single spaces.
+		 */
+		private static int normalisedPrefixLength(String string, boolean stripLeading) {
+			if (stripLeading && ! string.isEmpty() && isWhitespace(string.charAt(0)))
+				return 0;
+
+			boolean lastWasSpace = false;
+			for (int i = 0; i < string.length(); i++) {
+				char c = string.charAt(i);
+				if (c == ' ') {
+					if (lastWasSpace)
+						return i - 1;
+					lastWasSpace = true;
+				}
+				else if (isWhitespace(c)) {
+					return i;
+				}
+				else {
+					lastWasSpace = false;
+				}
+			}
+			return string.length();
+		}
+
+		/**
+		 * Whitespace as Jsoup defines it
+		 */
+		private static boolean isWhitespace(char c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+		}
+
+		private boolean lastCharIsWhitespace() {
+			return text.length() != 0 && text.charAt(text.length() - 1) == ' ';
+		}
+
+		/**
+		 * Whether the text in this node is preformatted, looking, as Jsoup
+		 * does, only at the node and its parent.
+		 */
+		private static boolean preserveWhitespace(Node node) {
+			if (node instanceof Element) {
+				Element element = (Element) node;
+				return element.tag().preserveWhitespace()
+					|| element.parent() != null && element.parent().tag().preserveWhitespace();
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+/**
+ * How article parsers read a page.
+ */
+public enum ParserBackend {
+	/**
+	 * Parse the entire page into a Jsoup DOM, and select the elements we need
+	 * from it.
+	 */
+	DOM,
+
+	/**
+	 * Find the elements we need in a single pass over the page's source with
+	 * an {@link HtmlRegionScanner}, and parse only those into a DOM. The rest
+	 * of the page, with its adverts, scripts and navigation, is never parsed.
+	 * Gives the same results as {@link #DOM}, only faster.
+	 */
+	STREAMING
+}
@@ -28,6 +28,14 @@ public class PlainArticleParser extends AbstractArticleParser
 
 	public static final String MINI_ARTICLE_STRAP = "A brief overview";
 
+	public PlainArticleParser() {
+		super();
+	}
+
+	public PlainArticleParser(ParserBackend backend) {
+		super(backend);
+	}
+
 	@Override
 	public PlainArticle parse(URI articleUri, String html) throws HtmlParseException {
 		try {
@@ -35,13 +43,11 @@ public class PlainArticleParser extends AbstractArticleParser
 				return parseEssay(articleUri, html);
 			}
 
-			html = cleanUpDodgyHtml(html);
-
-			// Now parse the cleaned document normally
-			Document doc = Jsoup.parse(html);
-			ArticleHeader header = readHeaders(doc);
+			// Find and parse the cleaned elements, see cleanUpHtml()
+			ArticleElements elements = findArticleElements(html);
+			ArticleHeader header = readHeaders(elements.getHeaderGroup());
 			
-			Element bodyDiv = findArticleDiv(doc);
+			Element bodyDiv = elements.getArticleDiv();
 			Pair<Optional<URI>, Optional<String>> mainImageCap = readMainImage(bodyDiv);
 			
 			List<Content> content = readContent(bodyDiv);
@@ -78,12 +84,54 @@ public class PlainArticleParser extends AbstractArticleParser
 		return html.contains("es-section");
 	}
 
+	@Override
+	protected String cleanUpHtml(String html) {
+		return cleanUpDodgyHtml(html);
+	}
+
 	/**
 	 * There is occasionally some really dodgy things in Economist
-	 * HTML, as writers fight against the CMS they have to use
+	 * HTML, as writers fight against the CMS they have to use, such as
+	 * paragraphs separated by a pair of line-breaks, which we replace with
+	 * a paragraph break. Equivalent to
+	 * <tt>html.replaceAll("&lt;br&gt;\\s*&lt;br&gt;", "&lt;/p&gt;&lt;p&gt;")</tt>,
+	 * but in a single scan, which only copies the HTML if it finds
+	 * something to replace.
  	 */
-	private static String cleanUpDodgyHtml(String html) {
-		return html.replaceAll("<br>\\s*<br>", "</p><p>");
+	static String cleanUpDodgyHtml(String html) {
+		StringBuilder cleaned = null;
+		int copied = 0;
+
+		int br = html.indexOf(LINE_BREAK);
+		while (br >= 0) {
+			int next = br + LINE_BREAK.length();
+			while (next < html.length() && isWhitespace(html.charAt(next)))
+				next++;
+
+			if (html.startsWith(LINE_BREAK, next)) {
+				if (cleaned == null)
+					cleaned = new StringBuilder(html.length());
+				cleaned.append(html, copied, br).append(PARAGRAPH_BREAK);
+				copied = next + LINE_BREAK.length();
+				br = html.indexOf(LINE_BREAK, copied);
+			}
+			else {
+				br = html.indexOf(LINE_BREAK, next);
+			}
+		}
+
+		return cleaned == null
+			? html
+			: cleaned.append(html, copied, html.length()).toString();
+	}
+	private final static String LINE_BREAK      = "<br>";
+	private final static String PARAGRAPH_BREAK = "</p><p>";
+
+	/**
+	 * Whitespace as matched by <tt>\s</tt> in a regular expression
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
 	}
 
 	/**
@@ -6,6 +6,7 @@ import java.util.*;
 
 import org.apache.commons.lang3.StringUtils;
 import org.feenaboccles.kindlomist.articles.PrintEdition;
+import org.feenaboccles.kindlomist.articles.html.HtmlRegionScanner.Target;
 import org.feenaboccles.kindlomist.download.DateStamp;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -24,7 +25,11 @@ public class PrintEditionParser implements HtmlParser<PrintEdition> {
 	private static final int EXPECTED_ARTICLES_PER_SECTION = 10;
 	private static final int EXPECTED_SECTION_COUNT = 10;
 
+	private static final HtmlRegionScanner SECTION_SCANNER = new HtmlRegionScanner(
+			Target.all("div", "section"));
+
 	private final DateStamp dateStamp;
+	private final ParserBackend backend;
 	
 	/**
 	 * Creates a new {@link PrintEditionParser}
@@ -32,7 +37,18 @@ public class PrintEditionParser implements HtmlParser<PrintEdition> {
 	 * edition - used to determine if it's an Xmas issue or not.
 	 */
 	public PrintEditionParser(DateStamp dateStamp) {
+		this(dateStamp, ParserBackend.DOM);
+	}
+
+	/**
+	 * Creates a new {@link PrintEditionParser}
+	 * @param dateStamp the date-stamp assigned to the parsed print
+	 * edition - used to determine if it's an Xmas issue or not.
+	 * @param backend how to read the page
+	 */
+	public PrintEditionParser(DateStamp dateStamp, ParserBackend backend) {
 		this.dateStamp = dateStamp;
+		this.backend   = backend;
 	}
 	
 	@Override
@@ -44,8 +60,7 @@ public class PrintEditionParser implements HtmlParser<PrintEdition> {
 			List<String> orderedSectionHeadings = new ArrayList<>(EXPECTED_SECTION_COUNT);
 			
 			// Start parsing
-			Document doc = Jsoup.parse(html);
-			Elements secs = doc.select("div.section");
+			Elements secs = findSections(html);
 			
 			// Read in the intro section, with Politics this week etc.
 			Element firstSection = secs.select("div.first").first();
@@ -116,6 +131,25 @@ public class PrintEditionParser implements HtmlParser<PrintEdition> {
 		}
 	}
 
+	/**
+	 * Finds every section DIV in the page, in the order they appear,
+	 * using this parser's {@link ParserBackend}
+	 */
+	private Elements findSections(String html) {
+		switch (backend) {
+		case STREAMING:
+			Elements secs = new Elements(EXPECTED_SECTION_COUNT * 2);
+			for (String region : SECTION_SCANNER.scan(html).get(0))
+				secs.addAll(AbstractArticleParser.parseRegion(region).select("div.section"));
+			return secs;
+		case DOM:
+			Document doc = Jsoup.parse(html);
+			return doc.select("div.section");
+		default:
+			throw new IllegalStateException ("No code has been written to handle the new parser backend " + backend);
+		}
+	}
+
 	/**
 	 * Converts a string to a URI. Prepends Economist.com to the URI if it's
 	 * missing a host
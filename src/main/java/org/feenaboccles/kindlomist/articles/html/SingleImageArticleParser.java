@@ -7,8 +7,6 @@ import java.util.NoSuchElementException;
 import javax.validation.ValidationException;
 
 import org.feenaboccles.kindlomist.articles.SingleImageArticle;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 /**
@@ -21,13 +19,19 @@ import org.jsoup.nodes.Element;
 public class SingleImageArticleParser extends AbstractArticleParser 
 	implements HtmlParser<SingleImageArticle> {
 
+	public SingleImageArticleParser() {
+		super();
+	}
+
+	public SingleImageArticleParser(ParserBackend backend) {
+		super(backend);
+	}
+
 	@Override
 	public SingleImageArticle parse(URI articleUri, String html) throws HtmlParseException {
 		
 		try {
-			Document doc = Jsoup.parse(html);
-			
-			Element bodyDiv   = findArticleDiv(doc);
+			Element bodyDiv   = findArticleElements(html).getArticleDiv();
 			URI     mainImage = readMainImage(bodyDiv).getLeft().orElseThrow(() -> new NoSuchElementException());
 			
 			return new SingleImageArticle(articleUri, mainImage).validate();
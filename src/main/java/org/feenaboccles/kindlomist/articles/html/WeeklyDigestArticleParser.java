@@ -9,8 +9,6 @@ import javax.validation.ValidationException;
 import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
 import org.feenaboccles.kindlomist.articles.content.Content;
 import org.feenaboccles.kindlomist.articles.content.LetterAuthor;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 
@@ -21,12 +19,19 @@ import org.jsoup.nodes.Element;
  */
 public class WeeklyDigestArticleParser extends AbstractArticleParser
 	implements HtmlParser<WeeklyDigestArticle>{
+
+	public WeeklyDigestArticleParser() {
+		super();
+	}
+
+	public WeeklyDigestArticleParser(ParserBackend backend) {
+		super(backend);
+	}
 	
 	@Override
 	public WeeklyDigestArticle parse(URI articleUri, String html) throws HtmlParseException {
 		try {
-			Document doc = Jsoup.parse(html);
-			Element bodyDiv = findArticleDiv(doc);
+			Element bodyDiv = findArticleElements(html).getArticleDiv();
 			
 			List<Content> content = readContent(bodyDiv);
 			
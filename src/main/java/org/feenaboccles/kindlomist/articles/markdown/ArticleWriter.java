@@ -47,7 +47,9 @@ public class ArticleWriter {
 		write(
 			writer,
 			images,
-			article.getTopic() + ": " + article.getTitle(),
+			article.getTopic(),
+			article.getTitle(),
+			2,
 			Optional.of(article.getStrap()),
 			article.getMainImage(),
 			article.getBody()
@@ -60,7 +62,8 @@ public class ArticleWriter {
 		write(
 			writer,
 			images,
-			article.getTopic() + ": " + article.getTitle(),
+			article.getTopic(),
+			article.getTitle(),
 			1,
 			Optional.of(article.getStrap()),
 			article.getMainImage(),
@@ -88,7 +91,9 @@ public class ArticleWriter {
 		write(
 			writer,
 			images,
+			null,
 			title,
+			2,
 			Optional.empty(),
 			article.getMainImage(),
 			Collections.emptyList()
@@ -115,7 +120,9 @@ public class ArticleWriter {
 		write(
 				writer,
 				images,
+				null,
 				title,
+				2,
 				Optional.empty(),
 				Optional.empty(),
 				article.getBody()
@@ -129,31 +136,9 @@ public class ArticleWriter {
 	 * @param writer the writer used to write document to
 	 * @param images the image resolver, used to match image URIs to local
 	 *               paths on disk
-	 * @param title  the article title, usually a combinator of Economist "topic"
-	 *               and title components
-	 * @param strap  the article's strap
-	 * @param mainImage the article's main image
-	 * @param contents the articles contents, may be null.
-	 * @throws IOException
-	 */
-	private static void write (@NonNull Writer writer,
-							   @NonNull ImageResolver images,
-							   @NonNull String title,
-							   @NonNull Optional<String> strap,
-							   @NonNull Optional<URI> mainImage,
-							   @NonNull List<Content> contents) throws IOException {
-		write(writer, images, title, 2, strap, mainImage, contents);
-	}
-
-	/**
-	 * Writes this article out to the given writer in Markdown format. For
-	 * each image, a local path on disk is found using the {@link ImageResolver}
-	 * and used to create a Markdown image tag
-	 * @param writer the writer used to write document to
-	 * @param images the image resolver, used to match image URIs to local
-	 *               paths on disk
-	 * @param title  the article title, usually a combinator of Economist "topic"
-	 *               and title components
+	 * @param topic  the article's topic, written before its title, or null
+	 *               if it has none
+	 * @param title  the article title
 	 * @param titleRank should the title be 1st, 2nd etc.
 	 * @param strap  the article's strap
 	 * @param mainImage the article's main image
@@ -162,21 +147,34 @@ public class ArticleWriter {
 	 */
 	private static void write (@NonNull Writer writer,
 				@NonNull ImageResolver images,
+						 String topic,
 				@NonNull String title,
 						 int titleRank,
 				@NonNull Optional<String> strap,
 				@NonNull Optional<URI> mainImage,
 				@NonNull List<Content> contents) throws IOException {
 
-		String titleMarkDown = StringUtils.repeat('#', titleRank);
-		writer.write(titleMarkDown + " " + title + "\n\n");
-		if (strap.isPresent())
-			writer.write ("**" + strap.get() + "**\n\n");
+		for (int i = 0; i < titleRank; i++)
+			writer.write('#');
+		writer.write(' ');
+		if (topic != null) {
+			writer.write(topic);
+			writer.write(": ");
+		}
+		writer.write(title);
+		writer.write("\n\n");
+		if (strap.isPresent()) {
+			writer.write("**");
+			writer.write(strap.get());
+			writer.write("**\n\n");
+		}
 		if (mainImage.isPresent())
 			writeMainImage (writer, images, mainImage.get());
-		if (! contents.isEmpty())
+		if (! contents.isEmpty()) {
+			MarkdownEscapingWriter escaped = new MarkdownEscapingWriter(writer);
 			for (Content contentItem : contents)
-				writeContent (writer, images, contentItem);
+				writeContent (writer, escaped, images, contentItem);
+		}
 	}
 
 	/**
@@ -205,22 +203,25 @@ public class ArticleWriter {
 		if (path == null) {
 			log.warn("No path for image at " + String.valueOf(source));
 		} else {
-			writer.write("\n![](" + path.toString() + ")\n\n");
+			writer.write("\n![](");
+			writer.write(path.toString());
+			writer.write(")\n\n");
 		}
 	}
 
 	/**
-	 * Writes out the element of content from an article
+	 * Writes out the element of content from an article, using the
+	 * escaping writer for its text
 	 */
-	private static void writeContent(Writer writer, ImageResolver images, Content content) throws IOException {
+	private static void writeContent(Writer writer, MarkdownEscapingWriter escaped, ImageResolver images, Content content) throws IOException {
 		switch (content.getType()) {
-			case TEXT:          writeText(writer, (Text) content); break;
-			case SUB_HEADING:   writeSubHeading(writer, (SubHeading) content); break;
+			case TEXT:          writeText(writer, escaped, (Text) content); break;
+			case SUB_HEADING:   writeSubHeading(writer, escaped, (SubHeading) content); break;
 			case IMAGE:         writeImage(writer, images, (Image) content); break;
-			case FOOTNOTE:      writeFootnote(writer, (Footnote) content); break;
-			case PULL_QUOTE:    writePullQuote(writer, (PullQuote) content); break;
-			case LETTER_AUTHOR: writeLetterAuthor(writer, (LetterAuthor) content); break;
-			case REFERENCE:     writeReference(writer, (Reference) content); break;
+			case FOOTNOTE:      writeFootnote(writer, escaped, (Footnote) content); break;
+			case PULL_QUOTE:    writePullQuote(writer, escaped, (PullQuote) content); break;
+			case LETTER_AUTHOR: writeLetterAuthor(writer, escaped, (LetterAuthor) content); break;
+			case REFERENCE:     writeReference(writer, escaped, (Reference) content); break;
 			default:
 				throw new IllegalStateException ("No writer is defined for content of type " + content.getType());
 		}
@@ -229,8 +230,8 @@ public class ArticleWriter {
 	/**
 	 * Writes a piece of text content
 	 */
-	private static void writeText(Writer writer, Text text) throws IOException {
-		writer.write(markdownEscapedContent(text));
+	private static void writeText(Writer writer, MarkdownEscapingWriter escaped, Text text) throws IOException {
+		escaped.write(text.getContent());
 		writer.write("\n\n");
 	}
 
@@ -247,31 +248,30 @@ public class ArticleWriter {
 	/**
 	 * Writes a sub-heading
 	 */
-	private static void writeSubHeading(Writer writer, SubHeading heading) throws IOException {
-		writer.write ("### " + markdownEscapedContent(heading));
+	private static void writeSubHeading(Writer writer, MarkdownEscapingWriter escaped, SubHeading heading) throws IOException {
+		writer.write ("### ");
+		escaped.write(heading.getContent());
 		writer.write ("\n");
 	}
 
 	/**
 	 * Writes a footnote
 	 */
-	private static void writeFootnote(Writer writer, Footnote footnote) throws IOException {
-		String content = StringUtils.replace(
-				markdownEscapedContent(footnote), " ", "\\ ");
-
+	private static void writeFootnote(Writer writer, MarkdownEscapingWriter escaped, Footnote footnote) throws IOException {
 		// We subscript the footnote to make it small. This is why we
 		// also have to escape spaces
 		writer.write('~');
-		writer.write(content);
+		escaped.escapeSpaces(true).write(footnote.getContent());
+		escaped.escapeSpaces(false);
 		writer.write("~\n\n");
 	}
 
 	/**
 	 * Writes a footnote
 	 */
-	private static void writeLetterAuthor(Writer writer, LetterAuthor author) throws IOException {
+	private static void writeLetterAuthor(Writer writer, MarkdownEscapingWriter escaped, LetterAuthor author) throws IOException {
 		writer.write('_');
-		writer.write(markdownEscapedContent(author));
+		escaped.write(author.getContent());
 		writer.write("_\n\n");
 	}
 
@@ -279,9 +279,9 @@ public class ArticleWriter {
 	/**
 	 * Writes a pull-quote
 	 */
-	private static void writePullQuote(Writer writer, PullQuote pullQuote) throws IOException {
+	private static void writePullQuote(Writer writer, MarkdownEscapingWriter escaped, PullQuote pullQuote) throws IOException {
 		writer.write("\n> *\"");
-		writer.write(markdownEscapedContent(pullQuote));
+		escaped.write(pullQuote.getContent());
 		writer.write("\"*");
 		writer.write("\n\n");
 	}
@@ -290,40 +290,15 @@ public class ArticleWriter {
 	/**
 	 * Writes a reference
 	 */
-	private static void writeReference(Writer writer, Reference ref) throws IOException {
-		writer.write(markdownEscapedContent(ref.getBefore()));
+	private static void writeReference(Writer writer, MarkdownEscapingWriter escaped, Reference ref) throws IOException {
+		escaped.write(ref.getBefore());
 		writer.write(" [");
-		writer.write(markdownEscapedContent(ref.getUrlText()));
+		escaped.write(ref.getUrlText());
 		writer.write("](");
 		writer.write(ref.getUrlHref());
 		writer.write(") ");
-		writer.write(markdownEscapedContent(ref.getAfter()));
+		escaped.write(ref.getAfter());
 
 		writer.write("\n\n");
 	}
-
-	private static String markdownEscapedContent(Content content) {
-		return markdownEscapedContent(content.getContent());
-	}
-
-	private static String markdownEscapedContent(String text) {
-		StringBuilder sb = new StringBuilder (text.length());
-		for (int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			switch (c) {
-				case '*':
-				case '\\':
-				case '_':
-				case '>':
-				case '#':
-				case '(':
-					sb.append('\\');
-					// deliberate fallthrough
-				default:
-					sb.append(c);
-					break;
-			}
-		}
-		return sb.toString();
-	}
 }
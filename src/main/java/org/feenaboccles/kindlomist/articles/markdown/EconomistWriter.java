@@ -1,13 +1,25 @@
 package org.feenaboccles.kindlomist.articles.markdown;
 
+import java.io.CharArrayWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.feenaboccles.kindlomist.articles.Economist;
 import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
 import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.metrics.Metrics;
 
 /**
  * Writes out the Economist issue as a pandoc-compatible Markdown
@@ -19,16 +31,66 @@ import org.feenaboccles.kindlomist.articles.PlainArticle;
  * <pre>
  * pandoc -S  --epub-chapter-level 1 --toc --toc-depth 2 -o economist.epub economist.md
  * </pre>
+ * The time taken to write each issue is recorded in the {@link Metrics}
+ * <tt>markdown.write</tt>.
  * @author bryanfeeney
  *
  */
 public class EconomistWriter 
 {
 
+	private final static int SECTION_BUFFER_SIZE = 64 * 1024;
+
 	private EconomistWriter() { }
 
+	/**
+	 * Writes the given issue in Markdown format to the given writer,
+	 * rendering its sections in parallel on the common fork-join pool.
+	 */
 	// TODO Proper title, nicely formated date
 	public static void write (Writer writer, Economist issue) throws IOException {
+		write(writer, issue, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Writes the given issue in Markdown format to the given writer. Each
+	 * part of the issue - the digests and letters, each section, and the
+	 * obituary - is rendered into its own buffer using the given executor,
+	 * and the buffers are written out in order as soon as each is ready,
+	 * so the output is exactly as if they'd been rendered one after another.
+	 * Pass the same executor when writing several issues, rather than
+	 * creating one for each.
+	 */
+	public static void write (Writer writer, Economist issue, Executor executor) throws IOException {
+		write(writer, PendingIssue.of(issue), executor);
+	}
+
+	/**
+	 * Writes the given issue in Markdown format to the given writer while
+	 * it's still being downloaded. Each part of the issue is rendered into
+	 * its own buffer, using the given executor, as soon as it's been
+	 * downloaded, and the buffers are written out in order as soon as each
+	 * is ready. Returns once the issue has been downloaded in full.
+	 */
+	public static void write (Writer writer, PendingIssue issue, Executor executor) throws IOException {
+		long start = System.nanoTime();
+		List<CompletableFuture<CharArrayWriter>> parts = new ArrayList<>(issue.getOrderedSections().size() + 2);
+		CompletableFuture<Void> frontMatter = CompletableFuture.allOf(
+				issue.getPoliticsThisWeek(), issue.getBusinessThisWeek(), issue.getKalsCartoon(), issue.getLetters());
+		parts.add(render(executor, frontMatter, w -> writeFrontMatter(w, issue)));
+		for (String sectionName : issue.getOrderedSections()) {
+			CompletableFuture<List<PlainArticle>> section = issue.getSections().get(sectionName);
+			parts.add(render(executor, section, w -> writeSection(w, issue.getImages(), sectionName, section.join())));
+		}
+		parts.add(render(executor, issue.getObituary(), w -> writeBackMatter(w, issue)));
+
+		for (CompletableFuture<CharArrayWriter> part : parts)
+			join(part).writeTo(writer);
+		join(issue.getIssue());
+		Metrics.INSTANCE.timer("markdown.write").recordSince(start);
+	}
+
+	private static void writeFrontMatter (Writer writer, PendingIssue issue) throws IOException {
 		ImageResolver images = issue.getImages();
 
 		// YAML Header with title etc.
@@ -47,30 +109,72 @@ public class EconomistWriter
 		} else {
 			writer.write("# The World this Week\n\n");
 		}
-		ArticleWriter.write(writer, images, "Politics this Week", issue.getPoliticsThisWeek());
+		ArticleWriter.write(writer, images, "Politics this Week", issue.getPoliticsThisWeek().join());
 
-		if (issue.getBusinessThisWeek().isPresent())
-			ArticleWriter.write(writer, images, "Business this Week", issue.getBusinessThisWeek().get());
+		Optional<WeeklyDigestArticle> businessThisWeek = issue.getBusinessThisWeek().join();
+		if (businessThisWeek.isPresent())
+			ArticleWriter.write(writer, images, "Business this Week", businessThisWeek.get());
 
 		// Write out KAL's cartoon
-		ArticleWriter.write(writer, images, "KAL's Cartoon", issue.getKalsCartoon());
+		ArticleWriter.write(writer, images, "KAL's Cartoon", issue.getKalsCartoon().join());
 
 		// Write out the letters
-		ArticleWriter.writeSingleArticleSection(writer, images, issue.getLetters());
+		ArticleWriter.writeSingleArticleSection(writer, images, issue.getLetters().join());
+	}
 
-		// Write out all the sections and their articles.
-		for (String sectionName : issue.getOrderedSections()) {
-			writer.write ("# " + sectionName + "\n\n");
-			for (PlainArticle article : issue.getSections().get(sectionName)) {
-				ArticleWriter.write(writer, images, article);
-			}
+	private static void writeSection (Writer writer, ImageResolver images, String sectionName, List<PlainArticle> articles) throws IOException {
+		writer.write ("# " + sectionName + "\n\n");
+		for (PlainArticle article : articles) {
+			ArticleWriter.write(writer, images, article);
 		}
+	}
+
+	private static void writeBackMatter (Writer writer, PendingIssue issue) throws IOException {
+		ImageResolver images = issue.getImages();
 
 		// Write out the letters
-		ArticleWriter.write(writer, images, issue.getObituary());
+		ArticleWriter.write(writer, images, issue.getObituary().join());
 
 
 		// Write out the obituary
-		ArticleWriter.writeSingleArticleSection(writer, images, issue.getObituary());
+		ArticleWriter.writeSingleArticleSection(writer, images, issue.getObituary().join());
+	}
+
+	/**
+	 * Something which writes part of an issue
+	 */
+	@FunctionalInterface
+	private interface Part {
+		void writeTo(Writer writer) throws IOException;
+	}
+
+	/**
+	 * Renders the given part into a buffer, using the given executor, once
+	 * the given future, which the part depends on, has completed.
+	 */
+	private static CompletableFuture<CharArrayWriter> render (Executor executor, CompletableFuture<?> ready, Part part) {
+		return ready.thenApplyAsync(r -> {
+			CharArrayWriter buffer = new CharArrayWriter(SECTION_BUFFER_SIZE);
+			try {
+				part.writeTo(buffer);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e); // can't happen writing to memory
+			}
+			return buffer;
+		}, executor);
+	}
+
+	private static <T> T join (CompletableFuture<T> part) throws IOException {
+		try {
+			return part.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
 	}
 }
@@ -0,0 +1,86 @@
+package org.feenaboccles.kindlomist.articles.markdown;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer which escapes the characters which are special in Markdown as
+ * it writes them to the underlying writer. Runs of ordinary characters are
+ * passed through in a single call, and nothing is buffered or allocated,
+ * so this can be used for every paragraph of an issue at no cost beyond
+ * that of the underlying writer.
+ * <p>
+ * Optionally spaces may be escaped too, which is necessary for text
+ * within a pandoc subscript or superscript.
+ * <p>
+ * Closing or flushing this writer closes or flushes the underlying writer.
+ */
+final class MarkdownEscapingWriter extends FilterWriter {
+
+	private final static char ESCAPE = '\\';
+
+	private boolean escapeSpaces = false;
+
+	MarkdownEscapingWriter(Writer out) {
+		super(out);
+	}
+
+	/**
+	 * Sets whether spaces are escaped, as well as the characters which
+	 * are always escaped
+	 */
+	MarkdownEscapingWriter escapeSpaces(boolean escapeSpaces) {
+		this.escapeSpaces = escapeSpaces;
+		return this;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		if (needsEscape((char) c))
+			out.write(ESCAPE);
+		out.write(c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		int start = off, end = off + len;
+		for (int i = off; i < end; i++) {
+			if (needsEscape(cbuf[i])) {
+				out.write(cbuf, start, i - start);
+				out.write(ESCAPE);
+				start = i;
+			}
+		}
+		out.write(cbuf, start, end - start);
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		int start = off, end = off + len;
+		for (int i = off; i < end; i++) {
+			if (needsEscape(str.charAt(i))) {
+				out.write(str, start, i - start);
+				out.write(ESCAPE);
+				start = i;
+			}
+		}
+		out.write(str, start, end - start);
+	}
+
+	private boolean needsEscape(char c) {
+		switch (c) {
+			case '*':
+			case '\\':
+			case '_':
+			case '>':
+			case '#':
+			case '(':
+				return true;
+			case ' ':
+				return escapeSpaces;
+			default:
+				return false;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * A non-blocking HTTP/1.1 transport, in which a small number of I/O reactor
+ * threads service every open connection. This makes it cheap to have many
+ * requests in flight simultaneously, at the cost of buffering each response
+ * body in memory before it's returned.
+ * <p>
+ * HTTP/2 multiplexing would need a Java 9+ runtime or a newer version of
+ * HttpComponents than this project's Java 8 build supports, so connection
+ * re-use is achieved here by keep-alive pooling, as in {@link PooledHttpTransport}
+ */
+@Slf4j
+public class AsyncHttpTransport implements HttpTransport {
+
+	private final PoolingNHttpClientConnectionManager connManager;
+	private final CloseableHttpAsyncClient client;
+	private final ScheduledExecutorService evictor;
+	private final RequestConfig requestConfig;
+
+	private final AtomicLong requests = new AtomicLong();
+
+	public AsyncHttpTransport(TransportSettings settings) throws IOReactorException {
+		DefaultConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(IOReactorConfig.custom()
+				.setConnectTimeout(settings.getConnectTimeoutMillis())
+				.setSoTimeout(settings.getSocketTimeoutMillis())
+				.setSoKeepAlive(true)
+				.build());
+
+		connManager = new PoolingNHttpClientConnectionManager(ioReactor);
+		connManager.setMaxTotal(settings.getMaxConnections());
+		connManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerHost());
+
+		requestConfig = RequestConfig.custom()
+				.setConnectTimeout(settings.getConnectTimeoutMillis())
+				.setSocketTimeout(settings.getSocketTimeoutMillis())
+				.setConnectionRequestTimeout(settings.getPoolTimeoutMillis())
+				.build();
+		client = HttpAsyncClients.custom()
+				.setConnectionManager(connManager)
+				.setRedirectStrategy(new LaxRedirectStrategy())
+				.setDefaultRequestConfig(requestConfig)
+				.build();
+		client.start();
+
+		int idleTimeout = settings.getIdleTimeoutSeconds();
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "http-async-idle-connection-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		evictor.scheduleWithFixedDelay(() -> {
+			connManager.closeExpiredConnections();
+			connManager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+		}, idleTimeout, Math.max(1, idleTimeout / 2), TimeUnit.SECONDS);
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request) throws IOException {
+		requests.incrementAndGet();
+		try {
+			return client.execute(request, null).get();
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			throw new IOException("Failed to execute request to " + request.getURI() + " : " + cause.getMessage(), cause);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a response from " + request.getURI());
+		}
+	}
+
+	@Override
+	public RequestConfig getDefaultRequestConfig() {
+		return requestConfig;
+	}
+
+	@Override
+	public TransportStats getStats() {
+		PoolStats pool = connManager.getTotalStats();
+		return new TransportStats(requests.get(), -1, pool.getLeased(), pool.getAvailable(), pool.getPending());
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.info("Closing asynchronous HTTP transport, " + getStats());
+		evictor.shutdownNow();
+		client.close();
+	}
+}
@@ -0,0 +1,274 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the progress of an issue's download, so that if a download fails
+ * part-way through, the next attempt need only do the work that's missing.
+ * <p>
+ * The journal is a directory per issue, containing an append-only log, the
+ * HTML of every page that's been fetched, and the issue's images. The log
+ * records that
+ * <ul>
+ * <li>a page was fetched, and where its HTML was stored (<tt>PAGE</tt>)
+ * <li>a page was successfully parsed (<tt>PARSED</tt>)
+ * <li>an image was downloaded, and where it was stored (<tt>IMAGE</tt>)
+ * <li>the whole issue was downloaded (<tt>COMPLETE</tt>)
+ * </ul>
+ * Only pages which were both fetched and parsed are re-used, and they're
+ * parsed again, which is quick compared to fetching them, and yields exactly
+ * the same articles. Files are written before the log entries referring to
+ * them, so a torn write at worst loses the last entry, which is truncated
+ * away when the journal is next opened.
+ * <p>
+ * Threadsafe.
+ */
+@Slf4j
+public class CheckpointJournal implements Closeable {
+
+	private final static String JOURNAL_FILE = "journal.log";
+	private final static String PAGES_DIR    = "pages";
+	private final static String IMAGES_DIR   = "images";
+
+	private final static char   SEPARATOR    = '\t';
+
+	private enum Record { PAGE, PARSED, IMAGE, COMPLETE }
+
+	private final Path directory;
+	private final Path pagesDirectory;
+	private final Path imagesDirectory;
+	private final Writer journal;
+
+	private final Map<URI, Path>    pages  = new ConcurrentHashMap<>();
+	private final Set<URI>          parsed = ConcurrentHashMap.newKeySet();
+	private final Map<String, Path> images = new ConcurrentHashMap<>();
+	private volatile boolean complete = false;
+
+	private final AtomicInteger pageCounter    = new AtomicInteger();
+	private final AtomicInteger resumedPages   = new AtomicInteger();
+	private final AtomicInteger resumedImages  = new AtomicInteger();
+
+	/**
+	 * Opens the journal for the issue with the given date-stamp, creating it
+	 * if necessary.
+	 * @param checkpointDirectory the directory containing the journals of all issues
+	 */
+	public static CheckpointJournal open(Path checkpointDirectory, DateStamp dateStamp) throws IOException {
+		return new CheckpointJournal(checkpointDirectory.resolve(dateStamp.value()));
+	}
+
+	/**
+	 * Opens the journal in the given directory, creating it if necessary,
+	 * and replays any entries it already contains.
+	 */
+	public CheckpointJournal(Path directory) throws IOException {
+		this.directory       = directory;
+		this.pagesDirectory  = directory.resolve(PAGES_DIR);
+		this.imagesDirectory = directory.resolve(IMAGES_DIR);
+		Files.createDirectories(pagesDirectory);
+		Files.createDirectories(imagesDirectory);
+
+		Path journalPath = directory.resolve(JOURNAL_FILE);
+		if (Files.exists(journalPath)) {
+			truncateTornEntry(journalPath);
+			replay(journalPath);
+		}
+		this.journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+		if (! pages.isEmpty() || ! images.isEmpty())
+			log.info("Resuming the download in " + directory + ", " + parsed.size() + " pages and " + images.size() + " images were already downloaded");
+	}
+
+	/**
+	 * Removes the last entry in the journal if it was only partly written,
+	 * so the next entry appended doesn't run on from it.
+	 */
+	private static void truncateTornEntry(Path journalPath) throws IOException {
+		try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer last = ByteBuffer.allocate(1);
+			long end = channel.size();
+			for (; end > 0; end--) {
+				last.clear();
+				channel.read(last, end - 1);
+				if (last.get(0) == '\n')
+					break;
+			}
+			if (end < channel.size()) {
+				log.warn("Discarding a partly written entry at the end of the checkpoint journal " + journalPath);
+				channel.truncate(end);
+			}
+		}
+	}
+
+	private void replay(Path journalPath) throws IOException {
+		try (BufferedReader rdr = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = rdr.readLine()) != null) {
+				String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+				try {
+					switch (Record.valueOf(fields[0])) {
+					case PAGE:
+						pages.put(URI.create(fields[1]), directory.resolve(fields[2]));
+						pageCounter.incrementAndGet();
+						break;
+					case PARSED:
+						parsed.add(URI.create(fields[1]));
+						break;
+					case IMAGE:
+						images.put(fields[1], directory.resolve(fields[2]));
+						break;
+					case COMPLETE:
+						complete = true;
+						break;
+					}
+				}
+				catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+					log.warn("Ignoring malformed entry in the checkpoint journal " + journalPath + " : " + line);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The directory in which this issue's images should be stored
+	 */
+	public Path getImageDirectory() {
+		return imagesDirectory;
+	}
+
+	/**
+	 * Returns the HTML of the page at the given URI, if it has previously been
+	 * fetched and successfully parsed.
+	 */
+	public Optional<String> getPage(URI uri) throws IOException {
+		Path path = pages.get(uri);
+		if (path == null || ! parsed.contains(uri) || ! Files.exists(path))
+			return Optional.empty();
+
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+			ByteArrayOutputStream html = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			for (int read; (read = in.read(buf)) != -1; )
+				html.write(buf, 0, read);
+			resumedPages.incrementAndGet();
+			return Optional.of(new String(html.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * Records the HTML of a page that has been fetched.
+	 */
+	public void putPage(URI uri, String html) throws IOException {
+		Path path = pagesDirectory.resolve("page-" + pageCounter.incrementAndGet() + ".html.gz");
+		Path tmp  = Files.createTempFile(pagesDirectory, "page-", ".tmp");
+		try {
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+				out.write(html.getBytes(StandardCharsets.UTF_8));
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(tmp);
+		}
+
+		pages.put(uri, path);
+		append(Record.PAGE, uri.toASCIIString(), directory.relativize(path).toString());
+	}
+
+	/**
+	 * Records that the page at the given URI was parsed successfully.
+	 */
+	public void markParsed(URI uri) throws IOException {
+		if (parsed.add(uri))
+			append(Record.PARSED, uri.toASCIIString());
+	}
+
+	/**
+	 * Returns the path to the given image, if it has previously been downloaded.
+	 */
+	public Optional<Path> getImage(URI imageUri) {
+		Path path = images.get(imageUri.toASCIIString());
+		if (path == null || ! Files.exists(path))
+			return Optional.empty();
+
+		resumedImages.incrementAndGet();
+		return Optional.of(path);
+	}
+
+	/**
+	 * Records that the given image was downloaded to the given path.
+	 */
+	public void putImage(URI imageUri, Path path) throws IOException {
+		images.put(imageUri.toASCIIString(), path);
+		append(Record.IMAGE, imageUri.toASCIIString(), relativeIfPossible(path));
+	}
+
+	/**
+	 * Whether the entire issue has been downloaded.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Records that the entire issue has been downloaded.
+	 */
+	public void markComplete() throws IOException {
+		if (! complete) {
+			complete = true;
+			append(Record.COMPLETE);
+		}
+	}
+
+	/**
+	 * A summary of how much work was saved by resuming from this journal.
+	 */
+	public String getStats() {
+		return "checkpoint: " + resumedPages.get() + " pages and " + resumedImages.get() + " images resumed, "
+				+ parsed.size() + " pages and " + images.size() + " images recorded";
+	}
+
+	private String relativeIfPossible(Path path) {
+		Path absolute = path.toAbsolutePath();
+		Path base     = directory.toAbsolutePath();
+		return absolute.startsWith(base)
+			? base.relativize(absolute).toString()
+			: absolute.toString();
+	}
+
+	private synchronized void append(Record record, String... fields) throws IOException {
+		StringBuilder line = new StringBuilder(record.name());
+		for (String field : fields)
+			line.append(SEPARATOR).append(field);
+		journal.write(line.append('\n').toString());
+		journal.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		journal.close();
+	}
+}
@@ -7,6 +7,7 @@ import org.feenaboccles.kindlomist.articles.Economist;
 import javax.validation.ValidationException;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.time.temporal.TemporalAmount;
 
 /**
@@ -71,24 +72,16 @@ public final class DateStamp {
     public static LocalDate maxDateTime (ZonedDateTime londonLocalTime) {
         assert londonLocalTime.getZone().equals(ZoneId.of("Europe/London")) : "Time must be local to London";
 
-        int releaseDay  = Economist.PUBLICATION_DAY.getValue();
-        int declaredDay = Economist.DECLARED_PUBLICATION_DAY.getValue();
-
-        int declaredJump = declaredDay < releaseDay
-            ? (declaredDay + 7) - releaseDay
-            : declaredDay - releaseDay;
-
-        int today = londonLocalTime.getDayOfWeek().getValue();
-        if (londonLocalTime.getHour() < Economist.PUBLICATION_HOUR) { // arithmetic assumes this all happens on the stroke of midnight
-            today = today > 0 ? today - 1 : 7;             // so go a few hours into the "past" to adjust
-        }
-
-        int adjust = ((today + declaredJump) % 7 <= declaredDay) ? +1 : -1;
-        while (londonLocalTime.getDayOfWeek() != Economist.DECLARED_PUBLICATION_DAY) {
-            londonLocalTime = londonLocalTime.plus(adjust, ChronoUnit.DAYS);
+        // The most recent release is on or before today, and before now if it's today
+        ZonedDateTime lastRelease = londonLocalTime
+            .with(TemporalAdjusters.previousOrSame(Economist.PUBLICATION_DAY))
+            .truncatedTo(ChronoUnit.HOURS)
+            .withHour(Economist.PUBLICATION_HOUR);
+        if (lastRelease.isAfter(londonLocalTime)) {
+            lastRelease = lastRelease.minusWeeks(1);
         }
 
-        return londonLocalTime.toLocalDate();
+        return lastRelease.toLocalDate().with(TemporalAdjusters.nextOrSame(Economist.DECLARED_PUBLICATION_DAY));
     }
 
     public static DateStamp of (String value) throws ValidationException {
@@ -7,17 +7,20 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.LaxRedirectStrategy;
 import org.feenaboccles.kindlomist.articles.ContentBasedArticle;
 import org.feenaboccles.kindlomist.articles.Economist;
 import org.feenaboccles.kindlomist.articles.ImageResolver;
 import org.feenaboccles.kindlomist.articles.MainImageArticle;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
 import org.feenaboccles.kindlomist.articles.PlainArticle;
 import org.feenaboccles.kindlomist.articles.PrintEdition;
 import org.feenaboccles.kindlomist.articles.SingleImageArticle;
@@ -25,6 +28,7 @@ import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
 import org.feenaboccles.kindlomist.articles.content.Content;
 import org.feenaboccles.kindlomist.articles.content.Image;
 import org.feenaboccles.kindlomist.articles.html.*;
+import org.feenaboccles.kindlomist.metrics.Metrics;
 
 /**
  * Encapsulates the logic involved in downloading a full issue of the Ecomonimst
@@ -38,7 +42,15 @@ public class Downloader extends HttpAction {
 	private final Email userEmail;
 	private final Password password;
 	
-	private final static int NUM_SIMUL_DOWNLOADS = 6;
+	private final int fetchConcurrency;
+	private Optional<ImageTranscoder> imageTranscoder = Optional.empty();
+	private Optional<Path> checkpointDirectory = Optional.empty();
+	private ParserBackend parserBackend = ParserBackend.DOM;
+	
+	private boolean loggedIn = false;
+	
+	public  final static int NUM_SIMUL_DOWNLOADS = 6;
+	public  final static int DEFAULT_FETCH_CONCURRENCY = 8;
 	
 	/**
 	 * @param dateStamp the date-stamp used to identify the particular issue
@@ -46,95 +58,267 @@ public class Downloader extends HttpAction {
 	 * @param password the password to use when logging in.
 	 */
 	public Downloader(DateStamp dateStamp, Email userEmail, Password password) {
-		super(HttpClientBuilder.create()
-			   	.setRedirectStrategy(new LaxRedirectStrategy())
-			   	.build());
+		this(dateStamp, userEmail, password, DEFAULT_FETCH_CONCURRENCY);
+	}
+	
+	/**
+	 * @param dateStamp the date-stamp used to identify the particular issue
+	 * @param userEmail the username with which to log in
+	 * @param password the password to use when logging in.
+	 * @param fetchConcurrency the maximum number of articles which may be
+	 * downloaded simultaneously. Parsing is done separately, with one thread
+	 * per core.
+	 */
+	public Downloader(DateStamp dateStamp, Email userEmail, Password password, int fetchConcurrency) {
+		this(dateStamp, userEmail, password, fetchConcurrency, Optional.empty());
+	}
+	
+	/**
+	 * @param dateStamp the date-stamp used to identify the particular issue
+	 * @param userEmail the username with which to log in
+	 * @param password the password to use when logging in.
+	 * @param fetchConcurrency the maximum number of articles which may be
+	 * downloaded simultaneously. Parsing is done separately, with one thread
+	 * per core.
+	 * @param cache if present, the index page, articles and images are read
+	 * through this cache, so re-downloading an issue requires few network requests
+	 */
+	public Downloader(DateStamp dateStamp, Email userEmail, Password password, int fetchConcurrency, Optional<ResponseCache> cache) {
+		this(dateStamp, userEmail, password, fetchConcurrency, cache,
+			new PooledHttpTransport(TransportSettings.builder()
+				.maxConnectionsPerHost(fetchConcurrency + NUM_SIMUL_DOWNLOADS)
+				.maxConnections(2 * (fetchConcurrency + NUM_SIMUL_DOWNLOADS))
+				.build()));
+	}
+	
+	/**
+	 * @param dateStamp the date-stamp used to identify the particular issue
+	 * @param userEmail the username with which to log in
+	 * @param password the password to use when logging in.
+	 * @param fetchConcurrency the maximum number of articles which may be
+	 * downloaded simultaneously. Parsing is done separately, with one thread
+	 * per core.
+	 * @param cache if present, the index page, articles and images are read
+	 * through this cache, so re-downloading an issue requires few network requests
+	 * @param transport used to make all HTTP requests. Its connection pool should
+	 * allow at least <tt>fetchConcurrency</tt> connections per host. The caller is
+	 * responsible for closing it.
+	 */
+	public Downloader(DateStamp dateStamp, Email userEmail, Password password, int fetchConcurrency, Optional<ResponseCache> cache, HttpTransport transport) {
+		super(transport, cache);
+		if (fetchConcurrency < 1)
+			throw new IllegalArgumentException("The number of simultaneous article fetches must be at least one, not " + fetchConcurrency);
 		this.dateStamp = dateStamp;
 		this.userEmail = userEmail;
 		this.password  = password;
+		this.fetchConcurrency = fetchConcurrency;
+	}
+	
+	
+	/**
+	 * Sets the transcoder used to shrink each image once it's downloaded.
+	 * By default images are stored exactly as downloaded.
+	 */
+	public void setImageTranscoder(Optional<ImageTranscoder> imageTranscoder) {
+		this.imageTranscoder = imageTranscoder;
+	}
+	
+	/**
+	 * Sets the directory in which a checkpoint journal is kept for each issue,
+	 * so that a failed download can be resumed. By default there's no journal,
+	 * and every download starts from scratch.
+	 */
+	public void setCheckpointDirectory(Optional<Path> checkpointDirectory) {
+		this.checkpointDirectory = checkpointDirectory;
 	}
 	
+	/**
+	 * Sets how downloaded pages are parsed. By default each page is parsed
+	 * in full into a DOM.
+	 */
+	public void setParserBackend(ParserBackend parserBackend) {
+		this.parserBackend = parserBackend;
+	}
 	
 	/**
-	 * Downloads the full issue.
+	 * Sets whether the transport already holds a logged-in session, e.g.
+	 * from an earlier download through the same transport, in which case
+	 * we don't log in again. By default we log in before the first page
+	 * is downloaded.
+	 */
+	public synchronized void setLoggedIn(boolean loggedIn) {
+		this.loggedIn = loggedIn;
+	}
+
+	public synchronized boolean isLoggedIn() {
+		return loggedIn;
+	}
+	
+	/**
+	 * Downloads the full issue. If there's a checkpoint journal for this issue,
+	 * only those pages and images that it lacks are downloaded, and if it
+	 * lacks none, we don't even log in.
 	 */
 	public Economist call() throws HttpActionException, HtmlParseException {
-		// Set things up so we can download images.
-		ImageResolver   imageResolver;
-		ImageDownloader imageDownloader;
+		return await(start(Runnable::run).getIssue());
+	}
+	
+	/**
+	 * Starts downloading the full issue, returning it as soon as its index
+	 * has been downloaded, so that each part of the issue can be used as
+	 * soon as it, and its images, have been downloaded. The index is
+	 * downloaded on the calling thread, and the rest of the issue is then
+	 * collected and validated by a task run on the given executor. As with
+	 * {@link #call()}, a checkpoint journal is used if there is one.
+	 * <p>
+	 * If an article can't be downloaded, or the issue isn't valid, the
+	 * returned issue's {@link PendingIssue#getIssue()} completes exceptionally
+	 * with an {@link HttpActionException}, {@link HtmlParseException} or
+	 * validation exception.
+	 */
+	public PendingIssue start(Executor executor) throws HttpActionException, HtmlParseException {
+		final Optional<CheckpointJournal> journal;
 		try {
-			Path tmpImgDir  = Files.createTempDirectory("images-");
-			imageResolver   = new ImageResolver(tmpImgDir);
-			imageDownloader = new ImageDownloader(client, imageResolver, NUM_SIMUL_DOWNLOADS);
-			tmpImgDir.toFile().deleteOnExit();
+			journal = checkpointDirectory.isPresent()
+				? Optional.of(CheckpointJournal.open(checkpointDirectory.get(), dateStamp))
+				: Optional.empty();
 		}
 		catch (IOException e) {
-			throw new HttpActionException("Can't create a temporary directory into which images should be downloaded : " + e.getMessage(), e);
+			throw new HttpActionException("Can't open the checkpoint journal in " + checkpointDirectory.get() + " : " + e.getMessage(), e);
 		}
 		
-		// Log in
-		log.debug("Logging in to the Economist with username " + userEmail.value());
-		if (! new LoginAction (client, userEmail, password).call())
-			throw new HttpActionException("Failed to log in to the " + userEmail.value() + " account with the given password");
-		
-		// Download the table of contents
-		log.debug("Downloading the index page for datestamp " + dateStamp + " at URL");
-		final Optional<URI> u;
+		long start = System.nanoTime();
+		ImageDownloader    imageDownloader = null;
+		FetchParsePipeline pipeline        = null;
 		try {
-			u = Optional.of(new URI("http://www.economist.com/printedition/" + dateStamp.value()));
-		} catch (URISyntaxException e) {
-			throw new HttpActionException("Couldn't construct a valid URL from the date-stamp '" + dateStamp + "' : " + e.getMessage(), e);
-		}
-		PrintEdition p = fetchAndParse(u.get(), some(URI.create("http://www.economist.com")), new PrintEditionParser(dateStamp));
-		
-		// Download the special articles (politics this week, Kals cartoon, etc.)
-		log.debug("Loading core articles: politics, business, and cartoon");
-		SingleImageArticle  kal  = fetchAndParse(p.getKalsCartoon(), u, new SingleImageArticleParser());
-		WeeklyDigestArticle pols = fetchAndParseDigest(p.getPoliticsThisWeek(), u);
-		Optional<WeeklyDigestArticle> biz =
-				p.getBusinessThisWeek().isPresent()
-				? Optional.of(fetchAndParseDigest(p.getBusinessThisWeek().get(), u))
-				: Optional.empty();
-		PlainArticle letters = fetchAndParse(p.getLetters(), u, new LetterArticleParser());
-		PlainArticle obit = fetchAndParse(p.getObituary(), u, new PlainArticleParser());
-
-		// Download the special article images
-		downloadAllImages(imageDownloader, letters, obit);
-		downloadMainImage(imageDownloader, kal);
-		downloadContentImages(imageDownloader, pols);
-		biz.ifPresent(b -> downloadContentImages(imageDownloader, b));
-		
-		// For each of the sections download the section's articles
-		Map<String, List<PlainArticle>> sections = new HashMap<>(p.getSections().size());
-		for (Map.Entry<String, List<URI>> e : p.getSections().entrySet()) {
-			log.debug("Loading articles in section " + e.getKey());
-			List<PlainArticle> articles = new ArrayList<>(e.getValue().size());
-			sections.put (e.getKey(), articles);
-			for (URI articleUri : e.getValue()) {
-				if (log.isDebugEnabled())
-					log.debug("Fetching article for section " + e.getKey() + " from URI " + articleUri.toASCIIString());
-				
-				try {
-					PlainArticle a = fetchAndParse(articleUri, u, new PlainArticleParser());
-					downloadAllImages(imageDownloader, a);
-					articles.add(a);
-				}
-				catch (HtmlParseException hpe) {
-					log.warn("Skipping unparseable article - " + hpe.getMessage(), hpe);
-					System.err.println ("Skipping unparseable article - " + hpe.getMessage());
-					hpe.printStackTrace(System.err);
+			// Set things up so we can download images. They're kept with the
+			// journal, if there is one, so they survive a failed download.
+			ImageResolver imageResolver;
+			try {
+				Path imgDir;
+				if (journal.isPresent()) {
+					imgDir = journal.get().getImageDirectory();
+				} else {
+					imgDir = Files.createTempDirectory("images-");
+					imgDir.toFile().deleteOnExit();
 				}
+				imageResolver   = new ImageResolver(imgDir);
+				imageDownloader = new ImageDownloader(transport, cache, imageResolver, NUM_SIMUL_DOWNLOADS, imageTranscoder, journal);
+			}
+			catch (IOException e) {
+				throw new HttpActionException("Can't create a temporary directory into which images should be downloaded : " + e.getMessage(), e);
 			}
+			
+			// Download the table of contents. We only log in once we need to fetch a
+			// page that's not in the checkpoint journal.
+			log.debug("Downloading the index page for datestamp " + dateStamp + " at URL");
+			final Optional<URI> u;
+			try {
+				u = Optional.of(new URI("http://www.economist.com/printedition/" + dateStamp.value()));
+			} catch (URISyntaxException e) {
+				throw new HttpActionException("Couldn't construct a valid URL from the date-stamp '" + dateStamp + "' : " + e.getMessage(), e);
+			}
+			PageFetcher fetcher = new PageFetcher(journal);
+			PrintEdition p = fetchAndParse(fetcher, u.get(), some(URI.create("http://www.economist.com")), new PrintEditionParser(dateStamp, parserBackend));
+			markParsed(journal, u.get());
+			
+			// Download the special articles (politics this week, Kals cartoon, etc.)
+			// and all the articles in each section: downloading and parsing are
+			// handled by separate stages of a pipeline. Each article's images are
+			// downloaded as soon as it's parsed.
+			final ImageDownloader d = imageDownloader;
+			pipeline = new FetchParsePipeline(fetcher, fetchConcurrency);
+			log.debug("Loading core articles: politics, business, and cartoon");
+			CompletableFuture<SingleImageArticle> kal = submit(pipeline, journal, p.getKalsCartoon(), u, new SingleImageArticleParser(parserBackend))
+					.thenCompose(a -> downloadMainImage(d, a).thenApply(v -> a));
+			CompletableFuture<WeeklyDigestArticle> pols = submit(pipeline, journal, p.getPoliticsThisWeek(), u, new WeeklyDigestArticleParser(parserBackend))
+					.thenCompose(a -> downloadContentImages(d, a).thenApply(v -> a));
+			CompletableFuture<Optional<WeeklyDigestArticle>> biz = p.getBusinessThisWeek().isPresent()
+					? submit(pipeline, journal, p.getBusinessThisWeek().get(), u, new WeeklyDigestArticleParser(parserBackend))
+						.thenCompose(a -> downloadContentImages(d, a).thenApply(v -> Optional.of(a)))
+					: CompletableFuture.completedFuture(Optional.empty());
+			CompletableFuture<PlainArticle> letters = submit(pipeline, journal, p.getLetters(), u, new LetterArticleParser(parserBackend))
+					.thenCompose(a -> downloadAllImages(d, a).thenApply(v -> a));
+			CompletableFuture<PlainArticle> obit = submit(pipeline, journal, p.getObituary(), u, new PlainArticleParser(parserBackend))
+					.thenCompose(a -> downloadAllImages(d, a).thenApply(v -> a));
+			
+			// For each of the sections download the section's articles
+			Map<String, CompletableFuture<List<PlainArticle>>> sections = submitAllSections(pipeline, journal, p, u, imageDownloader);
+			
+			PendingIssue pending = PendingIssue.builder()
+					.dateStamp(dateStamp.asLocalDate())
+					.politicsThisWeek(pols)
+					.businessThisWeek(biz)
+					.kalsCartoon(kal)
+					.letters(letters)
+					.sections(sections)
+					.obituary(obit)
+					.orderedSections(p.getOrderedSections())
+					.images(imageResolver)
+					.issue(new CompletableFuture<>())
+					.build();
+			
+			final FetchParsePipeline pl = pipeline;
+			executor.execute(() -> finishIssue(pending, pl, d, journal, start));
+			return pending;
 		}
-
-		// Finally this issue's cover-image
-		Image coverImage = coverImageFromTimeStamp(dateStamp);
-		imageDownloader.launchDownload(coverImage, URI.create("http://www.economist.com/printedition"));
-
-		// Build the issue
-		try
-		{	imageDownloader.waitForAllDownloadsToComplete(30, TimeUnit.MINUTES);
-			return Economist.builder()
+		catch (HttpActionException | HtmlParseException | RuntimeException e) {
+			if (pipeline != null)
+				pipeline.close();
+			if (imageDownloader != null)
+				imageDownloader.close();
+			closeJournal(journal);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Waits for every part of the given issue to be downloaded, then for
+	 * any remaining images, including the cover, and finally assembles and
+	 * validates the issue, completing its future. Once done, closes the
+	 * pipeline, image downloader and checkpoint journal, whether or not the
+	 * issue could be downloaded. If it couldn't, every part which hasn't yet
+	 * arrived fails too, as the downloads it awaits may have been abandoned.
+	 */
+	private void finishIssue(PendingIssue pending, FetchParsePipeline pipeline, ImageDownloader imageDownloader, Optional<CheckpointJournal> journal, long start) {
+		try {
+			final SingleImageArticle  kal;
+			final WeeklyDigestArticle pols;
+			final Optional<WeeklyDigestArticle> biz;
+			final PlainArticle letters, obit;
+			final Map<String, List<PlainArticle>> sections;
+			try {
+				kal      = await(pending.getKalsCartoon());
+				pols     = await(pending.getPoliticsThisWeek());
+				biz      = await(pending.getBusinessThisWeek());
+				letters  = await(pending.getLetters());
+				obit     = await(pending.getObituary());
+				sections = collectAllSections(pending.getSections());
+			}
+			finally {
+				pipeline.close();
+			}
+			cache.ifPresent(c -> log.info("Articles downloaded, " + c.getStats()));
+			
+			// Finally this issue's cover-image
+			Image coverImage = coverImageFromTimeStamp(dateStamp);
+			imageDownloader.launchDownload(coverImage, URI.create("http://www.economist.com/printedition"));
+			
+			// Build the issue
+			List<ImageDownloader.Failure> failedImages;
+			try {
+				failedImages = imageDownloader.waitForAllDownloadsToComplete(30, TimeUnit.MINUTES);
+			}
+			catch (InterruptedException ie) {
+				throw new HttpActionException ("Timed out, or was interrupted, while waiting for all images to download " + ie.getMessage(), ie);
+			}
+			if (! failedImages.isEmpty())
+				log.warn(failedImages.size() + " images could not be downloaded, the first was " + failedImages.get(0).getImage());
+			log.info("Images downloaded, " + pending.getImages().getStats());
+			if (imageTranscoder.isPresent())
+				log.info("Transcoding images saved " + (imageDownloader.getBytesSaved() / 1024) + "KB");
+			log.info("Issue downloaded, " + transport.getStats());
+			Economist issue = Economist.builder()
 						.dateStamp(dateStamp.asLocalDate())
 						.politicsThisWeek(pols)
 						.businessThisWeek(biz)
@@ -142,13 +326,228 @@ public class Downloader extends HttpAction {
 						.letters(letters)
 						.sections(sections)
 						.obituary(obit)
-						.orderedSections(p.getOrderedSections())
-						.images(imageResolver)
+						.orderedSections(pending.getOrderedSections())
+						.images(pending.getImages())
 						.coverImage(coverImage)
 						.build().validate();
+			
+			Metrics.INSTANCE.timer("download.issue").recordSince(start);
+			if (journal.isPresent()) {
+				try {
+					journal.get().markComplete();
+				}
+				catch (IOException e) {
+					throw new HttpActionException("Can't record the completed download in the checkpoint journal : " + e.getMessage(), e);
+				}
+				log.info("Issue downloaded, " + journal.get().getStats());
+			}
+			pending.getIssue().complete(issue);
+		}
+		catch (Throwable e) {
+			failUnfinishedParts(pending, e);
+			pending.getIssue().completeExceptionally(e);
+		}
+		finally {
+			imageDownloader.close();
+			closeJournal(journal);
+		}
+	}
+	
+	/**
+	 * Fails every part of the given issue which hasn't yet arrived, so that
+	 * anything waiting on it, such as a writer, fails rather than waiting
+	 * forever.
+	 */
+	private static void failUnfinishedParts(PendingIssue pending, Throwable cause) {
+		pending.getPoliticsThisWeek().completeExceptionally(cause);
+		pending.getBusinessThisWeek().completeExceptionally(cause);
+		pending.getKalsCartoon().completeExceptionally(cause);
+		pending.getLetters().completeExceptionally(cause);
+		for (CompletableFuture<List<PlainArticle>> section : pending.getSections().values())
+			section.completeExceptionally(cause);
+		pending.getObituary().completeExceptionally(cause);
+	}
+
+	/**
+	 * Queues up every article in every section of the given print-edition to be
+	 * fetched and parsed by the given pipeline. As soon as an article is parsed,
+	 * downloads of its images are launched.
+	 * @param pipeline the pipeline used to fetch and parse articles
+	 * @param journal the checkpoint journal in which each parsed article is recorded, if any
+	 * @param p the print edition listing the articles in each section
+	 * @param referrer the URI of the referring page, i.e. the print edition index
+	 * @param imageDownloader used to download the images in each article
+	 * @return a map of section names to the pending articles in that section,
+	 * in the same order as they appear in the print edition, each of which
+	 * completes once all its articles and their images are downloaded.
+	 */
+	private Map<String, CompletableFuture<List<PlainArticle>>> submitAllSections(FetchParsePipeline pipeline, Optional<CheckpointJournal> journal, PrintEdition p, Optional<URI> referrer, ImageDownloader imageDownloader) {
+		Map<String, CompletableFuture<List<PlainArticle>>> pending = new LinkedHashMap<>(p.getSections().size());
+		for (String section : p.getOrderedSections()) {
+			List<URI> articleUris = p.getSections().get(section);
+			List<CompletableFuture<PlainArticle>> futures = new ArrayList<>(articleUris.size());
+			for (URI articleUri : articleUris) {
+				if (log.isDebugEnabled())
+					log.debug("Fetching article for section " + section + " from URI " + articleUri.toASCIIString());
+				
+				futures.add (submit(pipeline, journal, articleUri, referrer, new PlainArticleParser(parserBackend))
+						.thenCompose(a -> downloadAllImages(imageDownloader, a).thenApply(v -> a)));
+			}
+			pending.put(section, parsedArticlesOf(futures));
+		}
+		return pending;
+	}
+	
+	/**
+	 * A future which completes once all the given articles have been fetched
+	 * and parsed, with those articles, skipping those which could not be parsed,
+	 * or which completes exceptionally if an article could not be fetched.
+	 */
+	private static CompletableFuture<List<PlainArticle>> parsedArticlesOf(List<CompletableFuture<PlainArticle>> futures) {
+		return CompletableFuture.allOf(futures.stream().map(f -> f.handle((a, e) -> a)).toArray(CompletableFuture[]::new))
+			.thenApply(v -> {
+				List<PlainArticle> articles = new ArrayList<>(futures.size());
+				for (CompletableFuture<PlainArticle> future : futures) {
+					try {
+						articles.add(future.join());
+					}
+					catch (CompletionException ce) {
+						if (! (ce.getCause() instanceof HtmlParseException))
+							throw ce;
+						HtmlParseException hpe = (HtmlParseException) ce.getCause();
+						log.warn("Skipping unparseable article - " + hpe.getMessage(), hpe);
+					}
+				}
+				return articles;
+			});
+	}
+	
+	/**
+	 * Waits for all the articles in each section to be fetched and parsed, skipping
+	 * those which could not be parsed.
+	 * @param pending a map of section names to the pending articles in that section
+	 * @return a map of section names to the articles in that section
+	 */
+	private Map<String, List<PlainArticle>> collectAllSections(Map<String, CompletableFuture<List<PlainArticle>>> pending)
+	throws HttpActionException, HtmlParseException {
+		Map<String, List<PlainArticle>> sections = new HashMap<>(pending.size());
+		for (Map.Entry<String, CompletableFuture<List<PlainArticle>>> e : pending.entrySet()) {
+			log.debug("Loading articles in section " + e.getKey());
+			sections.put (e.getKey(), await(e.getValue()));
+		}
+		return sections;
+	}
+	
+	/**
+	 * Submits the given page to be fetched and parsed by the pipeline, and
+	 * records it in the checkpoint journal, if any, once it's parsed.
+	 */
+	private <T> CompletableFuture<T> submit(FetchParsePipeline pipeline, Optional<CheckpointJournal> journal, URI uri, Optional<URI> referrer, HtmlParser<T> parser) {
+		return pipeline.submit(uri, referrer, parser).thenApply(a -> {
+			markParsed(journal, uri);
+			return a;
+		});
+	}
+	
+	/**
+	 * Fetches the pages of a single download of the issue, using that
+	 * download's checkpoint journal, if any.
+	 */
+	private class PageFetcher extends HttpAction {
+		private final Optional<CheckpointJournal> journal;
+		
+		PageFetcher(Optional<CheckpointJournal> journal) {
+			super(Downloader.this.transport, Downloader.this.cache);
+			this.journal = journal;
+		}
+		
+		/**
+		 * Returns the HTML of the page at the given URL, from the checkpoint journal
+		 * if it's been fetched before, or else from the Economist's website, logging
+		 * in first if necessary.
+		 */
+		@Override
+		protected String makeHttpRequest(URI url, Optional<URI> referrerUrl) throws HttpActionException {
+			try {
+				if (journal.isPresent()) {
+					Optional<String> page = journal.get().getPage(url);
+					if (page.isPresent())
+						return page.get();
+				}
+				
+				ensureLoggedIn();
+				String page = super.makeHttpRequest(url, referrerUrl);
+				if (journal.isPresent())
+					journal.get().putPage(url, page);
+				return page;
+			}
+			catch (IOException e) {
+				throw new HttpActionException("Error accessing the checkpoint journal for the page at " + url + " : " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Logs in to the Economist, unless that's already been done. Threadsafe.
+	 */
+	private synchronized void ensureLoggedIn() throws HttpActionException {
+		if (loggedIn)
+			return;
+		
+		log.debug("Logging in to the Economist with username " + userEmail.value());
+		if (! new LoginAction (transport, userEmail, password).call())
+			throw new HttpActionException("Failed to log in to the " + userEmail.value() + " account with the given password");
+		loggedIn = true;
+	}
+	
+	/**
+	 * Records in the checkpoint journal, if any, that the page at the given
+	 * URI was parsed. A failure to do so is logged, but otherwise ignored, as
+	 * the page can always be downloaded again.
+	 */
+	private static void markParsed(Optional<CheckpointJournal> journal, URI uri) {
+		if (journal.isPresent()) {
+			try {
+				journal.get().markParsed(uri);
+			}
+			catch (IOException e) {
+				log.warn("Couldn't record the page at " + uri + " in the checkpoint journal : " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	private static void closeJournal(Optional<CheckpointJournal> journal) {
+		if (journal.isPresent()) {
+			try {
+				journal.get().close();
+			}
+			catch (IOException e) {
+				log.warn("Couldn't close the checkpoint journal : " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/**
+	 * Waits for the given article to be fetched and parsed, rethrowing any
+	 * exception that occurred in the process.
+	 */
+	private static <T> T await(CompletableFuture<T> future) throws HttpActionException, HtmlParseException {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof HtmlParseException)
+				throw (HtmlParseException) cause;
+			else if (cause instanceof HttpActionException)
+				throw (HttpActionException) cause;
+			else if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			else
+				throw new HttpActionException ("Unexpected error while fetching an article : " + cause.getMessage(), cause);
 		}
 		catch (InterruptedException ie) {
-			throw new HttpActionException ("Timed out, or was interrupted, while waiting for all images to download " + ie.getMessage(), ie);
+			throw new HttpActionException ("Interrupted while waiting for articles to download " + ie.getMessage(), ie);
 		}
 	}
 
@@ -164,33 +563,27 @@ public class Downloader extends HttpAction {
 	}
 
 
-	/**
-	 * Fetches a weekly news digest page and parses it into a {@link WeeklyDigestArticle}
-	 * @param uri the URI of the article being parsed.
-	 * @param referrer the  URI of the referrer
-	 */
-	private WeeklyDigestArticle fetchAndParseDigest (URI uri, Optional<URI> referrer)
-			throws HttpActionException, HtmlParseException {
-		return fetchAndParse(uri, referrer, new WeeklyDigestArticleParser());
-	}
-
 	/**
 	 * Fetches a webpage's HTML from the given URL, throwing a {@link HttpActionException}
 	 * if an error occurs during the process, and then attempts to parse it into the
 	 * appropriate object, throwing a {@link HtmlParseException} if it fails to parse.
+	 * @param http used to fetch the page
 	 * @param uri the URI of the article being parsed.
 	 * @param referrer the  URI of the referrer
 	 * @param parser the object required to parse the fetched HTML into an object
 	 * @return the parsed object corresponding to the given HTML
 	 */
-	private <T> T fetchAndParse (URI uri, Optional<URI> referrer, HtmlParser<T> parser)
+	private static <T> T fetchAndParse (HttpAction http, URI uri, Optional<URI> referrer, HtmlParser<T> parser)
 	throws HttpActionException, HtmlParseException {
 		try {
 			// download the page
-			final String contents = makeHttpRequest(uri, referrer);
+			final String contents = http.makeHttpRequest(uri, referrer);
 		
 			// parse it and return
-			return parser.parse(uri, contents);
+			long start = System.nanoTime();
+			T parsed = parser.parse(uri, contents);
+			Metrics.INSTANCE.timer("parse." + parser.getClass().getSimpleName()).recordSince(start);
+			return parsed;
 		}
 		catch (HtmlParseException e) {
 			throw new HtmlParseException ("HTML Parse error for URL " + uri.toASCIIString() + " : " + e.getMessage(), e);
@@ -200,32 +593,51 @@ public class Downloader extends HttpAction {
 	
 	/** 
 	 * Downloads the main article title image for all given articles,
-	 * if one exists
+	 * if one exists, returning a future which completes once every
+	 * download has finished, whether or not it succeeded
 	 */
-	public void downloadMainImage (ImageDownloader d, MainImageArticle... articles) {
+	public CompletableFuture<Void> downloadMainImage (ImageDownloader d, MainImageArticle... articles) {
+		List<CompletableFuture<Path>> downloads = new ArrayList<>(articles.length);
 		for (MainImageArticle article : articles)
 			if (article.getMainImage().isPresent())
-				d.launchDownload(article.getMainImage().get(), article.getArticleUri());
+				downloads.add(d.launchDownload(article.getMainImage().get(), article.getArticleUri()));
+		return whenAllFinished(downloads);
 	}
 	
 	/**
-	 * Downloads the inline images in the article content
+	 * Downloads the inline images in the article content, returning a
+	 * future which completes once every download has finished, whether
+	 * or not it succeeded
 	 */
-	public void downloadContentImages (ImageDownloader d, ContentBasedArticle... articles) {
+	public CompletableFuture<Void> downloadContentImages (ImageDownloader d, ContentBasedArticle... articles) {
+		List<CompletableFuture<Path>> downloads = new ArrayList<>();
 		for (ContentBasedArticle article : articles)
 			article.getBody().stream()
 					.filter(content -> content.getType() == Content.Type.IMAGE)
-					.forEach(content -> d.launchDownload((Image) content, article.getArticleUri()));
+					.forEach(content -> downloads.add(d.launchDownload((Image) content, article.getArticleUri())));
+		return whenAllFinished(downloads);
 	}
 	
 	/**
-	 * Downloads all the images in the given plain articles
+	 * Downloads all the images in the given plain articles, returning a
+	 * future which completes once every download has finished, whether
+	 * or not it succeeded
 	 */
-	public void downloadAllImages (ImageDownloader d, PlainArticle... articles) {
-		downloadMainImage (d, articles);
-		downloadContentImages (d, articles);
+	public CompletableFuture<Void> downloadAllImages (ImageDownloader d, PlainArticle... articles) {
+		return CompletableFuture.allOf(
+				downloadMainImage (d, articles),
+				downloadContentImages (d, articles));
 	}
-
+	
+	/**
+	 * A future which completes once all the given downloads have finished.
+	 * Failures are ignored, as they're reported once all images are
+	 * downloaded.
+	 */
+	private static CompletableFuture<Void> whenAllFinished(List<CompletableFuture<Path>> downloads) {
+		return CompletableFuture.allOf(downloads.stream().map(f -> f.handle((p, e) -> p)).toArray(CompletableFuture[]::new));
+	}
+	
 	/**
 	 * Converts a non null value to an Optional value.
 	 */
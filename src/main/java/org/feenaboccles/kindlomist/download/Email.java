@@ -26,7 +26,9 @@ public final class Email {
     }
 
     public Email validate() throws ValidationException {
-        Validator.INSTANCE.validate(this, "user-name");
+        Validator.INSTANCE.validate(this, "user-name", c -> c
+                .length("value", value, 3, 30)
+                .email("value", value));
         return this;
     }
 }
@@ -0,0 +1,328 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.HtmlParser;
+import org.feenaboccles.kindlomist.metrics.Metrics;
+
+/**
+ * A two-stage pipeline which downloads web-pages and parses them into objects.
+ * <p>
+ * The first stage is I/O bound: it has many threads, each of which downloads a
+ * page using the given {@link HttpAction}. The downloaded HTML is then handed on
+ * via a bounded queue to the second, CPU-bound, stage, which has roughly one
+ * thread per core and parses the HTML using the {@link HtmlParser} given when the
+ * page was submitted. If the parsers fall behind, the queue fills up and the
+ * download threads block until there's space, so we never hold more than a
+ * fixed number of unparsed pages in memory.
+ * <p>
+ * Pages are queued up by calling {@link #submit(URI, Optional, HtmlParser)}. Call
+ * {@link #close()} once all the returned futures have completed: any which
+ * haven't then fail with an {@link HttpActionException}. Threadsafe.
+ * <p>
+ * The time taken to parse each page is recorded in the {@link Metrics}
+ * <tt>parse.</tt><i>parser-class</i>.
+ */
+@Slf4j
+public class FetchParsePipeline implements AutoCloseable {
+
+	public final static int DEFAULT_PARSE_THREADS  = Runtime.getRuntime().availableProcessors();
+	public final static int DEFAULT_QUEUE_CAPACITY = 4 * DEFAULT_PARSE_THREADS;
+
+	private final HttpAction      http;
+	private final ExecutorService fetchers;
+	private final ExecutorService parsers;
+	private final BlockingQueue<ParseJob<?>> parseQueue;
+
+	private final StageStats fetchStats = new StageStats("fetch");
+	private final StageStats parseStats = new StageStats("parse");
+	private final long startTimeNanos   = System.nanoTime();
+	private volatile boolean closed     = false;
+
+	/**
+	 * Creates a new pipeline.
+	 * @param http the object used to make HTTP requests. Must be threadsafe
+	 * @param fetchThreads the number of pages which can be downloaded simultaneously
+	 * @param parseThreads the number of pages which can be parsed simultaneously
+	 * @param queueCapacity the maximum number of downloaded pages waiting to be parsed
+	 */
+	public FetchParsePipeline(HttpAction http, int fetchThreads, int parseThreads, int queueCapacity) {
+		if (fetchThreads < 1 || parseThreads < 1 || queueCapacity < 1)
+			throw new IllegalArgumentException("Thread counts and queue capacity must be positive: fetchThreads=" + fetchThreads + ", parseThreads=" + parseThreads + ", queueCapacity=" + queueCapacity);
+
+		this.http       = http;
+		this.parseQueue = new ArrayBlockingQueue<>(queueCapacity);
+		this.fetchers   = Executors.newFixedThreadPool(fetchThreads, namedThreads("article-fetch-"));
+		this.parsers    = Executors.newFixedThreadPool(parseThreads, namedThreads("article-parse-"));
+		for (int i = 0; i < parseThreads; i++)
+			parsers.submit(this::parseLoop);
+	}
+
+	/**
+	 * Creates a new pipeline with one parse thread per core
+	 * @param http the object used to make HTTP requests. Must be threadsafe
+	 * @param fetchThreads the number of pages which can be downloaded simultaneously
+	 */
+	public FetchParsePipeline(HttpAction http, int fetchThreads) {
+		this(http, fetchThreads, DEFAULT_PARSE_THREADS, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Queues up the page at the given URI to be downloaded and then parsed by
+	 * the given parser.
+	 * @param uri the URI of the page to download
+	 * @param referrer the URI of the referring page, if any
+	 * @param parser the parser used to convert the downloaded HTML into an object
+	 * @return a future which will yield the parsed object, or fail with either
+	 * a {@link HttpActionException} or a {@link HtmlParseException}, or with
+	 * whatever unexpected exception or error was thrown while downloading or
+	 * parsing the page
+	 */
+	public <T> CompletableFuture<T> submit(URI uri, Optional<URI> referrer, HtmlParser<T> parser) {
+		ParseJob<T> job = new ParseJob<>(uri, referrer, parser, new CompletableFuture<>());
+		fetchStats.submitted.incrementAndGet();
+		try {
+			fetchers.execute(new FetchTask(job));
+		}
+		catch (RejectedExecutionException e) {
+			abandon(job, fetchStats);
+		}
+		return job.result;
+	}
+
+	/**
+	 * The first stage: download the page and then pass it on to the parsers,
+	 * blocking if they've fallen too far behind.
+	 */
+	private <T> void fetch(ParseJob<T> job) {
+		long start = System.nanoTime();
+		try {
+			job.html = http.makeHttpRequest(job.uri, job.referrer);
+			fetchStats.completed(start);
+
+			parseStats.submitted.incrementAndGet();
+			parseQueue.put(job);
+
+			// If we were closed while queueing the page, it may have been
+			// queued after the queue was drained, so drain it again
+			if (closed)
+				abandonQueuedJobs();
+		}
+		catch (HttpActionException e) {
+			fetchStats.failed(start);
+			job.result.completeExceptionally(e);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			parseStats.failed(System.nanoTime());
+			job.result.completeExceptionally(new HttpActionException("Interrupted while queueing the page at " + job.uri + " for parsing", e));
+		}
+		catch (Throwable e) {
+			fetchStats.failed(start);
+			job.result.completeExceptionally(e);
+			rethrowIfFatal(e);
+		}
+	}
+
+	/**
+	 * The second stage, run by each parse thread: take pages off the queue,
+	 * and parse them, until this pipeline is closed.
+	 */
+	private void parseLoop() {
+		try {
+			while (! Thread.currentThread().isInterrupted())
+				parse(parseQueue.take());
+		}
+		catch (InterruptedException e) {
+			// the pipeline has been closed.
+		}
+	}
+
+	private <T> void parse(ParseJob<T> job) {
+		long start = System.nanoTime();
+		try {
+			T parsed = job.parser.parse(job.uri, job.html);
+			parseStats.completed(start);
+			Metrics.INSTANCE.timer("parse." + job.parser.getClass().getSimpleName()).recordSince(start);
+			job.result.complete(parsed);
+		}
+		catch (HtmlParseException e) {
+			parseStats.failed(start);
+			job.result.completeExceptionally(new HtmlParseException("HTML Parse error for URL " + job.uri.toASCIIString() + " : " + e.getMessage(), e));
+		}
+		catch (Throwable e) {
+			// e.g. a StackOverflowError on deeply nested HTML: this page has
+			// failed, but the thread can carry on parsing other pages
+			parseStats.failed(start);
+			job.result.completeExceptionally(e);
+			rethrowIfFatal(e);
+		}
+		finally {
+			job.html = null;
+		}
+	}
+
+	/**
+	 * The number of downloaded pages waiting to be parsed
+	 */
+	public int getParseQueueDepth() {
+		return parseQueue.size();
+	}
+
+	/**
+	 * A human-readable summary of the queue depth and throughput of each stage
+	 */
+	public String getStats() {
+		double elapsedSecs = (System.nanoTime() - startTimeNanos) / 1E9;
+		return fetchStats.summary(elapsedSecs, fetchStats.pending()) + "; "
+			 + parseStats.summary(elapsedSecs, getParseQueueDepth());
+	}
+
+	/**
+	 * Stops all the threads in this pipeline. Any pages not yet downloaded
+	 * or parsed are abandoned, their futures failing with an
+	 * {@link HttpActionException}. Pages being downloaded or parsed at the
+	 * time are finished.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		for (Runnable task : fetchers.shutdownNow())
+			if (task instanceof FetchTask)
+				abandon(((FetchTask) task).job, fetchStats);
+		parsers.shutdownNow();
+		abandonQueuedJobs();
+		log.info("Article pipeline finished: " + getStats());
+	}
+
+	/**
+	 * Fails every page waiting to be parsed
+	 */
+	private void abandonQueuedJobs() {
+		List<ParseJob<?>> unparsed = new ArrayList<>();
+		parseQueue.drainTo(unparsed);
+		for (ParseJob<?> job : unparsed)
+			abandon(job, parseStats);
+	}
+
+	/**
+	 * Fails the given page, recording the failure against the stage it was
+	 * waiting for
+	 */
+	private void abandon(ParseJob<?> job, StageStats stage) {
+		stage.failed(System.nanoTime());
+		job.result.completeExceptionally(new HttpActionException("The article pipeline was closed before the page at " + job.uri + " could be downloaded and parsed"));
+	}
+
+	/**
+	 * Rethrows errors from which the JVM can't be expected to recover, such
+	 * as running out of memory. Any other problem affects only the page
+	 * being downloaded or parsed.
+	 */
+	private static void rethrowIfFatal(Throwable e) {
+		if (e instanceof VirtualMachineError && ! (e instanceof StackOverflowError))
+			throw (VirtualMachineError) e;
+		if (e instanceof ThreadDeath)
+			throw (ThreadDeath) e;
+		if (e instanceof LinkageError)
+			throw (LinkageError) e;
+	}
+
+	private static ThreadFactory namedThreads(String prefix) {
+		AtomicInteger count = new AtomicInteger(0);
+		return r -> {
+			Thread t = new Thread(r, prefix + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Downloads a page, queued up on the fetch threads. A class of its own
+	 * so that its page can be failed if the pipeline's closed before it runs.
+	 */
+	private final class FetchTask implements Runnable {
+		final ParseJob<?> job;
+
+		FetchTask(ParseJob<?> job) {
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			fetch(job);
+		}
+	}
+
+	/**
+	 * A page making its way through the pipeline
+	 */
+	private final static class ParseJob<T> {
+		final URI uri;
+		final Optional<URI> referrer;
+		final HtmlParser<T> parser;
+		final CompletableFuture<T> result;
+		String html;
+
+		ParseJob(URI uri, Optional<URI> referrer, HtmlParser<T> parser, CompletableFuture<T> result) {
+			this.uri      = uri;
+			this.referrer = referrer;
+			this.parser   = parser;
+			this.result   = result;
+		}
+	}
+
+	/**
+	 * Counts of the work done by a single stage
+	 */
+	private final static class StageStats {
+		final String name;
+		final AtomicLong submitted = new AtomicLong();
+		final AtomicLong succeeded = new AtomicLong();
+		final AtomicLong failures  = new AtomicLong();
+		final AtomicLong busyNanos = new AtomicLong();
+
+		StageStats(String name) {
+			this.name = name;
+		}
+
+		void completed(long startNanos) {
+			busyNanos.addAndGet(System.nanoTime() - startNanos);
+			succeeded.incrementAndGet();
+		}
+
+		void failed(long startNanos) {
+			busyNanos.addAndGet(System.nanoTime() - startNanos);
+			failures.incrementAndGet();
+		}
+
+		long pending() {
+			return submitted.get() - succeeded.get() - failures.get();
+		}
+
+		String summary(double elapsedSecs, long queueDepth) {
+			long done = succeeded.get() + failures.get();
+			return String.format("%s: %d done (%d failed), %d queued, %.1f pages/s, %.1fms mean",
+					name, done, failures.get(), queueDepth,
+					elapsedSecs > 0 ? done / elapsedSecs : 0.0,
+					done > 0 ? busyNanos.get() / 1E6 / done : 0.0);
+		}
+	}
+}
@@ -1,12 +1,25 @@
 package org.feenaboccles.kindlomist.download;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Optional;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Consts;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
@@ -16,17 +29,34 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
+import org.feenaboccles.kindlomist.metrics.CountingInputStream;
+import org.feenaboccles.kindlomist.metrics.Metrics;
 
 /**
  * Performs some HTTP action using {@link #makeHttpRequest(URI, Optional)},
  * {@link #makeBinaryHttpRequest(URI, Optional)} and their overloaded variants.
  * the response a string.
+ * <p>
+ * If a {@link ResponseCache} is provided, GET requests made via the string and
+ * binary convenience methods are read through it: fresh entries are returned
+ * without contacting the server, and stale ones are revalidated with a
+ * conditional GET.
+ * <p>
+ * The latency of every request, and the bytes of every response body read,
+ * are recorded in the {@link Metrics} <tt>http.latency.</tt><i>host</i>
+ * and <tt>http.bytes.</tt><i>host</i>.
  */
 public abstract class HttpAction
 {
-	private static final int HTTP_200_OK = 200;
+	private static final int HTTP_200_OK           = 200;
+	private static final int HTTP_304_NOT_MODIFIED = 304;
+	
+	private static final int BUFFER_SIZE         = 8192;
+	private static final int TRANSFER_CHUNK_SIZE = 64 * 1024;
 
 	public enum Method {
 		GET, POST
@@ -34,12 +64,23 @@ public abstract class HttpAction
 	
 	
 	
-	protected final HttpClient client;
+	protected final HttpTransport transport;
 	protected final RequestConfig reqConfig;
+	protected final Optional<ResponseCache> cache;
 	
 	public HttpAction (HttpClient client) {	
-		this.client = client;
-		this.reqConfig = RequestConfig.copy(RequestConfig.DEFAULT)
+		this(HttpTransport.of(client), Optional.empty());
+	}
+	
+	public HttpAction (HttpTransport transport) {	
+		this(transport, Optional.empty());
+	}
+	
+	public HttpAction (HttpTransport transport, Optional<ResponseCache> cache) {	
+		this.transport = transport;
+		this.cache     = cache;
+		// Keep the transport's timeouts, which would otherwise be replaced
+		this.reqConfig = RequestConfig.copy(transport.getDefaultRequestConfig())
 				.setCookieSpec(CookieSpecs.BROWSER_COMPATIBILITY)
 				.setRedirectsEnabled(true)
 				.setRelativeRedirectsAllowed(true)
@@ -61,10 +102,13 @@ public abstract class HttpAction
 	 * and return the given response body. The name comes from the fact
 	 * that by using a string for the referrer URL parameter there's
 	 * no guarantee that it actuall contains a valid URL.
+	 * <p>
+	 * The body is decoded as it's read from the network (or cache), so
+	 * the only copy held in memory is the returned string.
 	 */
 	protected String makeHttpRequestWithUnvalidatedRef(URI url, Optional<String> referrerUrl) throws HttpActionException {
 		try {
-			return EntityUtils.toString (makeHttpRequest (Method.GET, url, referrerUrl));
+			return makeStreamingHttpRequest(url, referrerUrl, HttpAction::decode);
 		}
 		catch (IOException e) {
 			throw new HttpActionException ("Can't convert web-content to a string : " + e.getMessage(), e);
@@ -88,13 +132,111 @@ public abstract class HttpAction
 	 */
 	protected byte[] makeBinaryHttpRequestWithUnvalidatedRef(URI url, Optional<String> referrerUrl) throws HttpActionException {
 		try {
-			return EntityUtils.toByteArray(makeHttpRequest (Method.GET, url, referrerUrl));
+			return makeStreamingHttpRequest(url, referrerUrl, (body, type, length) -> {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(length > 0 ? (int) length : BUFFER_SIZE);
+				byte[] buf = new byte[BUFFER_SIZE];
+				int amt;
+				while ((amt = body.read(buf)) >= 0)
+					bytes.write(buf, 0, amt);
+				return bytes.toByteArray();
+			});
 		}
 		catch (IOException e) {
 			throw new HttpActionException ("Can't convert web-content to a byte-array : " + e.getMessage(), e);
 		}
 	}
 	
+	/**
+	 * Convenience method to create and execute a HTTP request, and write
+	 * the response body directly to a new file at the given path, without
+	 * ever holding the whole body in memory.
+	 * @param url the URL to download
+	 * @param referrerUrl the URL of the referring page, if any
+	 * @param target the file to create. This must not already exist, and is
+	 * deleted again if the body can't be downloaded in full.
+	 * @return the number of bytes written.
+	 */
+	protected long makeHttpRequestToFile(URI url, Optional<URI> referrerUrl, Path target) throws HttpActionException {
+		try {
+			return makeStreamingHttpRequest(url, referrerUrl.map(URI::toASCIIString), (body, type, length) -> {
+				// opened outside the try, so an existing file is never deleted
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				try {
+					try (FileChannel file = out) {
+						ReadableByteChannel in = Channels.newChannel(body);
+						long position = 0, amt;
+						while ((amt = file.transferFrom(in, position, TRANSFER_CHUNK_SIZE)) > 0)
+							position += amt;
+						if (length >= 0 && position != length)
+							throw new IOException("Only " + position + " of the " + length + " bytes of the response were received");
+						return position;
+					}
+				}
+				catch (IOException | RuntimeException e) {
+					Files.deleteIfExists(target);
+					throw e;
+				}
+			});
+		}
+		catch (IOException e) {
+			throw new HttpActionException ("Can't write web-content to the file " + target + " : " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Something which reads the body of a HTTP response as a stream.
+	 */
+	@FunctionalInterface
+	protected interface BodyReader<T> {
+		/**
+		 * Reads the given response body
+		 * @param body the response body. This is closed by the caller.
+		 * @param contentType the response's content type, if known
+		 * @param contentLength the response's length, or a negative value if unknown
+		 */
+		T read (InputStream body, Optional<ContentType> contentType, long contentLength) throws IOException;
+	}
+	
+	/**
+	 * Creates and executes a HTTP GET request, passing the response body as a
+	 * stream to the given reader. If this has a {@link ResponseCache} the
+	 * body is streamed into the cache, and then the cached copy is streamed
+	 * to the reader. 
+	 */
+	protected <T> T makeStreamingHttpRequest(URI url, Optional<String> referrerUrl, BodyReader<T> reader) throws HttpActionException, IOException {
+		if (cache.isPresent()) {
+			ResponseCache.Entry entry = makeCachedHttpRequest(cache.get(), url, referrerUrl);
+			try (InputStream body = cache.get().openBody(entry)) {
+				return reader.read(body, entry.getContentType().map(ContentType::parse), -1);
+			}
+		}
+		
+		HttpEntity entity = makeHttpRequest (Method.GET, url, referrerUrl);
+		try (InputStream body = countingBytes(url, entity.getContent())) {
+			return reader.read(body, Optional.ofNullable(ContentType.get(entity)), entity.getContentLength());
+		}
+		finally {
+			EntityUtils.consumeQuietly(entity);
+		}
+	}
+	
+	/**
+	 * Decodes the given response body into a string, using the charset
+	 * specified in its content-type, or the HTTP default (ISO-8859-1) if
+	 * none was specified.
+	 */
+	private static String decode(InputStream body, Optional<ContentType> contentType, long contentLength) throws IOException {
+		Charset charset = contentType.map(ContentType::getCharset).orElse(null);
+		Reader rdr = new InputStreamReader(body, charset == null ? HTTP.DEF_CONTENT_CHARSET : charset);
+		
+		StringBuilder text = new StringBuilder(contentLength > 0 ? (int) contentLength : BUFFER_SIZE);
+		char[] buf = new char[BUFFER_SIZE];
+		int amt;
+		while ((amt = rdr.read(buf)) >= 0)
+			text.append(buf, 0, amt);
+		return text.toString();
+	}
+	
 	
 	
 	/**
@@ -102,29 +244,111 @@ public abstract class HttpAction
 	 * and return the given response body.
 	 */
 	protected HttpEntity makeHttpRequest(Method method, URI url, Optional<String> referrerUrl, NameValuePair... params) throws HttpActionException {
+		HttpResponse resp = executeHttpRequest(method, url, referrerUrl, new Header[0], params);
+		
+		int respStatusCode = resp.getStatusLine().getStatusCode();
+		if (respStatusCode != HTTP_200_OK) {
+			EntityUtils.consumeQuietly(resp.getEntity());
+			throw new HttpActionException ("Failed to download page " + url + ", received HTTP response code " + respStatusCode);
+		}
+		
+		return resp.getEntity();
+	}
+	
+	/**
+	 * Executes a GET request via the given cache. If there's a fresh
+	 * entry in the cache, it's returned immediately. If there's a stale
+	 * entry it's revalidated with a conditional GET, and only re-downloaded
+	 * if it's changed. Otherwise the response is downloaded and stored
+	 * in the cache.
+	 * @return the cache entry holding the response.
+	 */
+	private ResponseCache.Entry makeCachedHttpRequest(ResponseCache cache, URI url, Optional<String> referrerUrl) throws HttpActionException, IOException {
+		Optional<ResponseCache.Entry> cached = cache.lookup(url);
+		if (cached.isPresent() && cache.isFresh(cached.get())) {
+			cache.recordHit();
+			return cached.get();
+		}
+		
+		Header[] conditions = cached.isPresent()
+			? conditionalHeaders(cached.get())
+			: new Header[0];
+		HttpResponse resp = executeHttpRequest(Method.GET, url, referrerUrl, conditions);
+		
+		int respStatusCode = resp.getStatusLine().getStatusCode();
+		if (respStatusCode == HTTP_304_NOT_MODIFIED && cached.isPresent()) {
+			EntityUtils.consumeQuietly(resp.getEntity());
+			cache.recordRevalidated();
+			return cache.touch(cached.get());
+		}
+		if (respStatusCode != HTTP_200_OK) {
+			EntityUtils.consumeQuietly(resp.getEntity());
+			throw new HttpActionException ("Failed to download page " + url + ", received HTTP response code " + respStatusCode);
+		}
+		
+		cache.recordMiss();
+		HttpEntity entity = resp.getEntity();
+		if (entity == null)
+			return cache.store(url, Optional.empty(), Optional.empty(), Optional.empty(), new ByteArrayInputStream(new byte[0]));
+		try {
+			return cache.store(url,
+					Optional.ofNullable(entity.getContentType()).map(Header::getValue),
+					Optional.ofNullable(resp.getFirstHeader("ETag")).map(Header::getValue),
+					Optional.ofNullable(resp.getFirstHeader("Last-Modified")).map(Header::getValue),
+					countingBytes(url, entity.getContent()));
+		}
+		finally {
+			EntityUtils.consumeQuietly(entity);
+		}
+	}
+	
+	/**
+	 * The headers required to make a GET request conditional on the given
+	 * cache entry having changed.
+	 */
+	private static Header[] conditionalHeaders(ResponseCache.Entry entry) {
+		return new Header[] {
+			entry.getETag().map(e -> new BasicHeader("If-None-Match", e)).orElse(null),
+			entry.getLastModified().map(m -> new BasicHeader("If-Modified-Since", m)).orElse(null)
+		};
+	}
+	
+	/**
+	 * Creates and executes a HTTP request, returning the response whatever
+	 * its status code
+	 */
+	private HttpResponse executeHttpRequest(Method method, URI url, Optional<String> referrerUrl, Header[] extraHeaders, NameValuePair... params) throws HttpActionException {
 		final RequestBuilder reqBldr = defaultRequestBuilder(method, url);
 	    
 	    referrerUrl.ifPresent(r -> reqBldr.addHeader(new BasicHeader("Referer", r)));
+	    for (Header header : extraHeaders)
+	    	if (header != null)
+	    		reqBldr.addHeader(header);
 	    if (params.length > 0) {
 	    	if (method != Method.POST)
 	    		throw new IllegalArgumentException("Can only specify name-value pairs for POST actions.");
 	    	reqBldr.setEntity(new UrlEncodedFormEntity(Arrays.asList(params), Consts.UTF_8));
 	    }
 	    
+	    long start = System.nanoTime();
 	    try  {
 	    	HttpUriRequest req  = reqBldr.build();
-		    HttpResponse   resp = client.execute(req);
-		    
-		    int respStatusCode = resp.getStatusLine().getStatusCode();
-		    if (respStatusCode != HTTP_200_OK)
-		      throw new HttpActionException ("Failed to download page " + url + ", received HTTP response code " + respStatusCode);
-		            
-		    return resp.getEntity();
+		    return transport.execute(req);
 	    }
 	    catch (IOException ioe) {
 	    	throw new HttpActionException ("Couldn't access resource on the web at " + url + " : " + ioe.getMessage(), ioe);
 	    }
-	  }
+	    finally {
+	    	Metrics.INSTANCE.timer("http.latency." + url.getHost()).recordSince(start);
+	    }
+	}
+
+	/**
+	 * Wraps the given response body so the bytes read from it are counted
+	 */
+	private static InputStream countingBytes(URI url, InputStream body) {
+		return new CountingInputStream(body, Metrics.INSTANCE.counter("http.bytes." + url.getHost()));
+	}
 
 	/**
 	 * Creates a request builder which will build a request designed to maximally
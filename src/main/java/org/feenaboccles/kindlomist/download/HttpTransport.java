@@ -0,0 +1,65 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * The means by which a {@link HttpAction} sends requests and receives responses.
+ * Implementations must be threadsafe, and must maintain cookies across requests,
+ * so that we remain logged in after a {@link LoginAction}.
+ * @see PooledHttpTransport
+ * @see AsyncHttpTransport
+ */
+public interface HttpTransport extends Closeable {
+
+	/**
+	 * Executes the given request, returning the response. The caller must
+	 * consume the response entity so that the underlying connection can be
+	 * re-used.
+	 */
+	HttpResponse execute(HttpUriRequest request) throws IOException;
+
+	/**
+	 * Statistics about the requests executed and connections opened so far.
+	 */
+	TransportStats getStats();
+
+	/**
+	 * The configuration, such as timeouts, with which requests are executed
+	 * by default. A request's own configuration replaces this entirely, so
+	 * should be built from a copy of it.
+	 */
+	default RequestConfig getDefaultRequestConfig() {
+		return RequestConfig.DEFAULT;
+	}
+
+	/**
+	 * Wraps an existing {@link HttpClient} in a transport. This transport
+	 * cannot tell when connections are opened, and closing it does nothing,
+	 * the caller remains responsible for the client.
+	 */
+	static HttpTransport of(HttpClient client) {
+		AtomicLong requests = new AtomicLong();
+		return new HttpTransport() {
+			@Override
+			public HttpResponse execute(HttpUriRequest request) throws IOException {
+				requests.incrementAndGet();
+				return client.execute(request);
+			}
+
+			@Override
+			public TransportStats getStats() {
+				return new TransportStats(requests.get(), -1, -1, -1, -1);
+			}
+
+			@Override
+			public void close() { }
+		};
+	}
+}
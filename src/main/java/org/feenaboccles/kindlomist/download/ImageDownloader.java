@@ -4,133 +4,355 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import org.apache.http.client.HttpClient;
 import org.feenaboccles.kindlomist.articles.ImageResolver;
 import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.metrics.Metrics;
 
 /**
  * Downloads images and writes stores them in the given {@link ImageResolver}.
  * Requests are queued up by calling {@link #launchDownload(Image, URI)} or
- * {@link #launchDownload(URI, URI)}. Once all downloads have been "launched"
- * (in reality queued up), call {@link #waitForAllDownloadsToComplete(long, TimeUnit)}
+ * {@link #launchDownload(URI, URI)}, each of which returns a future for the
+ * downloaded file. Once all downloads have been "launched" (in reality queued
+ * up), call {@link #waitForAllDownloadsToComplete(long, TimeUnit)}, or use
+ * {@link #allDownloads()} to be notified when they finish, or as soon as one
+ * fails.
+ * <p>
+ * Waiting for downloads to complete does not shut down the download threads,
+ * so the same thread-pool may be used for several issues by sharing the
+ * executor between several downloaders. Call {@link #close()} to release
+ * the thread-pool once it's no longer needed.
  */
 @Slf4j
-public class ImageDownloader {
+public class ImageDownloader implements AutoCloseable {
+
+	/** The state of an individual image download */
+	public enum Status { PENDING, DOWNLOADED, FAILED }
+
+	/** An image which could not be downloaded, and the reason why */
+	@Value
+	public static class Failure {
+		/** The address of the image, which may not be a valid URI */
+		String    image;
+		Throwable cause;
+	}
+
+	/** A download that has been launched, and its eventual result */
+	@Value
+	private static class Download {
+		URI imageUri;
+		CompletableFuture<Path> result;
+	}
 
 	private final ImageResolver   resolver;
-	private final HttpClient      client;
+	private final HttpTransport   transport;
+	private final Optional<ResponseCache> cache;
 	private final ExecutorService executor;
-	private final List<FutureTask<Path>> jobs = new LinkedList<>();
-	
-	
+	private final boolean         ownsExecutor;
+	private final Optional<ImageTranscoder> transcoder;
+	private final Optional<CheckpointJournal> journal;
+	private final AtomicLong      bytesSaved = new AtomicLong();
+	private final Queue<Download> downloads = new ConcurrentLinkedQueue<>();
+	private final Queue<Failure>  failures  = new ConcurrentLinkedQueue<>();
+	private final CompletableFuture<Failure> firstFailure = new CompletableFuture<>();
+
+
 	/**
 	 * Creates a new {@link ImageDownloader}. The given {@link HttpClient} must
 	 * support multi-threading
 	 */
 	public ImageDownloader(HttpClient client, ImageResolver resolver, int numSimultaneousDownloads) {
+		this(HttpTransport.of(client), Optional.empty(), resolver, numSimultaneousDownloads);
+	}
+
+	/**
+	 * Creates a new {@link ImageDownloader} which reads images through the
+	 * given cache, if present, with its own pool of download threads.
+	 */
+	public ImageDownloader(HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, int numSimultaneousDownloads) {
+		this(transport, cache, resolver, newExecutor(numSimultaneousDownloads), true, Optional.empty(), Optional.empty());
+	}
+
+	/**
+	 * Creates a new {@link ImageDownloader} which reads images through the
+	 * given cache, if present, with its own pool of download threads. Each
+	 * image is transcoded by the given transcoder, if present, on the download
+	 * thread immediately after it's downloaded.
+	 */
+	public ImageDownloader(HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, int numSimultaneousDownloads, Optional<ImageTranscoder> transcoder) {
+		this(transport, cache, resolver, newExecutor(numSimultaneousDownloads), true, transcoder, Optional.empty());
+	}
+
+	/**
+	 * Creates a new {@link ImageDownloader} as above, which records each image
+	 * it stores in the given journal, if present. Images already recorded in
+	 * the journal are not downloaded again.
+	 */
+	public ImageDownloader(HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, int numSimultaneousDownloads, Optional<ImageTranscoder> transcoder, Optional<CheckpointJournal> journal) {
+		this(transport, cache, resolver, newExecutor(numSimultaneousDownloads), true, transcoder, journal);
+	}
+
+	/**
+	 * Creates a new {@link ImageDownloader} which downloads images using the
+	 * given executor, which is <em>not</em> shut down when this downloader
+	 * is closed.
+	 * @see #newExecutor(int)
+	 */
+	public ImageDownloader(HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, ExecutorService executor) {
+		this(transport, cache, resolver, executor, false, Optional.empty(), Optional.empty());
+	}
+
+	private ImageDownloader(HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, ExecutorService executor, boolean ownsExecutor, Optional<ImageTranscoder> transcoder, Optional<CheckpointJournal> journal) {
 		super();
-		this.client   = client;
-		this.resolver = resolver;
-		this.executor = Executors.newFixedThreadPool(numSimultaneousDownloads);
+		this.transport = transport;
+		this.cache     = cache;
+		this.resolver  = resolver;
+		this.executor  = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.transcoder   = transcoder;
+		this.journal      = journal;
+	}
+
+	/**
+	 * Creates a pool of daemon threads suitable for downloading images, which
+	 * may be shared by several {@link ImageDownloader} instances.
+	 */
+	public static ExecutorService newExecutor(int numSimultaneousDownloads) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(numSimultaneousDownloads, r -> {
+			Thread t = new Thread(r, "image-download-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
-	public void launchDownload(@NonNull Image image) {
-		executor.submit(new DownloadTask(image, null, client, resolver));
+	/**
+	 * Downloads the given image, unless it's already being downloaded, in which
+	 * case the returned future shares the result of that download.
+	 */
+	public CompletableFuture<Path> launchDownload(@NonNull Image image) {
+		return launchDownload(image, null);
 	}
 
-	public void launchDownload(@NonNull Image image, @NonNull URI articleUri) {
-		executor.submit(new DownloadTask(image, articleUri, client, resolver));
+	public CompletableFuture<Path> launchDownload(@NonNull Image image, URI articleUri) {
+		try {
+			URI imageUri = new URI(image.getContent());
+			return launch(imageUri, articleUri, path -> resolver.putImage(image, path));
+		}
+		catch (URISyntaxException e) {
+			HttpActionException err = new HttpActionException ("The URI associated with the image content - " + image.getContent() + " - does not define a valid URI : " + e.getMessage(), e);
+			CompletableFuture<Path> result = new CompletableFuture<>();
+			result.completeExceptionally(err);
+			recordFailure(image.getContent(), err);
+			return result;
+		}
 	}
 
-	public void launchDownload(@NonNull URI image, @NonNull URI articleUri) {
-		executor.submit(new DownloadTask(image, articleUri, client, resolver));
+	public CompletableFuture<Path> launchDownload(@NonNull URI image, @NonNull URI articleUri) {
+		return launch(image, articleUri, path -> resolver.putImage(image, path));
 	}
-	
+
 	/**
-	 * Waits for all downloads to finish. No more jobs can be submitted once
-	 * this is called.
+	 * Launches a download of the given image, unless it's already been launched,
+	 * in which case the existing download is shared. Either way, once
+	 * the image is on disk it's registered with the resolver.
 	 */
-	public void waitForAllDownloadsToComplete(long timeout, TimeUnit units) throws InterruptedException {
-		executor.shutdown();
-		executor.awaitTermination(timeout, units);
-		
-		// Check if there were any errors
-		for (FutureTask<Path> pathTask : jobs) {
-			try {
-				pathTask.get();
-			} catch (ExecutionException e) {
-				log.error (e.getCause().getMessage(), e);
-			}
+	private CompletableFuture<Path> launch(URI imageUri, URI articleUri, Consumer<Path> register) {
+		Optional<Path> stored = journal.flatMap(j -> j.getImage(imageUri));
+		if (stored.isPresent()) {
+			register.accept(stored.get());
+			CompletableFuture<Path> result = CompletableFuture.completedFuture(stored.get());
+			downloads.add(new Download(imageUri, result));
+			return result;
+		}
+
+		CompletableFuture<Path> download = resolver.singleFlight(imageUri, () ->
+			CompletableFuture.supplyAsync(new DownloadTask(imageUri, articleUri, transport, cache, resolver, transcoder, journal, bytesSaved), executor)
+				.whenComplete((path, err) -> {
+					if (err != null)
+						recordFailure(imageUri.toASCIIString(), unwrap(err));
+				}));
+
+		CompletableFuture<Path> result = download.thenApply(path -> {
+			register.accept(path);
+			return path;
+		});
+		downloads.add(new Download(imageUri, result));
+		return result;
+	}
+
+	private void recordFailure(String image, Throwable cause) {
+		Failure failure = new Failure(image, cause);
+		failures.add(failure);
+		firstFailure.complete(failure);
+	}
+
+	/**
+	 * A future which completes once every download launched so far has finished,
+	 * or completes exceptionally as soon as the first of them fails.
+	 */
+	public CompletableFuture<Void> allDownloads() {
+		CompletableFuture<Void> all = CompletableFuture.allOf(
+				downloads.stream().map(Download::getResult).toArray(CompletableFuture[]::new));
+		return CompletableFuture.anyOf(all, firstFailure.thenCompose(f -> {
+				CompletableFuture<Void> failed = new CompletableFuture<>();
+				failed.completeExceptionally(f.getCause());
+				return failed;
+			}))
+			.thenApply(v -> (Void) null);
+	}
+
+	/**
+	 * The status of every download launched so far, in the order in which they
+	 * were launched.
+	 */
+	public Map<URI, Status> getStatus() {
+		Map<URI, Status> result = new LinkedHashMap<>();
+		for (Download download : downloads) {
+			CompletableFuture<Path> f = download.getResult();
+			result.put(download.getImageUri(),
+				! f.isDone()                   ? Status.PENDING
+				: f.isCompletedExceptionally() ? Status.FAILED
+				: Status.DOWNLOADED);
 		}
+		return result;
 	}
-	
-	
+
+	/**
+	 * The downloads which have failed so far, in the order in which they failed.
+	 */
+	public List<Failure> getFailures() {
+		return new ArrayList<>(failures);
+	}
+
+	/**
+	 * The total number of bytes by which downloaded images have been shrunk by
+	 * transcoding. Always zero if there's no transcoder.
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+	/**
+	 * Waits for all downloads launched so far to finish, logging any failures,
+	 * and returning the list of images that could not be downloaded. Further
+	 * downloads may be launched after this returns.
+	 * @throws InterruptedException if interrupted, or if the timeout elapsed
+	 * before all downloads had finished.
+	 */
+	public List<Failure> waitForAllDownloadsToComplete(long timeout, TimeUnit units) throws InterruptedException {
+		CompletableFuture<Void> all = CompletableFuture.allOf(
+				downloads.stream().map(d -> d.getResult().handle((p, e) -> p)).toArray(CompletableFuture[]::new));
+		try {
+			all.get(timeout, units);
+		}
+		catch (TimeoutException e) {
+			long pending = getStatus().values().stream().filter(s -> s == Status.PENDING).count();
+			throw new InterruptedException ("Timed out after " + timeout + " " + units.name().toLowerCase() + " with " + pending + " images still to download");
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException ("Download barrier failed unexpectedly : " + e.getCause().getMessage(), e.getCause());
+		}
+
+		// Check if there were any errors
+		List<Failure> result = getFailures();
+		for (Failure failure : result)
+			log.error ("Failed to download image " + failure.getImage() + " : " + failure.getCause().getMessage(), failure.getCause());
+		return result;
+	}
+
+	/**
+	 * Stops the download threads, if they're owned by this downloader. Pending
+	 * downloads are abandoned.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor)
+			executor.shutdownNow();
+	}
+
+	private static Throwable unwrap(Throwable err) {
+		return err instanceof CompletionException && err.getCause() != null
+			? err.getCause()
+			: err;
+	}
+
 	// ------------------------------------------------------------------------
-	
+
 	@Slf4j
 	private final static class DownloadTask
-	extends HttpAction implements Callable<Path>{
-		Image image;
-		URI uri;
+	extends HttpAction implements Supplier<Path> {
+		URI imageUri;
 		URI articleUri;
 		ImageResolver resolver;
-		
-		public DownloadTask(URI uri, URI articleUri, HttpClient client, ImageResolver resolver) {
-			super(client);
-			this.image      = null;
-			this.uri        = uri;
-			this.articleUri = articleUri;
-			this.resolver   = resolver;
-		}
-		
-		public DownloadTask(Image image, URI articleUri, HttpClient client, ImageResolver resolver) {
-			super(client);
-			this.image      = image;
-			this.uri        = null;
+		Optional<ImageTranscoder> transcoder;
+		Optional<CheckpointJournal> journal;
+		AtomicLong bytesSaved;
+
+		public DownloadTask(URI imageUri, URI articleUri, HttpTransport transport, Optional<ResponseCache> cache, ImageResolver resolver, Optional<ImageTranscoder> transcoder, Optional<CheckpointJournal> journal, AtomicLong bytesSaved) {
+			super(transport, cache);
+			this.imageUri   = imageUri;
 			this.articleUri = articleUri;
 			this.resolver   = resolver;
+			this.transcoder = transcoder;
+			this.journal    = journal;
+			this.bytesSaved = bytesSaved;
 		}
 
 
 		@Override
-		public Path call() throws HttpActionException {
-			// get the output stream, and the actual image URI
-			Path path = null;
+		public Path get() {
+			// stream the image straight to a new file, keeping only one copy of identical files
 			try {
-				URI imageUri = image == null ? uri : new URI(image.getContent());
 				if (log.isInfoEnabled())
-					log.info ("Downloading from " + uri.toASCIIString());
-				
-				byte[] imageBytes = makeBinaryHttpRequest(imageUri, Optional.of(articleUri));
-				
-				if (image == null) {
-					path = resolver.putImage(uri, imageBytes);
-				} else {
-					path = resolver.putImage(image, imageBytes);
+					log.info ("Downloading from " + imageUri.toASCIIString());
+
+				long start = System.nanoTime();
+				Path path = resolver.newImagePath(imageUri);
+				makeHttpRequestToFile(imageUri, Optional.ofNullable(articleUri), path);
+				Metrics.INSTANCE.timer("image.download").recordSince(start);
+				Path unique = resolver.deduplicate(path);
+
+				// a duplicate will already have been transcoded
+				if (transcoder.isPresent() && unique.equals(path)) {
+					start = System.nanoTime();
+					bytesSaved.addAndGet(transcoder.get().transcode(path));
+					Metrics.INSTANCE.timer("image.transcode").recordSince(start);
 				}
-				
-				return path;
+				if (journal.isPresent())
+					journal.get().putImage(imageUri, unique);
+				return unique;
 			}
-			catch (URISyntaxException e) {
-				throw new HttpActionException ("The URI associated with the image content - " + image.getContent() + " - does not define a valid URI : " + e.getMessage(), e);
+			catch (HttpActionException e) {
+				throw new CompletionException(e);
 			}
 			catch (IOException e) {
-				throw new HttpActionException ("The download succeeded but an error occurred when writing the file to " + path + " : " + e.getMessage(), e);
+				throw new CompletionException(new HttpActionException("Could not store the image downloaded from " + imageUri + " : " + e.getMessage(), e));
 			}
 		}
 	}
-	
+
 }
@@ -0,0 +1,158 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Shrinks downloaded images to suit an e-reader: images are scaled down to
+ * fit the screen, optionally converted to greyscale, and JPEGs are re-encoded
+ * at the given quality. Files are re-written in place, and only if the result
+ * is smaller than the original. GIFs, which are often animated, are left as
+ * they are.
+ * <p>
+ * Threadsafe. Use {@link #builder()} to create, all values have defaults
+ * suitable for a 6" e-ink screen.
+ */
+@Slf4j
+@Value
+@Builder
+public class ImageTranscoder {
+
+	public final static int   DEFAULT_MAX_WIDTH    = 758;
+	public final static int   DEFAULT_MAX_HEIGHT   = 1024;
+	public final static float DEFAULT_JPEG_QUALITY = 0.75f;
+
+	/** The maximum width of a transcoded image, in pixels */
+	int maxWidth;
+	/** The maximum height of a transcoded image, in pixels */
+	int maxHeight;
+	/** Whether colour images should be converted to greyscale */
+	boolean greyscale;
+	/** The JPEG quality to re-encode with, between 0 and 1 */
+	float jpegQuality;
+
+	/**
+	 * Pre-populates the builder with default values.
+	 */
+	public static class ImageTranscoderBuilder {
+		private int     maxWidth    = DEFAULT_MAX_WIDTH;
+		private int     maxHeight   = DEFAULT_MAX_HEIGHT;
+		private boolean greyscale   = true;
+		private float   jpegQuality = DEFAULT_JPEG_QUALITY;
+	}
+
+	/**
+	 * Transcodes the given image file in place.
+	 * @return the number of bytes saved, which is zero if the image could not
+	 * be made any smaller, or is not in a format we transcode.
+	 */
+	public long transcode(Path imageFile) throws IOException {
+		final String format;
+		switch (StringUtils.substringAfterLast(imageFile.getFileName().toString(), ".").toLowerCase()) {
+		case "jpg":
+		case "jpeg":
+			format = "jpeg"; break;
+		case "png":
+			format = "png"; break;
+		default:
+			return 0;
+		}
+
+		BufferedImage original = ImageIO.read(imageFile.toFile());
+		if (original == null) {
+			log.warn("Could not decode the image " + imageFile + ", so it was not transcoded");
+			return 0;
+		}
+
+		long before = Files.size(imageFile);
+		Path tmpFile = Files.createTempFile(imageFile.getParent(), "transcode-", "." + format);
+		try {
+			write(shrink(original, format), format, tmpFile);
+			long after = Files.size(tmpFile);
+			if (after >= before)
+				return 0;
+
+			Files.move(tmpFile, imageFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return before - after;
+		}
+		finally {
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+
+	/**
+	 * Scales the given image to fit within the maximum dimensions, preserving
+	 * its aspect ratio, and converts it to greyscale if required.
+	 */
+	private BufferedImage shrink(BufferedImage image, String format) {
+		double scale  = Math.min(1.0, Math.min(maxWidth / (double) image.getWidth(), maxHeight / (double) image.getHeight()));
+		int    width  = Math.max(1, (int) Math.round(image.getWidth()  * scale));
+		int    height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+		int type = greyscale                                               ? BufferedImage.TYPE_BYTE_GRAY
+				 : format.equals("png") && image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB
+				 : BufferedImage.TYPE_INT_RGB;
+
+		BufferedImage result = new BufferedImage(width, height, type);
+		Graphics2D g = result.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING,     RenderingHints.VALUE_RENDER_QUALITY);
+			if (type != BufferedImage.TYPE_INT_ARGB) {
+				// transparent areas would otherwise turn black
+				g.setColor(Color.WHITE);
+				g.fillRect(0, 0, width, height);
+			}
+			g.drawImage(image, 0, 0, width, height, null);
+		}
+		finally {
+			g.dispose();
+		}
+		return result;
+	}
+
+	private void write(BufferedImage image, String format, Path file) throws IOException {
+		if (! format.equals("jpeg")) {
+			if (! ImageIO.write(image, format, file.toFile()))
+				throw new IOException("No image writer is available for the format " + format);
+			return;
+		}
+
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+		if (! writers.hasNext())
+			throw new IOException("No image writer is available for the format " + format);
+		ImageWriter writer = writers.next();
+
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(jpegQuality);
+
+		Files.deleteIfExists(file);
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(file.toFile())) {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, null), param);
+		}
+		finally {
+			writer.dispose();
+		}
+	}
+}
@@ -73,6 +73,12 @@ public class LoginAction extends HttpAction {
 		this.password = password;
 	}
 
+	public LoginAction(HttpTransport transport, Email userEmail, Password password) {
+		super(transport);
+		this.userEmail = userEmail;
+		this.password = password;
+	}
+
 	public boolean call() throws HttpActionException {
 		// Download and parse the login page
 		LOG.debug("Downloading the login page from " + LOGIN_PAGE);
@@ -15,6 +15,8 @@ import javax.validation.constraints.Pattern;
 @Value() @Accessors(fluent=true)
 public final class Password {
 
+    private static final java.util.regex.Pattern NO_WHITESPACE = java.util.regex.Pattern.compile("\\S+");
+
     @NonNull @Length(min=3, max=30)
     @Pattern(regexp="\\S+", message="Password contains invalid characters")
     String value;
@@ -28,7 +30,9 @@ public final class Password {
     }
 
     public Password validate() throws ValidationException {
-        Validator.INSTANCE.validate(this, "password");
+        Validator.INSTANCE.validate(this, "password", c -> c
+                .length("value", value, 3, 30)
+                .pattern("value", value, NO_WHITESPACE, "Password contains invalid characters"));
         return this;
     }
 
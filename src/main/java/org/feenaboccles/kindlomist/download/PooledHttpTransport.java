@@ -0,0 +1,144 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * A blocking HTTP/1.1 transport backed by a pool of keep-alive connections.
+ * <p>
+ * Connections are re-used across requests to the same host, so the fan-out to
+ * the Economist's web and image servers pays for a TCP and TLS handshake only
+ * once per pooled connection. A single SSL context is shared by all connections,
+ * so even new connections can resume an existing TLS session. A background thread
+ * closes connections which have been idle for too long, before the server does.
+ */
+@Slf4j
+public class PooledHttpTransport implements HttpTransport {
+
+	private final PoolingHttpClientConnectionManager connManager;
+	private final CloseableHttpClient client;
+	private final ScheduledExecutorService evictor;
+	private final RequestConfig requestConfig;
+
+	private final AtomicLong requests          = new AtomicLong();
+	private final AtomicLong connectionsOpened = new AtomicLong();
+
+	public PooledHttpTransport(TransportSettings settings) {
+		Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+				.register("http",  new CountingSocketFactory(PlainConnectionSocketFactory.getSocketFactory(), connectionsOpened))
+				.register("https", new CountingSocketFactory(new SSLConnectionSocketFactory(SSLContexts.createDefault()), connectionsOpened))
+				.build();
+
+		connManager = new PoolingHttpClientConnectionManager(socketFactories);
+		connManager.setMaxTotal(settings.getMaxConnections());
+		connManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerHost());
+
+		requestConfig = RequestConfig.custom()
+				.setConnectTimeout(settings.getConnectTimeoutMillis())
+				.setSocketTimeout(settings.getSocketTimeoutMillis())
+				.setConnectionRequestTimeout(settings.getPoolTimeoutMillis())
+				.build();
+		client = HttpClientBuilder.create()
+				.setConnectionManager(connManager)
+				.setRedirectStrategy(new LaxRedirectStrategy())
+				.setDefaultRequestConfig(requestConfig)
+				.build();
+
+		int idleTimeout = settings.getIdleTimeoutSeconds();
+		evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "http-idle-connection-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		evictor.scheduleWithFixedDelay(() -> {
+			connManager.closeExpiredConnections();
+			connManager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+		}, idleTimeout, Math.max(1, idleTimeout / 2), TimeUnit.SECONDS);
+	}
+
+	@Override
+	public HttpResponse execute(HttpUriRequest request) throws IOException {
+		requests.incrementAndGet();
+		return client.execute(request);
+	}
+
+	@Override
+	public RequestConfig getDefaultRequestConfig() {
+		return requestConfig;
+	}
+
+	@Override
+	public TransportStats getStats() {
+		PoolStats pool = connManager.getTotalStats();
+		return new TransportStats(requests.get(), connectionsOpened.get(),
+				pool.getLeased(), pool.getAvailable(), pool.getPending());
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.info("Closing HTTP transport, " + getStats());
+		evictor.shutdownNow();
+		client.close();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Delegates to another socket factory, counting the number of connections
+	 * it opens.
+	 */
+	private final static class CountingSocketFactory implements LayeredConnectionSocketFactory {
+		private final ConnectionSocketFactory delegate;
+		private final AtomicLong connectionsOpened;
+
+		CountingSocketFactory(ConnectionSocketFactory delegate, AtomicLong connectionsOpened) {
+			this.delegate          = delegate;
+			this.connectionsOpened = connectionsOpened;
+		}
+
+		@Override
+		public Socket createSocket(HttpContext context) throws IOException {
+			return delegate.createSocket(context);
+		}
+
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+				InetSocketAddress localAddress, HttpContext context) throws IOException {
+			Socket connected = delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+			connectionsOpened.incrementAndGet();
+			return connected;
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+			if (! (delegate instanceof LayeredConnectionSocketFactory))
+				throw new UnsupportedOperationException("Cannot layer a connection over a plain socket factory");
+			return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+		}
+	}
+}
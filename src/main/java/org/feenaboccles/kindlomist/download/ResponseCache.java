@@ -0,0 +1,261 @@
+package org.feenaboccles.kindlomist.download;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A persistent on-disk cache of HTTP responses, keyed by URI. Each entry
+ * consists of the response body, compressed with GZip unless it's already
+ * compressed (e.g. a JPEG image), and a small properties file containing the
+ * URI, the content type and the <tt>ETag</tt> and <tt>Last-Modified</tt> values
+ * needed to revalidate it with a conditional GET.
+ * <p>
+ * Entries younger than the cache's maximum age are considered fresh, and can
+ * be used without contacting the server. Older entries must be revalidated.
+ * <p>
+ * Each file is written to a temporary file, and then atomically moved into
+ * place, so a reader never sees a partly-written file. The body and its
+ * metadata are moved into place separately though, so the cache shouldn't be
+ * shared between processes, as one process's metadata could then describe
+ * another's body.
+ */
+@Slf4j
+public class ResponseCache {
+
+	private final static String BODY_SUFFIX = ".body";
+	private final static String META_SUFFIX = ".properties";
+
+	private final static String URI_PROP           = "uri";
+	private final static String CONTENT_TYPE_PROP  = "content-type";
+	private final static String ETAG_PROP          = "etag";
+	private final static String LAST_MODIFIED_PROP = "last-modified";
+	private final static String STORED_AT_PROP     = "stored-at";
+	private final static String COMPRESSED_PROP    = "gzip";
+
+	private final static int BUFFER_SIZE = 8192;
+
+	private final Path directory;
+	private final Duration maxAge;
+
+	private final AtomicLong hits        = new AtomicLong();
+	private final AtomicLong revalidated = new AtomicLong();
+	private final AtomicLong misses      = new AtomicLong();
+
+	/**
+	 * A single cached response
+	 */
+	@Value
+	public static class Entry {
+		@NonNull URI uri;
+		@NonNull Optional<String> contentType;
+		@NonNull Optional<String> eTag;
+		@NonNull Optional<String> lastModified;
+		@NonNull Instant storedAt;
+		boolean compressed;
+		@NonNull Path bodyPath;
+	}
+
+	/**
+	 * Creates a new cache, storing its entries in the given directory
+	 * @param directory where the cache's files should be stored. Created
+	 * if it does not already exist.
+	 * @param maxAge how long after being stored an entry can be used
+	 * without revalidating it with the server.
+	 */
+	public ResponseCache(Path directory, Duration maxAge) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.maxAge    = maxAge;
+		log.info("HTTP response cache directory is " + directory);
+	}
+
+	/**
+	 * Looks up the cached response for the given URI, if any.
+	 */
+	public Optional<Entry> lookup(URI uri) {
+		Path metaPath = pathFor(uri, META_SUFFIX);
+		Properties meta = new Properties();
+		try (Reader rdr = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+			meta.load(rdr);
+		}
+		catch (NoSuchFileException e) {
+			return Optional.empty();
+		}
+		catch (IOException e) {
+			log.warn("Ignoring unreadable cache entry for " + uri + " : " + e.getMessage());
+			return Optional.empty();
+		}
+
+		Path bodyPath = pathFor(uri, BODY_SUFFIX);
+		if (! uri.toString().equals(meta.getProperty(URI_PROP)) || ! Files.exists(bodyPath))
+			return Optional.empty();
+
+		Instant storedAt;
+		try {
+			storedAt = Instant.ofEpochMilli(Long.parseLong(meta.getProperty(STORED_AT_PROP, "0")));
+		}
+		catch (NumberFormatException e) {
+			log.warn("Ignoring cache entry for " + uri + " with an invalid storage time : " + e.getMessage());
+			return Optional.empty();
+		}
+
+		return Optional.of(new Entry(
+				uri,
+				Optional.ofNullable(meta.getProperty(CONTENT_TYPE_PROP)),
+				Optional.ofNullable(meta.getProperty(ETAG_PROP)),
+				Optional.ofNullable(meta.getProperty(LAST_MODIFIED_PROP)),
+				storedAt,
+				Boolean.parseBoolean(meta.getProperty(COMPRESSED_PROP)),
+				bodyPath));
+	}
+
+	/**
+	 * Is the given entry young enough to be used without revalidating it
+	 */
+	public boolean isFresh(Entry entry) {
+		return entry.getStoredAt().plus(maxAge).isAfter(Instant.now());
+	}
+
+	/**
+	 * Stores the given response body in the cache, replacing any existing entry
+	 * @param uri the URI from which the response was fetched
+	 * @param contentType the value of the response's Content-Type header, if any
+	 * @param eTag the value of the response's ETag header, if any
+	 * @param lastModified the value of the response's Last-Modified header, if any
+	 * @param body the response body
+	 * @return the new cache entry
+	 */
+	public Entry store(URI uri, Optional<String> contentType, Optional<String> eTag, Optional<String> lastModified, InputStream body) throws IOException {
+		boolean compress = ! contentType.map(ResponseCache::isAlreadyCompressed).orElse(false);
+		Path bodyPath = pathFor(uri, BODY_SUFFIX);
+		Files.createDirectories(bodyPath.getParent());
+
+		Path tmpBody = Files.createTempFile(bodyPath.getParent(), "body-", ".tmp");
+		try {
+			try (OutputStream out = compress
+					? new GZIPOutputStream(Files.newOutputStream(tmpBody), BUFFER_SIZE)
+					: Files.newOutputStream(tmpBody)) {
+				copy(body, out);
+			}
+			Files.move(tmpBody, bodyPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(tmpBody);
+		}
+
+		Entry entry = new Entry(uri, contentType, eTag, lastModified, Instant.now(), compress, bodyPath);
+		writeMetadata(entry);
+		return entry;
+	}
+
+	/**
+	 * Marks the given entry as having been successfully revalidated with
+	 * the server, so it will be fresh for another {@link #maxAge}.
+	 */
+	public Entry touch(Entry entry) throws IOException {
+		Entry touched = new Entry(entry.getUri(), entry.getContentType(), entry.getETag(), entry.getLastModified(),
+				Instant.now(), entry.isCompressed(), entry.getBodyPath());
+		writeMetadata(touched);
+		return touched;
+	}
+
+	/**
+	 * Opens the (uncompressed) body of the given entry for reading.
+	 */
+	public InputStream openBody(Entry entry) throws IOException {
+		InputStream in = Files.newInputStream(entry.getBodyPath());
+		return entry.isCompressed() ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+	}
+
+	/**
+	 * Reads the (uncompressed) body of the given entry into memory.
+	 */
+	public byte[] readBody(Entry entry) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+		try (InputStream in = openBody(entry)) {
+			copy(in, bytes);
+		}
+		return bytes.toByteArray();
+	}
+
+	void recordHit()         { hits.incrementAndGet(); }
+	void recordRevalidated() { revalidated.incrementAndGet(); }
+	void recordMiss()        { misses.incrementAndGet(); }
+
+	/**
+	 * A human-readable summary of how often the cache was used.
+	 */
+	public String getStats() {
+		return "cache: " + hits.get() + " fresh hits, " + revalidated.get() + " revalidated, " + misses.get() + " misses";
+	}
+
+	private void writeMetadata(Entry entry) throws IOException {
+		Properties meta = new Properties();
+		meta.setProperty(URI_PROP, entry.getUri().toString());
+		entry.getContentType().ifPresent(v -> meta.setProperty(CONTENT_TYPE_PROP, v));
+		entry.getETag().ifPresent(v -> meta.setProperty(ETAG_PROP, v));
+		entry.getLastModified().ifPresent(v -> meta.setProperty(LAST_MODIFIED_PROP, v));
+		meta.setProperty(STORED_AT_PROP, Long.toString(entry.getStoredAt().toEpochMilli()));
+		meta.setProperty(COMPRESSED_PROP, Boolean.toString(entry.isCompressed()));
+
+		Path metaPath = pathFor(entry.getUri(), META_SUFFIX);
+		Path tmpMeta  = Files.createTempFile(metaPath.getParent(), "meta-", ".tmp");
+		try {
+			try (Writer wtr = Files.newBufferedWriter(tmpMeta, StandardCharsets.UTF_8)) {
+				meta.store(wtr, null);
+			}
+			Files.move(tmpMeta, metaPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(tmpMeta);
+		}
+	}
+
+	/**
+	 * The path of the file holding part of the cache entry for the given URI.
+	 * Entries are named after the SHA-256 hash of their URI, and spread
+	 * across 256 sub-directories.
+	 */
+	private Path pathFor(URI uri, String suffix) {
+		String hash = DigestUtils.sha256Hex(uri.toString());
+		return directory.resolve(hash.substring(0, 2)).resolve(hash + suffix);
+	}
+
+	private static boolean isAlreadyCompressed(String contentType) {
+		String type = contentType.toLowerCase();
+		return type.startsWith("image/jpeg")
+			|| type.startsWith("image/png")
+			|| type.startsWith("image/gif")
+			|| type.startsWith("application/zip")
+			|| type.startsWith("application/gzip");
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buf = new byte[BUFFER_SIZE];
+		int amt;
+		while ((amt = in.read(buf)) >= 0)
+			out.write(buf, 0, amt);
+	}
+}
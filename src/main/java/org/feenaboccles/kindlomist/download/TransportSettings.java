@@ -0,0 +1,38 @@
+package org.feenaboccles.kindlomist.download;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings for the connection pool and timeouts of a {@link HttpTransport}.
+ * Use {@link #builder()} to create, all values have sensible defaults.
+ */
+@Value
+@Builder
+public class TransportSettings {
+
+	/** The maximum number of connections open across all hosts */
+	int maxConnections;
+	/** The maximum number of connections open to any one host */
+	int maxConnectionsPerHost;
+	/** How long to wait for a TCP connection to be established, in milliseconds */
+	int connectTimeoutMillis;
+	/** How long to wait for data on an open connection, in milliseconds */
+	int socketTimeoutMillis;
+	/** How long to wait for a free connection from the pool, in milliseconds */
+	int poolTimeoutMillis;
+	/** How long an unused connection may remain in the pool before being closed, in seconds */
+	int idleTimeoutSeconds;
+
+	/**
+	 * Pre-populates the builder with default values.
+	 */
+	public static class TransportSettingsBuilder {
+		private int maxConnections        = 40;
+		private int maxConnectionsPerHost = 20;
+		private int connectTimeoutMillis  = 10_000;
+		private int socketTimeoutMillis   = 60_000;
+		private int poolTimeoutMillis     = 5 * 60_000;
+		private int idleTimeoutSeconds    = 30;
+	}
+}
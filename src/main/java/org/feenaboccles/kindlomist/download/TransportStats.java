@@ -0,0 +1,39 @@
+package org.feenaboccles.kindlomist.download;
+
+import lombok.Value;
+
+/**
+ * A snapshot of the activity of a {@link HttpTransport}. Values which a
+ * transport cannot measure are negative.
+ */
+@Value
+public class TransportStats {
+	/** The number of requests executed */
+	long requests;
+	/** The number of new connections opened, each requiring a TCP (and possibly TLS) handshake */
+	long connectionsOpened;
+	/** The number of pooled connections currently in use */
+	int leased;
+	/** The number of idle pooled connections available for re-use */
+	int available;
+	/** The number of requests waiting for a pooled connection */
+	int pending;
+
+	/**
+	 * The proportion of requests which re-used an existing connection
+	 * rather than opening a new one, or a negative value if unknown
+	 */
+	public double getReuseRatio() {
+		if (connectionsOpened < 0)
+			return -1;
+		return requests == 0 ? 0 : Math.max(0, requests - connectionsOpened) / (double) requests;
+	}
+
+	@Override
+	public String toString() {
+		return connectionsOpened < 0
+			? "transport: " + requests + " requests"
+			: String.format("transport: %d requests, %d connections opened (%.0f%% reused), %d leased, %d idle, %d waiting",
+				requests, connectionsOpened, 100 * getReuseRatio(), leased, available, pending);
+	}
+}
@@ -0,0 +1,39 @@
+package org.feenaboccles.kindlomist.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of events, or of bytes, which may be incremented by many threads
+ * at once with little contention. Obtain one from {@link Metrics#counter(String)}.
+ */
+public final class Counter implements CounterMXBean {
+
+	private final String name;
+	private final LongAdder count = new LongAdder();
+
+	Counter(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void increment() {
+		count.increment();
+	}
+
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + getCount();
+	}
+}
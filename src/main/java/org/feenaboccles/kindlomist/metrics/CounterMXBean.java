@@ -0,0 +1,10 @@
+package org.feenaboccles.kindlomist.metrics;
+
+/**
+ * The view of a {@link Counter} exported through JMX
+ */
+public interface CounterMXBean {
+
+	/** The total counted so far */
+	long getCount();
+}
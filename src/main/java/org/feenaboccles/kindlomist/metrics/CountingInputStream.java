@@ -0,0 +1,42 @@
+package org.feenaboccles.kindlomist.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Adds the number of bytes read from the wrapped stream to a {@link Counter}
+ */
+public final class CountingInputStream extends FilterInputStream {
+
+	private final Counter counter;
+
+	public CountingInputStream(InputStream in, Counter counter) {
+		super(in);
+		this.counter = counter;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0)
+			counter.increment();
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int amt = super.read(b, off, len);
+		if (amt > 0)
+			counter.add(amt);
+		return amt;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long amt = super.skip(n);
+		if (amt > 0)
+			counter.add(amt);
+		return amt;
+	}
+}
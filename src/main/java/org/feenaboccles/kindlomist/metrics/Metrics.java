@@ -0,0 +1,165 @@
+package org.feenaboccles.kindlomist.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A singleton holding the counters and timers recorded by every stage of
+ * a run: HTTP latency and bytes per host, parse time per parser,
+ * validation time per model class, image writes, Markdown rendering, and
+ * the external converters. Each is created the first time it's asked
+ * for, and lives for the life of the JVM.
+ * <p>
+ * Recording is always on, as it's cheap: a counter is a {@link
+ * java.util.concurrent.atomic.LongAdder}, and a timer adds a few atomic
+ * increments to each call of {@link System#nanoTime()}. Frequently used
+ * metrics should be looked up once and kept in a field.
+ * <p>
+ * All metrics can be written as a JSON report with {@link #writeJson(Writer)},
+ * and exported as MXBeans, under the domain {@value #JMX_DOMAIN}, with
+ * {@link #registerMBeans()}.
+ */
+@Slf4j
+public enum Metrics {
+	INSTANCE;
+
+	public final static String JMX_DOMAIN = "org.feenaboccles.kindlomist";
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Timer>   timers   = new ConcurrentHashMap<>();
+	private final Instant started = Instant.now();
+	private volatile MBeanServer mbeanServer = null;
+
+	/**
+	 * The counter with the given name, created if necessary
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		return counter != null ? counter : register(counters, name, Counter::new, "Counter");
+	}
+
+	/**
+	 * The timer with the given name, created if necessary
+	 */
+	public Timer timer(String name) {
+		Timer timer = timers.get(name);
+		return timer != null ? timer : register(timers, name, Timer::new, "Timer");
+	}
+
+	/**
+	 * Exports every metric, those that exist and those created later, as an
+	 * MXBean on the platform MBean server.
+	 */
+	public synchronized void registerMBeans() {
+		if (mbeanServer != null)
+			return;
+		mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		counters.values().forEach(c -> registerMBean(c, "Counter", c.getName()));
+		timers.values().forEach(t -> registerMBean(t, "Timer", t.getName()));
+	}
+
+	/**
+	 * Writes every metric as a JSON object, with the counters and timers
+	 * each in an object keyed by name. Times are in milliseconds.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		Instant now = Instant.now();
+		out.write("{\n");
+		out.write("  \"started\": " + quote(started.toString()) + ",\n");
+		out.write("  \"reported\": " + quote(now.toString()) + ",\n");
+		out.write("  \"counters\": {");
+		String separator = "\n";
+		for (Counter c : new TreeMap<>(counters).values()) {
+			out.write(separator + "    " + quote(c.getName()) + ": " + c.getCount());
+			separator = ",\n";
+		}
+		out.write("\n  },\n");
+		out.write("  \"timers\": {");
+		separator = "\n";
+		for (Timer t : new TreeMap<>(timers).values()) {
+			out.write(separator + "    " + quote(t.getName()) + ": {"
+					+ "\"count\": " + t.getCount()
+					+ ", \"totalMillis\": " + millis(t.getTotalMillis())
+					+ ", \"meanMillis\": "  + millis(t.getMeanMillis())
+					+ ", \"p50Millis\": "   + millis(t.getP50Millis())
+					+ ", \"p90Millis\": "   + millis(t.getP90Millis())
+					+ ", \"p99Millis\": "   + millis(t.getP99Millis())
+					+ ", \"maxMillis\": "   + millis(t.getMaxMillis())
+					+ "}");
+			separator = ",\n";
+		}
+		out.write("\n  }\n");
+		out.write("}\n");
+	}
+
+	/**
+	 * Creates and adds a metric to the given map, unless another thread got
+	 * there first, in which case that thread's metric is returned.
+	 */
+	private <M> M register(ConcurrentMap<String, M> metrics, String name, Function<String, M> factory, String type) {
+		M metric = factory.apply(name);
+		M existing = metrics.putIfAbsent(name, metric);
+		if (existing != null)
+			return existing;
+		if (mbeanServer != null)
+			registerMBean(metric, type, name);
+		return metric;
+	}
+
+	private void registerMBean(Object metric, String type, String name) {
+		try {
+			mbeanServer.registerMBean(metric, new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name)));
+		}
+		catch (JMException e) {
+			log.warn("Couldn't export the " + type.toLowerCase() + " " + name + " through JMX : " + e.getMessage(), e);
+		}
+	}
+
+	private static String millis(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+
+	/**
+	 * The given string as a JSON string literal
+	 */
+	static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if (c < ' ')
+				quoted.append(String.format("\\u%04x", (int) c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * A summary of every metric, one per line, for logging
+	 */
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder();
+		for (Map.Entry<String, Counter> c : new TreeMap<>(counters).entrySet())
+			summary.append(c.getValue()).append('\n');
+		for (Map.Entry<String, Timer> t : new TreeMap<>(timers).entrySet())
+			summary.append(t.getValue()).append('\n');
+		return summary.toString();
+	}
+}
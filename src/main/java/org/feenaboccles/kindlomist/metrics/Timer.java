@@ -0,0 +1,149 @@
+package org.feenaboccles.kindlomist.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long something took, keeping a count, total and maximum, and
+ * a histogram from which percentiles are estimated. Obtain one from
+ * {@link Metrics#timer(String)}, and record durations with
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.recordSince(start);
+ * </pre>
+ * Recording is lock-free and allocates nothing.
+ * <p>
+ * The histogram's buckets are linear up to 16ns, and then each power of
+ * two is split into eight, so an estimated percentile is never more than
+ * an eighth larger than the true value.
+ */
+public final class Timer implements TimerMXBean {
+
+	private final static int LINEAR_BUCKETS  = 16;
+	private final static int SUB_BUCKET_BITS = 3;
+	private final static int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+	private final static int LINEAR_BITS     = Integer.numberOfTrailingZeros(LINEAR_BUCKETS);
+	private final static int BUCKET_COUNT    = LINEAR_BUCKETS + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final LongAdder       count = new LongAdder();
+	private final LongAdder       totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	Timer(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records the time elapsed since the given {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Records the given duration, in nanoseconds. Negative durations,
+	 * which can only come from a misbehaving clock, are taken as zero.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		buckets.incrementAndGet(bucketOf(nanos));
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getTotalMillis() {
+		return toMillis(totalNanos.sum());
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0 : toMillis(totalNanos.sum()) / n;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return toMillis(percentileNanos(0.5));
+	}
+
+	@Override
+	public double getP90Millis() {
+		return toMillis(percentileNanos(0.9));
+	}
+
+	@Override
+	public double getP99Millis() {
+		return toMillis(percentileNanos(0.99));
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return toMillis(maxNanos.get());
+	}
+
+	/**
+	 * An estimate of the given percentile, from 0 to 1, of the durations
+	 * recorded, in nanoseconds: the upper bound of the histogram bucket it
+	 * falls in, or the maximum, if that's smaller. Zero if nothing has been
+	 * recorded.
+	 */
+	public long percentileNanos(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			total += buckets.get(i);
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank)
+				return Math.min(upperBoundOf(i), maxNanos.get());
+		}
+		return maxNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d, mean %.3fms, p50 %.3fms, p99 %.3fms, max %.3fms",
+				name, getCount(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+	}
+
+	static int bucketOf(long nanos) {
+		if (nanos < LINEAR_BUCKETS)
+			return (int) nanos;
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_BUCKETS + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_BUCKETS)
+			return bucket;
+		int exponent  = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_BITS;
+		int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+		long upper = (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+		return upper < 0 ? Long.MAX_VALUE : upper - 1;
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
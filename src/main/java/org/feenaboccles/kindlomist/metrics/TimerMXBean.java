@@ -0,0 +1,30 @@
+package org.feenaboccles.kindlomist.metrics;
+
+/**
+ * The view of a {@link Timer} exported through JMX. Percentiles are
+ * approximate, being the upper bound of the histogram bucket in which
+ * they fall.
+ */
+public interface TimerMXBean {
+
+	/** The number of durations recorded */
+	long getCount();
+
+	/** The sum of all durations recorded, in milliseconds */
+	double getTotalMillis();
+
+	/** The mean duration, in milliseconds */
+	double getMeanMillis();
+
+	/** The median duration, in milliseconds */
+	double getP50Millis();
+
+	/** The 90th percentile duration, in milliseconds */
+	double getP90Millis();
+
+	/** The 99th percentile duration, in milliseconds */
+	double getP99Millis();
+
+	/** The longest duration, in milliseconds */
+	double getMaxMillis();
+}
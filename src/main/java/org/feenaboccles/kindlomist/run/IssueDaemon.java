@@ -0,0 +1,168 @@
+package org.feenaboccles.kindlomist.run;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.download.DateStamp;
+import org.feenaboccles.kindlomist.metrics.Metrics;
+
+/**
+ * Runs indefinitely, fetching each issue of the Economist as soon as it's
+ * released, at {@link Economist#PUBLICATION_HOUR} London time each
+ * {@link Economist#PUBLICATION_DAY}. When started it fetches the most
+ * recent issue, unless that's already been fetched.
+ * <p>
+ * An issue is usually not available at the very moment of its release,
+ * and the download may fail for other reasons, so each fetch is retried,
+ * with a delay which doubles after each failure, up to a maximum, until
+ * the issue is fetched or the next issue is released.
+ * <p>
+ * Each attempt to fetch an issue, and each failed attempt, are counted in
+ * the {@link Metrics} <tt>daemon.attempts</tt> and <tt>daemon.failures</tt>.
+ */
+@Log4j2
+public class IssueDaemon {
+
+	public final static Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMinutes(2);
+	public final static Duration DEFAULT_MAX_BACKOFF     = Duration.ofHours(1);
+
+	private final static ZoneId LONDON = ZoneId.of("Europe/London");
+
+	/**
+	 * Fetches issues, and writes them out, on behalf of the daemon
+	 */
+	public interface IssueFetcher {
+		/**
+		 * Whether the issue with the given date has already been fetched
+		 */
+		boolean hasIssue(LocalDate issue);
+
+		/**
+		 * Fetches the issue with the given date and writes it out, throwing
+		 * an exception if this fails for any reason.
+		 */
+		void fetch(LocalDate issue) throws Exception;
+	}
+
+	private final IssueFetcher fetcher;
+	private final Clock        clock;
+	private final Duration     initialBackoff;
+	private final Duration     maxBackoff;
+
+	public IssueDaemon(IssueFetcher fetcher) {
+		this(fetcher, Clock.systemUTC(), DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+	}
+
+	/**
+	 * @param fetcher fetches each issue
+	 * @param clock the clock which determines when each issue is released
+	 * @param initialBackoff how long to wait before retrying a failed fetch
+	 * @param maxBackoff the longest to wait before retrying, however many
+	 * attempts have failed
+	 */
+	public IssueDaemon(IssueFetcher fetcher, Clock clock, Duration initialBackoff, Duration maxBackoff) {
+		if (initialBackoff.isNegative() || initialBackoff.isZero())
+			throw new IllegalArgumentException("The delay before retrying a failed fetch must be positive, not " + initialBackoff);
+		if (maxBackoff.compareTo(initialBackoff) < 0)
+			throw new IllegalArgumentException("The maximum delay before retrying, " + maxBackoff + ", is less than the initial delay, " + initialBackoff);
+		this.fetcher        = fetcher;
+		this.clock          = clock;
+		this.initialBackoff = initialBackoff;
+		this.maxBackoff     = maxBackoff;
+	}
+
+	/**
+	 * Fetches every issue as it's released, until interrupted.
+	 */
+	public void run() throws InterruptedException {
+		log.info("Waiting for new issues, the next is released at " + nextRelease(now()));
+		while (true)
+			fetchLatestIssue();
+	}
+
+	/**
+	 * Fetches the most recent issue, unless it's already been fetched,
+	 * retrying until it's fetched or the next issue is released, and then
+	 * waits until that next release.
+	 * @return whether the issue was fetched, now or beforehand
+	 */
+	boolean fetchLatestIssue() throws InterruptedException {
+		ZonedDateTime now         = now();
+		LocalDate     issue       = DateStamp.maxDateTime(now);
+		ZonedDateTime nextRelease = nextRelease(now);
+
+		boolean fetched = fetcher.hasIssue(issue) || fetchWithRetries(issue, nextRelease);
+		sleepUntil(nextRelease);
+		return fetched;
+	}
+
+	/**
+	 * Tries to fetch the given issue, retrying after each failure, with an
+	 * exponentially increasing delay, until the given deadline.
+	 * @return whether the issue was fetched
+	 */
+	private boolean fetchWithRetries(LocalDate issue, ZonedDateTime deadline) throws InterruptedException {
+		Duration backoff = initialBackoff;
+		for (int attempt = 1; ; attempt++) {
+			log.info("Fetching the issue of " + issue + ", attempt " + attempt);
+			Metrics.INSTANCE.counter("daemon.attempts").increment();
+			try {
+				fetcher.fetch(issue);
+				log.info("Fetched the issue of " + issue);
+				return true;
+			}
+			catch (InterruptedException e) {
+				throw e;
+			}
+			catch (Exception e) {
+				Metrics.INSTANCE.counter("daemon.failures").increment();
+				ZonedDateTime retryAt = now().plus(backoff);
+				if (! retryAt.isBefore(deadline)) {
+					log.error("Giving up on the issue of " + issue + " after " + attempt + " attempts : " + e.getMessage(), e);
+					return false;
+				}
+				log.warn("Failed to fetch the issue of " + issue + ", retrying at " + retryAt + " : " + e.getMessage(), e);
+				sleepUntil(retryAt);
+				backoff = backoff.multipliedBy(2);
+				if (backoff.compareTo(maxBackoff) > 0)
+					backoff = maxBackoff;
+			}
+		}
+	}
+
+	/**
+	 * The time at which the next issue after the given time is released
+	 */
+	static ZonedDateTime nextRelease(ZonedDateTime now) {
+		ZonedDateTime release = now.withZoneSameInstant(LONDON)
+				.with(TemporalAdjusters.nextOrSame(Economist.PUBLICATION_DAY))
+				.truncatedTo(ChronoUnit.HOURS)
+				.withHour(Economist.PUBLICATION_HOUR);
+		return release.isAfter(now) ? release : release.plusWeeks(1);
+	}
+
+	private ZonedDateTime now() {
+		return ZonedDateTime.now(clock).withZoneSameInstant(LONDON);
+	}
+
+	private void sleepUntil(ZonedDateTime time) throws InterruptedException {
+		Duration delay = Duration.between(now(), time);
+		if (! delay.isNegative() && ! delay.isZero())
+			sleep(delay);
+	}
+
+	/**
+	 * Sleeps for the given period
+	 */
+	void sleep(Duration delay) throws InterruptedException {
+		Thread.sleep(delay.toMillis());
+	}
+}
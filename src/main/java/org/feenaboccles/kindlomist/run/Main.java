@@ -5,6 +5,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
@@ -12,17 +14,34 @@ import java.time.temporal.TemporalAmount;
 import java.time.temporal.TemporalUnit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
 import org.apache.logging.log4j.core.util.Charsets;
 import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.EconomistSnapshot;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.epub.EpubWriter;
+import org.feenaboccles.kindlomist.articles.html.ParserBackend;
 import org.feenaboccles.kindlomist.articles.markdown.EconomistWriter;
+import org.feenaboccles.kindlomist.download.AsyncHttpTransport;
 import org.feenaboccles.kindlomist.download.DateStamp;
 import org.feenaboccles.kindlomist.download.Downloader;
+import org.feenaboccles.kindlomist.download.HttpTransport;
+import org.feenaboccles.kindlomist.download.ImageTranscoder;
 import org.feenaboccles.kindlomist.download.Password;
+import org.feenaboccles.kindlomist.download.PooledHttpTransport;
+import org.feenaboccles.kindlomist.download.ResponseCache;
 import org.feenaboccles.kindlomist.download.Email;
+import org.feenaboccles.kindlomist.download.TransportSettings;
+import org.feenaboccles.kindlomist.metrics.Metrics;
+import org.feenaboccles.kindlomist.valid.Validator;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.kohsuke.args4j.ParserProperties;
@@ -35,10 +54,14 @@ import org.kohsuke.args4j.ParserProperties;
 public class Main {
 	private static final int EXIT_SUCCESS = 0;
 	private static final int EXIT_FAILURE = -1;
+	private static final int DEFAULT_CACHE_MAX_AGE_HOURS = 24;
+	private static final int DEFAULT_HTTP_TIMEOUT_SECS   = 60;
 	private static final String SAMPLE_LAUNCH_CMD = "java Main command [options...]\n"
 			+ "  If the date is omitted, the most recent issue is downloaded\n"
 			+ "  If an output folder is specified intead of an output file, the \n"
-			+ "  name economist-<datestamp>.epub is used instead.\n";
+			+ "  name economist-<datestamp>.epub is used instead.\n"
+			+ "  With --daemon, the output must be a folder, and each new issue is\n"
+			+ "  downloaded into it as soon as it's released.\n";
 
 	public static void main(String[] args) {
 		System.exit(new Main().call(args));
@@ -52,7 +75,28 @@ public class Main {
 	private Path      passwordPath  = null;
 	private Path      path          = null;
 	private Path      pandocPath    = null;
+	private boolean   usePandoc     = false;
 	private Path      kindleGenPath = null;
+	private int       fetchThreads  = Downloader.DEFAULT_FETCH_CONCURRENCY;
+	private Path      cacheDir      = null;
+	private int       cacheMaxAgeHours = DEFAULT_CACHE_MAX_AGE_HOURS;
+	private int       httpTimeoutSecs  = DEFAULT_HTTP_TIMEOUT_SECS;
+	private boolean   asyncHttp        = false;
+	private boolean   shrinkImages     = false;
+	private int       imageMaxWidth    = ImageTranscoder.DEFAULT_MAX_WIDTH;
+	private int       imageMaxHeight   = ImageTranscoder.DEFAULT_MAX_HEIGHT;
+	private int       imageQuality     = Math.round(100 * ImageTranscoder.DEFAULT_JPEG_QUALITY);
+	private boolean   colourImages     = false;
+	private Path      checkpointDir    = null;
+	private Path      fromSnapshot     = null;
+	private Path      saveSnapshot     = null;
+	private boolean   beanValidation   = false;
+	private boolean   streamingParser  = false;
+	private Path      metricsReport    = null;
+	private boolean   jmx              = false;
+	private boolean   overlap          = false;
+	private boolean   daemon           = false;
+	private Path      outputDir        = null;
 
 
 	/**
@@ -65,22 +109,27 @@ public class Main {
 		try {
 			parseArguments(args);
 
-			// Download the given issue of the Economist
-			Downloader d = new Downloader(dateStamp, userEmail, password);
-			Economist economistIssue = d.call();
-
-			// Write that issue to a temporary file in Markdown format
-			Path mdPath = Files.createTempFile("economist-" + dateStamp.value(), ".md");
-			mdPath.toFile().deleteOnExit();
-
-			try (BufferedWriter wtr = Files.newBufferedWriter(mdPath, Charsets.UTF_8)) {
-				EconomistWriter.write(wtr, economistIssue);
+			if (daemon) {
+				runDaemon();
+				return EXIT_SUCCESS;
 			}
 
-			// Use Pandoc to convert the Markdown file to an epub file. Make sure we've
+			// Download the given issue of the Economist, or load it from a snapshot,
+			// and write it out as an epub file. If overlapping, each part of the
+			// issue is written out as soon as it's downloaded.
 			ensurePathHasEpubExt();
-			Path coverImagePath = economistIssue.getPathToCoverImage();
-			convertMarkdownToEpub(mdPath, coverImagePath);
+			if (fromSnapshot != null) {
+				writeEpub(PendingIssue.of(EconomistSnapshot.read(fromSnapshot)));
+			} else if (overlap) {
+				Economist economistIssue = downloadAndWrite();
+				if (saveSnapshot != null)
+					EconomistSnapshot.write(economistIssue, saveSnapshot);
+			} else {
+				Economist economistIssue = download();
+				if (saveSnapshot != null)
+					EconomistSnapshot.write(economistIssue, saveSnapshot);
+				writeEpub(PendingIssue.of(economistIssue));
+			}
 
 			// Use KindleGen to convert to a Mobi file.
 			if (kindleGenPath != null) {
@@ -92,7 +141,154 @@ public class Main {
 			log.error ("Error occurred while running the program : " + e.getMessage(), e);
 			System.err.println("ERROR: " + e.getMessage());
 			return EXIT_FAILURE;
+		} finally {
+			writeMetricsReport();
+		}
+	}
+
+	/**
+	 * Writes the metrics recorded during this run to the report file, if
+	 * one was given. A failure to do so is logged, but doesn't fail the run.
+	 */
+	private void writeMetricsReport() {
+		if (log.isDebugEnabled())
+			log.debug("Metrics for this run:\n" + Metrics.INSTANCE);
+		if (metricsReport == null)
+			return;
+		try (BufferedWriter wtr = Files.newBufferedWriter(metricsReport, Charsets.UTF_8)) {
+			Metrics.INSTANCE.writeJson(wtr);
+		}
+		catch (IOException e) {
+			log.warn("Couldn't write the metrics report to " + metricsReport + " : " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Downloads the issue with the configured date-stamp.
+	 */
+	private Economist download() throws Exception {
+		try (HttpTransport transport = newTransport()) {
+			return newDownloader(transport).call();
+		}
+	}
+
+	/**
+	 * Runs until killed, downloading each new issue into the output folder
+	 * as soon as it's released. The same transport, and so the same
+	 * connection pool and login session, is used for every issue.
+	 */
+	private void runDaemon() throws Exception {
+		try (HttpTransport transport = newTransport()) {
+			new IssueDaemon(new DaemonFetcher(transport)).run();
+		}
+	}
+
+	/**
+	 * Fetches each issue on behalf of the daemon, writing it out as an
+	 * epub file, or as a Mobi file if kindlegen is configured, named after
+	 * its date-stamp in the output folder.
+	 */
+	private class DaemonFetcher implements IssueDaemon.IssueFetcher {
+		private final HttpTransport transport;
+		private boolean loggedIn = false;
+
+		DaemonFetcher(HttpTransport transport) {
+			this.transport = transport;
+		}
+
+		@Override
+		public boolean hasIssue(LocalDate issue) {
+			return Files.exists(outputDir.resolve("economist-" + issue + (kindleGenPath == null ? ".epub" : ".mobi")));
+		}
+
+		@Override
+		public void fetch(LocalDate issue) throws Exception {
+			dateStamp = DateStamp.of(issue);
+			path      = outputDir.resolve("economist-" + dateStamp + ".epub");
+
+			Downloader d = newDownloader(transport);
+			d.setLoggedIn(loggedIn);
+			try {
+				if (overlap)
+					downloadAndWrite(d);
+				else
+					writeEpub(PendingIssue.of(d.call()));
+				if (kindleGenPath != null)
+					replaceEpubWithMobi(path);
+				loggedIn = d.isLoggedIn();
+			}
+			catch (Exception e) {
+				// The failure may be due to the session having expired, so log in afresh next time
+				loggedIn = false;
+				Files.deleteIfExists(path);
+				throw e;
+			}
+			finally {
+				writeMetricsReport();
+			}
+		}
+	}
+
+	/**
+	 * Downloads the issue with the configured date-stamp, writing it out as
+	 * an epub file at the same time, each part being written out as soon
+	 * as it's been downloaded. The rest of the issue is collected on a
+	 * thread of its own, while the calling thread writes out the issue.
+	 */
+	private Economist downloadAndWrite() throws Exception {
+		try (HttpTransport transport = newTransport()) {
+			return downloadAndWrite(newDownloader(transport));
+		}
+	}
+
+	private Economist downloadAndWrite(Downloader d) throws Exception {
+		ExecutorService collector = Executors.newSingleThreadExecutor();
+		try {
+			PendingIssue pending = d.start(collector);
+			writeEpub(pending);
+			return pending.getIssue().join();
 		}
+		finally {
+			collector.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a downloader for the issue with the configured date-stamp,
+	 * which makes its requests through the given transport
+	 */
+	private Downloader newDownloader(HttpTransport transport) throws IOException {
+		Optional<ResponseCache> cache = cacheDir == null
+				? Optional.empty()
+				: Optional.of(new ResponseCache(cacheDir, Duration.ofHours(cacheMaxAgeHours)));
+		Downloader d = new Downloader(dateStamp, userEmail, password, fetchThreads, cache, transport);
+		d.setCheckpointDirectory(Optional.ofNullable(checkpointDir));
+		d.setParserBackend(streamingParser ? ParserBackend.STREAMING : ParserBackend.DOM);
+		if (shrinkImages)
+			d.setImageTranscoder(Optional.of(ImageTranscoder.builder()
+					.maxWidth(imageMaxWidth)
+					.maxHeight(imageMaxHeight)
+					.jpegQuality(imageQuality / 100f)
+					.greyscale(! colourImages)
+					.build()));
+		return d;
+	}
+
+	/**
+	 * Creates the transport used for all HTTP requests, with enough pooled
+	 * connections per host for all the article fetches and image downloads
+	 * that may occur simultaneously.
+	 */
+	private HttpTransport newTransport() throws IOException {
+		int perHost = fetchThreads + Downloader.NUM_SIMUL_DOWNLOADS;
+		TransportSettings settings = TransportSettings.builder()
+				.maxConnectionsPerHost(perHost)
+				.maxConnections(2 * perHost)
+				.socketTimeoutMillis((int) TimeUnit.SECONDS.toMillis(httpTimeoutSecs))
+				.build();
+		return asyncHttp
+				? new AsyncHttpTransport(settings)
+				: new PooledHttpTransport(settings);
 	}
 
 	private void ensurePathHasEpubExt() {
@@ -117,7 +313,9 @@ public class Main {
 		String epubPathStr = epubPath.toString();
 		String kCommand = kindleGenPath.toString() + ' ' + epubPath;
 
+		long start = System.nanoTime();
 		shellExecAndWait(kCommand);
+		Metrics.INSTANCE.timer("kindlegen").recordSince(start);
 
 		Path mobiPath = Paths.get(epubPathStr.replace(".epub", ".mobi"));
 		if (Files.exists(mobiPath) && Files.size(mobiPath) > 0) {
@@ -127,6 +325,33 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Writes the issue out as an epub file, either directly or via pandoc,
+	 * returning once it's been downloaded and written in full.
+	 */
+	private void writeEpub(PendingIssue issue) throws IOException, InterruptedException {
+		if (usePandoc)
+			writeEpubWithPandoc(issue);
+		else
+			EpubWriter.write(path, issue, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Writes the issue to a temporary file in Markdown format, and then
+	 * uses pandoc to convert it to an epub file.
+	 */
+	private void writeEpubWithPandoc(PendingIssue issue) throws IOException, InterruptedException {
+		Path mdPath = Files.createTempFile("economist-" + dateStamp.value(), ".md");
+		mdPath.toFile().deleteOnExit();
+
+		try (BufferedWriter wtr = Files.newBufferedWriter(mdPath, Charsets.UTF_8)) {
+			EconomistWriter.write(wtr, issue, ForkJoinPool.commonPool());
+		}
+
+		Path coverImagePath = issue.getIssue().join().getPathToCoverImage();
+		convertMarkdownToEpub(mdPath, coverImagePath);
+	}
+
 	/**
 	 * Converts the given markdown file to an epub files with the given cover
 	 * images using pandoc
@@ -141,7 +366,9 @@ public class Main {
             + (coverImagePath == null ? " " : "--epub-cover-image " + coverImagePath.toString() + ' ')
             + mdPath.toString();
 
+		long start = System.nanoTime();
 		shellExecAndWait(command);
+		Metrics.INSTANCE.timer("pandoc").recordSince(start);
 	}
 
 	/**
@@ -174,13 +401,31 @@ public class Main {
 				System.exit(0);
 			}
 
-			if (dateStamp == null) {
+			if (beanValidation)
+				Validator.INSTANCE.setBeanValidation(true);
+			if (jmx)
+				Metrics.INSTANCE.registerMBeans();
+
+			if (daemon) {
+				if (fromSnapshot != null || saveSnapshot != null || dateStamp != null)
+					throw new IllegalArgumentException("The daemon downloads each new issue as it's released, so cannot be given a date or snapshot");
+				if (! Files.isDirectory(path))
+					throw new IllegalArgumentException("The daemon needs an existing output folder, in which to save each issue : " + path);
+				outputDir = path;
+			} else if (fromSnapshot != null) {
+				if (saveSnapshot != null)
+					throw new IllegalArgumentException("An issue read from a snapshot cannot be saved to another snapshot");
+				dateStamp = DateStamp.of(EconomistSnapshot.readDate(fromSnapshot));
+				log.info("Rendering the issue of " + dateStamp + " from the snapshot in " + fromSnapshot);
+			} else if (dateStamp == null) {
 				dateStamp = dateOfMostRecentIssue();
 				log.info("No date specified, using date of most recent issue - " + dateStamp);
 			}
 
 
-			if (Files.exists(path)) {
+			if (daemon) {
+				// Each issue's file is named once its date is known
+			} else if (Files.exists(path)) {
 				if (Files.isDirectory(path)) {
 					path = path.resolve("economist-" + dateStamp + ".epub");
 					log.info ("An output folder was supplied instead of an output file, generating a filename from the datestamp");
@@ -191,32 +436,50 @@ public class Main {
 				throw new IllegalArgumentException("Invalid output-file name, the parent directory does not exist : " + path);
 			}
 
-			if (userEmail == null)
-				throw new IllegalStateException("Need to provide a username when downloading files");
+			// No credentials are needed if the issue's already been downloaded
+			if (fromSnapshot == null) {
+				if (userEmail == null)
+					throw new IllegalStateException("Need to provide a username when downloading files");
 
-			if (passwordText != null && passwordPath != null)
-				throw new IllegalStateException("You've provided both a password and a password path, please provide only one");
-			if (passwordText == null && passwordPath == null)
-				throw new IllegalStateException("You've provided neither a password and a password path, please provide one of the two");
+				if (passwordText != null && passwordPath != null)
+					throw new IllegalStateException("You've provided both a password and a password path, please provide only one");
+				if (passwordText == null && passwordPath == null)
+					throw new IllegalStateException("You've provided neither a password and a password path, please provide one of the two");
 
-			if (passwordText != null) {
-				password = Password.of(passwordText);
-			} else {
-				if (! Files.exists(passwordPath)) {
-					throw new IllegalArgumentException("No password file exists at the given path " + path);
+				if (passwordText != null) {
+					password = Password.of(passwordText);
 				} else {
-					password = Password.of(Files.readAllLines(passwordPath).get(0));
+					if (! Files.exists(passwordPath)) {
+						throw new IllegalArgumentException("No password file exists at the given path " + path);
+					} else {
+						password = Password.of(Files.readAllLines(passwordPath).get(0));
+					}
 				}
 			}
 
-			if (pandocPath == null)
-				pandocPath = guessPandocPath();
-
-			if (! Files.exists(pandocPath)) {
-				throw new IllegalArgumentException("There is not pandoc executable at the given path: " + pandocPath.toString());
-			}
-			if (! Files.isExecutable(pandocPath)) {
-				throw new IllegalArgumentException("The path to the 'pandoc' program points to a file that is not actually executable : '" + pandocPath.toString() + "'");
+			if (fetchThreads < 1)
+				throw new IllegalArgumentException("The number of article fetch threads must be at least one");
+			if (cacheMaxAgeHours < 0)
+				throw new IllegalArgumentException("The maximum age of cached pages cannot be negative");
+			if (httpTimeoutSecs < 1)
+				throw new IllegalArgumentException("The HTTP timeout must be at least one second");
+			if (imageMaxWidth < 1 || imageMaxHeight < 1)
+				throw new IllegalArgumentException("The maximum image width and height must be at least one pixel");
+			if (imageQuality < 1 || imageQuality > 100)
+				throw new IllegalArgumentException("The image quality must be a percentage between 1 and 100");
+
+			if (pandocPath != null)
+				usePandoc = true;
+			if (usePandoc) {
+				if (pandocPath == null)
+					pandocPath = guessPandocPath();
+
+				if (! Files.exists(pandocPath)) {
+					throw new IllegalArgumentException("There is not pandoc executable at the given path: " + pandocPath.toString());
+				}
+				if (! Files.isExecutable(pandocPath)) {
+					throw new IllegalArgumentException("The path to the 'pandoc' program points to a file that is not actually executable : '" + pandocPath.toString() + "'");
+				}
 			}
 
 		} catch (Exception e) {
@@ -285,7 +548,7 @@ public class Main {
 		return userEmail.toString();
 	}
 
-	@Option(name = "-u", aliases = "--username", usage = "The username to log into the Economist website", metaVar = " ", required=true)
+	@Option(name = "-u", aliases = "--username", usage = "The username to log into the Economist website", metaVar = " ")
 	public void setUserEmail(String userEmail) {
 		this.userEmail = Email.of(userEmail);
 	}
@@ -335,4 +598,184 @@ public class Main {
 	public void setKindleGenPath(Path kindleGenPath) {
 		this.kindleGenPath = kindleGenPath;
 	}
+
+	public int getFetchThreads() {
+		return fetchThreads;
+	}
+
+	@Option(name = "-t", aliases = "--fetch-threads", usage = "The maximum number of articles to download simultaneously", metaVar = " ")
+	public void setFetchThreads(int fetchThreads) {
+		this.fetchThreads = fetchThreads;
+	}
+
+	public Path getCacheDir() {
+		return cacheDir;
+	}
+
+	@Option(name = "-c", aliases = "--cache-dir", usage = "A directory in which downloaded pages and images are cached, so re-running for the same issue needs few downloads", metaVar = " ")
+	public void setCacheDir(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	public int getCacheMaxAgeHours() {
+		return cacheMaxAgeHours;
+	}
+
+	@Option(name = "--cache-max-age", usage = "How many hours a cached page can be used before checking if it's changed. Defaults to 24", metaVar = " ")
+	public void setCacheMaxAgeHours(int cacheMaxAgeHours) {
+		this.cacheMaxAgeHours = cacheMaxAgeHours;
+	}
+
+	public int getHttpTimeoutSecs() {
+		return httpTimeoutSecs;
+	}
+
+	@Option(name = "--http-timeout", usage = "How many seconds to wait for data from the Economist's servers before giving up. Defaults to 60", metaVar = " ")
+	public void setHttpTimeoutSecs(int httpTimeoutSecs) {
+		this.httpTimeoutSecs = httpTimeoutSecs;
+	}
+
+	public boolean isAsyncHttp() {
+		return asyncHttp;
+	}
+
+	@Option(name = "--async-http", usage = "Use non-blocking I/O for HTTP requests, so fewer threads are needed to service many connections")
+	public void setAsyncHttp(boolean asyncHttp) {
+		this.asyncHttp = asyncHttp;
+	}
+
+	public boolean isShrinkImages() {
+		return shrinkImages;
+	}
+
+	@Option(name = "-s", aliases = "--shrink-images", usage = "Scale images down to fit an e-reader screen, and convert them to greyscale, to make the eBook smaller")
+	public void setShrinkImages(boolean shrinkImages) {
+		this.shrinkImages = shrinkImages;
+	}
+
+	public int getImageMaxWidth() {
+		return imageMaxWidth;
+	}
+
+	@Option(name = "--image-max-width", usage = "The maximum width of a shrunk image in pixels. Defaults to 758", metaVar = " ")
+	public void setImageMaxWidth(int imageMaxWidth) {
+		this.imageMaxWidth = imageMaxWidth;
+	}
+
+	public int getImageMaxHeight() {
+		return imageMaxHeight;
+	}
+
+	@Option(name = "--image-max-height", usage = "The maximum height of a shrunk image in pixels. Defaults to 1024", metaVar = " ")
+	public void setImageMaxHeight(int imageMaxHeight) {
+		this.imageMaxHeight = imageMaxHeight;
+	}
+
+	public int getImageQuality() {
+		return imageQuality;
+	}
+
+	@Option(name = "--image-quality", usage = "The JPEG quality of shrunk images, as a percentage. Defaults to 75", metaVar = " ")
+	public void setImageQuality(int imageQuality) {
+		this.imageQuality = imageQuality;
+	}
+
+	public boolean isColourImages() {
+		return colourImages;
+	}
+
+	@Option(name = "--colour-images", usage = "Keep shrunk images in colour, for colour e-readers and tablets")
+	public void setColourImages(boolean colourImages) {
+		this.colourImages = colourImages;
+	}
+
+	public Path getCheckpointDir() {
+		return checkpointDir;
+	}
+
+	@Option(name = "-r", aliases = "--checkpoint-dir", usage = "A directory in which the progress of each download is recorded, so a failed download can be resumed where it left off", metaVar = " ")
+	public void setCheckpointDir(Path checkpointDir) {
+		this.checkpointDir = checkpointDir;
+	}
+
+	public Path getFromSnapshot() {
+		return fromSnapshot;
+	}
+
+	@Option(name = "--from-snapshot", usage = "Render the issue saved in the given snapshot directory, instead of downloading it. No username or password is required", metaVar = " ")
+	public void setFromSnapshot(Path fromSnapshot) {
+		this.fromSnapshot = fromSnapshot;
+	}
+
+	public Path getSaveSnapshot() {
+		return saveSnapshot;
+	}
+
+	@Option(name = "--save-snapshot", usage = "Save the downloaded issue and its images to the given directory, so it can later be re-rendered with --from-snapshot", metaVar = " ")
+	public void setSaveSnapshot(Path saveSnapshot) {
+		this.saveSnapshot = saveSnapshot;
+	}
+
+	public boolean isBeanValidation() {
+		return beanValidation;
+	}
+
+	@Option(name = "--bean-validation", usage = "Validate downloaded articles using their Bean Validation annotations, instead of the faster built-in checks")
+	public void setBeanValidation(boolean beanValidation) {
+		this.beanValidation = beanValidation;
+	}
+
+	public boolean isStreamingParser() {
+		return streamingParser;
+	}
+
+	@Option(name = "--streaming-parser", usage = "Parse downloaded pages by scanning for just the parts of each page that are used, instead of parsing each page in full")
+	public void setStreamingParser(boolean streamingParser) {
+		this.streamingParser = streamingParser;
+	}
+
+	public Path getMetricsReport() {
+		return metricsReport;
+	}
+
+	@Option(name = "--metrics-report", usage = "Write the timings and counts recorded while downloading and converting the issue to the given file, as JSON", metaVar = " ")
+	public void setMetricsReport(Path metricsReport) {
+		this.metricsReport = metricsReport;
+	}
+
+	public boolean isJmx() {
+		return jmx;
+	}
+
+	@Option(name = "--jmx", usage = "Export the timings and counts recorded while downloading and converting the issue as JMX MXBeans")
+	public void setJmx(boolean jmx) {
+		this.jmx = jmx;
+	}
+
+	public boolean isUsePandoc() {
+		return usePandoc;
+	}
+
+	@Option(name = "--use-pandoc", usage = "Write the epub file by converting the issue from Markdown with pandoc, instead of directly. Implied by --pandoc-path")
+	public void setUsePandoc(boolean usePandoc) {
+		this.usePandoc = usePandoc;
+	}
+
+	public boolean isOverlap() {
+		return overlap;
+	}
+
+	@Option(name = "--overlap", usage = "Write out each section of the issue as soon as it's downloaded, rather than once the whole issue is downloaded")
+	public void setOverlap(boolean overlap) {
+		this.overlap = overlap;
+	}
+
+	public boolean isDaemon() {
+		return daemon;
+	}
+
+	@Option(name = "--daemon", usage = "Keep running, and download each new issue into the output folder as soon as it's released, retrying until it's available")
+	public void setDaemon(boolean daemon) {
+		this.daemon = daemon;
+	}
 }
@@ -0,0 +1,189 @@
+package org.feenaboccles.kindlomist.valid;
+
+import java.net.IDN;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.validation.ValidationException;
+
+/**
+ * Hand-written equivalents of the Bean Validation constraints used on our
+ * model classes, which collect failures with the same property names and
+ * messages as Hibernate Validator would, without any reflection. Used by
+ * {@link Validator#validate(Object, String, java.util.function.Consumer)}.
+ * <p>
+ * As with Bean Validation, null values satisfy every constraint: nullity
+ * is checked by Lombok when the object is created.
+ * <p>
+ * Not threadsafe, create one per validation.
+ */
+public final class Constraints {
+
+	private final static String EMAIL_ATOM      = "[a-z0-9!#$%&'*+/=?^_`{|}~-]";
+	private final static String EMAIL_DOMAIN    = EMAIL_ATOM + "+(\\." + EMAIL_ATOM + "+)*";
+	private final static String EMAIL_IP_DOMAIN = "\\[[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}\\]";
+
+	private final static Pattern EMAIL_LOCAL_PART  = Pattern.compile(EMAIL_DOMAIN, Pattern.CASE_INSENSITIVE);
+	private final static Pattern EMAIL_DOMAIN_PART = Pattern.compile(EMAIL_DOMAIN + "|" + EMAIL_IP_DOMAIN, Pattern.CASE_INSENSITIVE);
+
+	private final String name;
+	private StringBuilder failures = null; // start optimistically.
+
+	Constraints(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Equivalent to <tt>@Length(min, max)</tt>
+	 */
+	public Constraints length(String property, CharSequence value, int min, int max) {
+		if (value != null && (value.length() < min || value.length() > max))
+			fail(property, "length must be between " + min + " and " + max);
+		return this;
+	}
+
+	/**
+	 * Equivalent to <tt>@Size(min, max)</tt> on a collection
+	 */
+	public Constraints size(String property, Collection<?> value, int min, int max) {
+		if (value != null && (value.size() < min || value.size() > max))
+			fail(property, "size must be between " + min + " and " + max);
+		return this;
+	}
+
+	/**
+	 * Equivalent to <tt>@Size(min, max)</tt> on a map
+	 */
+	public Constraints size(String property, Map<?, ?> value, int min, int max) {
+		if (value != null && (value.size() < min || value.size() > max))
+			fail(property, "size must be between " + min + " and " + max);
+		return this;
+	}
+
+	/**
+	 * Equivalent to <tt>@Pattern(regexp)</tt>
+	 */
+	public Constraints pattern(String property, CharSequence value, Pattern regexp) {
+		return pattern(property, value, regexp, "must match \"" + unescape(regexp.pattern()) + "\"");
+	}
+
+	/**
+	 * Equivalent to <tt>@Pattern(regexp, message)</tt>
+	 */
+	public Constraints pattern(String property, CharSequence value, Pattern regexp, String message) {
+		if (value != null && ! regexp.matcher(value).matches())
+			fail(property, message);
+		return this;
+	}
+
+	/**
+	 * Equivalent to {@link VisibleText <tt>@VisibleText</tt>}
+	 */
+	public Constraints visibleText(String property, CharSequence value) {
+		if (value != null && ! VisibleTextValidator.isVisible(value)) {
+			VisibleTextValidator.logIllegalCharacters(name + " '" + property + "'", value);
+			fail(property, VisibleTextValidator.MESSAGE);
+		}
+		return this;
+	}
+
+	/**
+	 * Equivalent to <tt>@EachLength(min, max)</tt>. Like the original, only
+	 * the first invalid element is reported.
+	 */
+	public Constraints eachLength(String property, Collection<? extends CharSequence> values, int min, int max) {
+		if (values != null) {
+			int i = 0;
+			for (CharSequence value : values) {
+				if (value != null && (value.length() < min || value.length() > max)) {
+					fail(property + "[" + i + "]", "length must be between " + min + " and " + max);
+					break;
+				}
+				i++;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Equivalent to {@link EachVisibleText <tt>@EachVisibleText</tt>}. Like
+	 * the other <tt>@Each</tt> constraints, only the first invalid element is
+	 * reported.
+	 */
+	public Constraints eachVisibleText(String property, Collection<? extends CharSequence> values) {
+		if (values != null) {
+			int i = 0;
+			for (CharSequence value : values) {
+				if (value != null && ! VisibleTextValidator.isVisible(value)) {
+					VisibleTextValidator.logIllegalCharacters(name + " '" + property + "[" + i + "]'", value);
+					fail(property + "[" + i + "]", VisibleTextValidator.MESSAGE);
+					break;
+				}
+				i++;
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Equivalent to <tt>@Email</tt>, applying the same rules as Hibernate
+	 * Validator: a local part and a domain, separated by a single <tt>@</tt>,
+	 * each of which is a dot-separated list of permitted characters, or an IP
+	 * address in square brackets for the domain. An empty string is valid.
+	 */
+	public Constraints email(String property, CharSequence value) {
+		if (value != null && value.length() > 0 && ! isEmail(value.toString()))
+			fail(property, "not a well-formed email address");
+		return this;
+	}
+
+	private static boolean isEmail(String value) {
+		String[] parts = value.split("@", 3);
+		if (parts.length != 2 || parts[0].endsWith(".") || parts[1].endsWith("."))
+			return false;
+		return matchesAscii(parts[0], EMAIL_LOCAL_PART) && matchesAscii(parts[1], EMAIL_DOMAIN_PART);
+	}
+
+	private static boolean matchesAscii(String part, Pattern pattern) {
+		try {
+			return pattern.matcher(IDN.toASCII(part)).matches();
+		}
+		catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Removes the escaping from the characters which have special meaning in
+	 * message templates, as Bean Validation does when it interpolates a
+	 * constraint's attributes into its message.
+	 */
+	private static String unescape(String text) {
+		StringBuilder result = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length() && "{}$\\".indexOf(text.charAt(i + 1)) >= 0)
+				c = text.charAt(++i);
+			result.append(c);
+		}
+		return result.toString();
+	}
+
+	private void fail(String property, String message) {
+		if (failures == null)
+			failures = new StringBuilder();
+		failures.append("\tInvalid value for: '")
+				.append(property).append("': ")
+				.append(message) .append('\n');
+	}
+
+	/**
+	 * Throws a {@link ValidationException} listing every failed constraint,
+	 * if any failed.
+	 */
+	void check() throws ValidationException {
+		if (failures != null)
+			throw new ValidationException ("Invalid " + name + ":\n" + failures.toString());
+	}
+}
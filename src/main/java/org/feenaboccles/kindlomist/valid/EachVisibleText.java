@@ -0,0 +1,30 @@
+package org.feenaboccles.kindlomist.valid;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+import cz.jirutka.validator.collection.CommonEachValidator;
+import cz.jirutka.validator.collection.constraints.EachConstraint;
+
+/**
+ * Applies {@link VisibleText} to each string in the annotated collection.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.FIELD, ElementType.ANNOTATION_TYPE })
+@EachConstraint(validateAs = VisibleText.class)
+@Constraint(validatedBy = CommonEachValidator.class)
+public @interface EachVisibleText {
+
+	String message() default "";
+
+	Class<?>[] groups() default { };
+
+	Class<? extends Payload>[] payload() default { };
+}
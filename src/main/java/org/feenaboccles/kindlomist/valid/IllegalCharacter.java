@@ -0,0 +1,23 @@
+package org.feenaboccles.kindlomist.valid;
+
+import lombok.Value;
+
+/**
+ * A character which may not appear in the Economist's text, and where it
+ * was found.
+ * @see VisibleTextValidator#findIllegalCharacters(CharSequence)
+ */
+@Value
+public class IllegalCharacter {
+
+	/** The offset of the character in the text, in UTF-16 chars */
+	int offset;
+	/** The illegal code-point, or an unpaired surrogate */
+	int codePoint;
+
+	@Override
+	public String toString() {
+		String name = Character.getName(codePoint);
+		return String.format("U+%04X %s at offset %d", codePoint, name == null ? "(unassigned)" : name, offset);
+	}
+}
@@ -1,40 +1,107 @@
 package org.feenaboccles.kindlomist.valid;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.ValidationException;
-import javax.validation.ValidatorFactory;
+
+import org.feenaboccles.kindlomist.metrics.Metrics;
+import org.feenaboccles.kindlomist.metrics.Timer;
 
 
 /**
  * A singleton exposing in a non-threadsafe way access to a single static validator.
+ * <p>
+ * Model classes describe their constraints twice: as Bean Validation
+ * annotations, and as hand-written {@link Constraints} checks, which are
+ * used by default as they need no reflection. Bean Validation can be
+ * re-enabled with {@link #setBeanValidation(boolean)}, or by setting the
+ * system property <tt>kindlomist.beanValidation</tt> to true, in which case
+ * the annotations are used instead. The Bean Validation factory, which is
+ * slow to build, is only created if it's used.
+ * <p>
+ * The time taken to validate each object is recorded in the {@link Metrics}
+ * <tt>validate.</tt><i>class-name</i>.
  * @author bryanfeeney
  *
  */
 public enum Validator {
 	INSTANCE;
-	
-	private final javax.validation.Validator validator;
-	
-	Validator()
-	{
-		ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-		validator = factory.getValidator();
+
+	private volatile boolean beanValidation = Boolean.getBoolean("kindlomist.beanValidation");
+
+	/**
+	 * The validation timer for each class, looked up once per class, as
+	 * small objects are validated in great numbers.
+	 */
+	private static final ClassValue<Timer> TIMERS = new ClassValue<Timer>() {
+		@Override
+		protected Timer computeValue(Class<?> type) {
+			return Metrics.INSTANCE.timer("validate." + type.getSimpleName());
+		}
+	};
+
+	/**
+	 * Builds the Bean Validation validator the first time it's used.
+	 */
+	private static final class BeanValidation {
+		static final javax.validation.Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
 	}
-	
+
 	/**
-	 * Checks if the given object is valid. If not, thrown an {@link IllegalArgumentException}
-	 * with a multi-line error message listing all the validation failures.
+	 * Whether objects are validated by Bean Validation, instead of by the
+	 * hand-written checks.
+	 */
+	public boolean isBeanValidation() {
+		return beanValidation;
+	}
+
+	public void setBeanValidation(boolean beanValidation) {
+		this.beanValidation = beanValidation;
+	}
+
+	/**
+	 * Checks if the given object is valid, using the given hand-written
+	 * checks, or using the object's Bean Validation annotations if
+	 * {@link #isBeanValidation() enabled}. If the object is not valid,
+	 * throws a {@link ValidationException} with a multi-line error message
+	 * listing all the validation failures.
 	 * @param object the object to inspect
 	 * @param name its name, used in error messages
-	 * @throws IllegalArgumentException if the object is invalid
+	 * @param constraints applies the same constraints as the object's annotations
+	 * @throws ValidationException if the object is invalid
+	 */
+	public <T> void validate (T object, String name, Consumer<Constraints> constraints) throws ValidationException
+	{	long start = System.nanoTime();
+		try {
+			if (beanValidation) {
+				validate (object, name);
+				return;
+			}
+
+			Constraints checks = new Constraints(name);
+			constraints.accept(checks);
+			checks.check();
+		}
+		finally {
+			TIMERS.get(object.getClass()).recordSince(start);
+		}
+	}
+
+	/**
+	 * Checks if the given object is valid using its Bean Validation annotations.
+	 * If not, thrown an {@link ValidationException} with a multi-line error
+	 * message listing all the validation failures.
+	 * @param object the object to inspect
+	 * @param name its name, used in error messages
+	 * @throws ValidationException if the object is invalid
 	 */
 	public <T> void validate (T object, String name) throws ValidationException
 	{	StringBuilder failures = new StringBuilder(0); // start optimistically.
-		
-		Set<ConstraintViolation<T>> violations = validator.validate(object);
+
+		Set<ConstraintViolation<T>> violations = BeanValidation.VALIDATOR.validate(object);
 		for (ConstraintViolation<T> violation : violations) {
 			String propertyPath = violation.getPropertyPath().toString();
 			String message      = violation.getMessage();
@@ -42,7 +109,7 @@ public enum Validator {
 					.append(propertyPath).append("': ")
 					.append(message) .append('\n');
 		}
-		
+
 		if (failures.length() > 0)
 			throw new ValidationException ("Invalid " + name + ":\n" + failures.toString());
 	}
@@ -0,0 +1,32 @@
+package org.feenaboccles.kindlomist.valid;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+
+/**
+ * The annotated string must be non-empty, and consist only of characters
+ * matched by {@link PlainArticle#ECONOMIST_VISIBLE_TEXT}. Equivalent to
+ * <tt>@Pattern(regexp=PlainArticle.ECONOMIST_VISIBLE_TEXT)</tt>, but checked
+ * with a lookup table instead of a regular expression. Null values are valid.
+ * @see VisibleTextValidator
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.FIELD, ElementType.ANNOTATION_TYPE })
+@Constraint(validatedBy = VisibleTextValidator.class)
+public @interface VisibleText {
+
+	String message() default VisibleTextValidator.MESSAGE;
+
+	Class<?>[] groups() default { };
+
+	Class<? extends Payload>[] payload() default { };
+}
@@ -0,0 +1,130 @@
+package org.feenaboccles.kindlomist.valid;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+
+/**
+ * Checks that text contains only the characters matched by
+ * {@link PlainArticle#ECONOMIST_VISIBLE_TEXT}.
+ * <p>
+ * Matching that character class with a regular expression means testing
+ * every character against a dozen alternatives, including Unicode script and
+ * category lookups. Instead, we test every character in the Basic
+ * Multilingual Plane against the pattern once, when this class is loaded,
+ * and record the results in a bitset, so checking a string is a single table
+ * lookup per character. The rare characters outside that plane are matched
+ * against the pattern itself. As the table is derived from the pattern, the
+ * two can never disagree.
+ * <p>
+ * When text is rejected, the same table is used to find, in a single pass,
+ * every illegal character in it, which are logged to help diagnose parsing
+ * problems.
+ * <p>
+ * Threadsafe.
+ */
+@Slf4j
+public class VisibleTextValidator implements ConstraintValidator<VisibleText, CharSequence> {
+
+	public final static String MESSAGE = "contains characters which do not appear in the Economist's text";
+
+	private final static Pattern VISIBLE_TEXT = Pattern.compile(PlainArticle.ECONOMIST_VISIBLE_TEXT);
+	private final static BitSet  VISIBLE_BMP  = new BitSet(Character.MAX_VALUE + 1);
+
+	static {
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++)
+			if (VISIBLE_TEXT.matcher(String.valueOf((char) c)).matches())
+				VISIBLE_BMP.set(c);
+	}
+
+	/**
+	 * Whether the given text is non-empty and consists solely of characters
+	 * which appear in the Economist's text. Gives the same result as
+	 * <tt>text.matches(PlainArticle.ECONOMIST_VISIBLE_TEXT)</tt>
+	 */
+	public static boolean isVisible(CharSequence text) {
+		int length = text.length();
+		if (length == 0)
+			return false;
+
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (VISIBLE_BMP.get(c))
+				continue;
+			if (! Character.isHighSurrogate(c) || i + 1 == length || ! Character.isLowSurrogate(text.charAt(i + 1)))
+				return false;
+			if (! isVisible(Character.toCodePoint(c, text.charAt(++i))))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the given code-point appears in the Economist's text.
+	 */
+	public static boolean isVisible(int codePoint) {
+		return Character.isBmpCodePoint(codePoint)
+			? VISIBLE_BMP.get(codePoint)
+			: VISIBLE_TEXT.matcher(new String(Character.toChars(codePoint))).matches();
+	}
+
+	/**
+	 * Finds every character in the given text that may not appear in the
+	 * Economist's text, in the order they occur. Unpaired surrogates are
+	 * reported as illegal characters in their own right.
+	 */
+	public static List<IllegalCharacter> findIllegalCharacters(CharSequence text) {
+		List<IllegalCharacter> illegal = Collections.emptyList();
+		int length = text.length();
+		for (int i = 0; i < length; ) {
+			char c = text.charAt(i);
+			int codePoint = Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))
+				? Character.toCodePoint(c, text.charAt(i + 1))
+				: c;
+
+			if (! isVisible(codePoint)) {
+				if (illegal.isEmpty())
+					illegal = new ArrayList<>();
+				illegal.add(new IllegalCharacter(i, codePoint));
+			}
+			i += Character.charCount(codePoint);
+		}
+		return illegal;
+	}
+
+	/**
+	 * Logs every illegal character in the given text, which has failed
+	 * validation.
+	 * @param description describes the text, used in the log message
+	 */
+	public static void logIllegalCharacters(String description, CharSequence text) {
+		if (! log.isWarnEnabled())
+			return;
+
+		List<IllegalCharacter> illegal = findIllegalCharacters(text);
+		if (! illegal.isEmpty())
+			log.warn("Illegal characters in " + description + " : " + illegal);
+	}
+
+	@Override
+	public void initialize(VisibleText constraint) {
+	}
+
+	@Override
+	public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+		if (value == null || isVisible(value))
+			return true;
+
+		logIllegalCharacters("text", value);
+		return false;
+	}
+}
@@ -0,0 +1,89 @@
+package org.feenaboccles.kindlomist.articles;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.feenaboccles.kindlomist.articles.html.SampleIssue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EconomistSnapshotTest {
+
+	private final static List<String> SECTIONS = Arrays.asList("Leaders", "Britain");
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testRoundTripThroughDirectory() throws IOException {
+		Path downloads = tmp.newFolder("downloads").toPath();
+		Economist issue = SampleIssue.newIssue(downloads, SECTIONS, 2);
+
+		Path snapshot = tmp.getRoot().toPath().resolve("snapshot");
+		EconomistSnapshot.write(issue, snapshot);
+		Economist copy = EconomistSnapshot.read(snapshot);
+
+		assertEquals(issue.getDateStamp(),        copy.getDateStamp());
+		assertEquals(issue.getPoliticsThisWeek(), copy.getPoliticsThisWeek());
+		assertEquals(issue.getBusinessThisWeek(), copy.getBusinessThisWeek());
+		assertEquals(issue.getKalsCartoon(),      copy.getKalsCartoon());
+		assertEquals(issue.getLetters(),          copy.getLetters());
+		assertEquals(issue.getObituary(),         copy.getObituary());
+		assertEquals(issue.getOrderedSections(),  copy.getOrderedSections());
+		assertEquals(issue.getSections(),         copy.getSections());
+		assertEquals(issue.getCoverImage(),       copy.getCoverImage());
+
+		// Images are copied into the snapshot, so it no longer needs the download directory
+		Path cover = copy.getPathToCoverImage();
+		assertTrue(cover.startsWith(snapshot.resolve(EconomistSnapshot.IMAGES_DIR)));
+		assertArrayEquals(Files.readAllBytes(issue.getPathToCoverImage()), Files.readAllBytes(cover));
+		assertArrayEquals(Files.readAllBytes(issue.getImages().getImagePath(SampleIssue.KAL_URL)), Files.readAllBytes(copy.getImages().getImagePath(SampleIssue.KAL_URL)));
+
+		assertEquals(SampleIssue.DATE, EconomistSnapshot.readDate(snapshot));
+	}
+
+	@Test
+	public void testMissingBusinessDigestIsPreserved() throws IOException {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 2);
+		issue = Economist.builder()
+				.dateStamp(issue.getDateStamp())
+				.politicsThisWeek(issue.getPoliticsThisWeek())
+				.businessThisWeek(Optional.empty())
+				.kalsCartoon(issue.getKalsCartoon())
+				.letters(issue.getLetters())
+				.sections(issue.getSections())
+				.obituary(issue.getObituary())
+				.orderedSections(issue.getOrderedSections())
+				.images(issue.getImages())
+				.coverImage(issue.getCoverImage())
+				.build();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EconomistSnapshot.write(issue, new DataOutputStream(bytes));
+		Economist copy = EconomistSnapshot.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), Paths.get("images"));
+
+		assertEquals(Optional.empty(), copy.getBusinessThisWeek());
+		assertEquals(issue.getSections(), copy.getSections());
+	}
+
+	@Test(expected=IOException.class)
+	public void testOtherFilesAreRejected() throws IOException {
+		Path snapshot = tmp.getRoot().toPath();
+		Files.write(snapshot.resolve(EconomistSnapshot.SNAPSHOT_FILE), "Not a snapshot".getBytes("UTF-8"));
+		EconomistSnapshot.read(snapshot);
+	}
+}
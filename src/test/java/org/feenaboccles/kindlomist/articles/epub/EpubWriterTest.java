@@ -0,0 +1,156 @@
+package org.feenaboccles.kindlomist.articles.epub;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.html.SampleIssue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+
+public class EpubWriterTest {
+
+	private final static List<String> SECTIONS = Arrays.asList("Leaders", "Britain");
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testLayoutOfBook() throws Exception {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 2);
+		Path epub = tmp.getRoot().toPath().resolve("economist.epub");
+		EpubWriter.write(epub, issue);
+
+		Map<String, ZipEntry> entries = new LinkedHashMap<>();
+		Map<String, byte[]>   content = new HashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(epub))) {
+			for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+				entries.put(entry.getName(), entry);
+				content.put(entry.getName(), readEntry(zip));
+			}
+		}
+
+		// The mimetype must be first, and uncompressed
+		List<String> names = new ArrayList<>(entries.keySet());
+		assertEquals("mimetype", names.get(0));
+		assertEquals(ZipEntry.STORED, entries.get("mimetype").getMethod());
+		assertEquals("application/epub+zip", new String(content.get("mimetype"), StandardCharsets.US_ASCII));
+
+		// Every XML document must be well-formed
+		for (String name : names)
+			if (name.endsWith(".xml") || name.endsWith(".xhtml") || name.endsWith(".opf") || name.endsWith(".ncx"))
+				assertNotNull(name, parse(content.get(name)));
+
+		// A chapter each for the digests, letters, sections and obituary
+		for (int i = 1; i <= 5; i++)
+			assertTrue(names.contains(String.format("OEBPS/chapter-%02d.xhtml", i)));
+		assertTrue(! names.contains("OEBPS/chapter-06.xhtml"));
+
+		String opf = new String(content.get("OEBPS/content.opf"), StandardCharsets.UTF_8);
+		assertTrue(opf.contains("properties=\"cover-image\""));
+		assertTrue(opf.contains("properties=\"nav\""));
+
+		String nav = new String(content.get("OEBPS/nav.xhtml"), StandardCharsets.UTF_8);
+		assertTrue(nav.contains("chapter-03.xhtml#article-2"));
+		assertTrue(nav.contains("Topic: A title for leaders/2"));
+
+		String leaders = new String(content.get("OEBPS/chapter-03.xhtml"), StandardCharsets.UTF_8);
+		assertTrue(leaders.contains("<h1>Leaders</h1>"));
+		assertTrue(leaders.contains("It is a question of £ &amp; €"));
+		assertTrue(leaders.contains("<img src=\"images/" + fileName(issue.getImages().getImagePath(new Image(SampleIssue.CHART_URL))) + "\""));
+
+		// Images are stored uncompressed, as they were downloaded
+		for (String name : names)
+			if (name.startsWith("OEBPS/images/"))
+				assertEquals(name, ZipEntry.STORED, entries.get(name).getMethod());
+		assertArrayEquals(new byte[] { 5, 6, 7 }, content.get("OEBPS/images/" + fileName(issue.getImages().getImagePath(SampleIssue.KAL_URL))));
+	}
+
+	@Test
+	public void testBookDependsOnlyOnIssue() throws Exception {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 2);
+		ByteArrayOutputStream first  = new ByteArrayOutputStream();
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		EpubWriter.write(first,  issue, Runnable::run);
+		EpubWriter.write(second, issue, Runnable::run);
+
+		assertArrayEquals(first.toByteArray(), second.toByteArray());
+	}
+
+	@Test
+	public void testFailedBookLeavesNoFile() throws Exception {
+		PendingIssue complete = PendingIssue.of(SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 2));
+		CompletableFuture<PlainArticle> failedObituary = new CompletableFuture<>();
+		failedObituary.completeExceptionally(new IOException("The obituary couldn't be downloaded"));
+		PendingIssue failed = PendingIssue.builder()
+				.dateStamp(complete.getDateStamp())
+				.politicsThisWeek(complete.getPoliticsThisWeek())
+				.businessThisWeek(complete.getBusinessThisWeek())
+				.kalsCartoon(complete.getKalsCartoon())
+				.letters(complete.getLetters())
+				.sections(complete.getSections())
+				.obituary(failedObituary)
+				.orderedSections(complete.getOrderedSections())
+				.images(complete.getImages())
+				.issue(complete.getIssue())
+				.build();
+
+		Path books = tmp.newFolder("books").toPath();
+		try {
+			EpubWriter.write(books.resolve("economist.epub"), failed, Runnable::run);
+			fail("Expected the book to fail, as its obituary failed");
+		}
+		catch (CompletionException e) {
+			assertEquals(IOException.class, e.getCause().getClass());
+		}
+		try (Stream<Path> files = Files.list(books)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	private static Document parse(byte[] xml) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+	}
+
+	private static String fileName(Path image) {
+		return image.getFileName().toString();
+	}
+
+	private static byte[] readEntry(ZipInputStream zip) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		for (int amt; (amt = zip.read(buf)) >= 0; )
+			bytes.write(buf, 0, amt);
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,61 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.feenaboccles.kindlomist.articles.html.HtmlRegionScanner.Target;
+import org.junit.Test;
+
+public class HtmlRegionScannerTest {
+
+	private final static HtmlRegionScanner SCANNER = new HtmlRegionScanner(
+			Target.first("hgroup", null, null),
+			Target.first("div", "main-content", "article"));
+
+	@Test
+	public void testNestedElementsAreIncluded() {
+		String body = "<div class='main-content other'><div><p>A</p></div><p>B</p></DIV>";
+		List<List<String>> regions = SCANNER.scan(
+				"<html><body><hgroup><h1>Strap</h1></hgroup><div class=\"main-content\">Not in an article</div>"
+				+ "<article>" + body + "</article><hgroup>Second</hgroup></body></html>");
+
+		assertEquals(Arrays.asList("<hgroup><h1>Strap</h1></hgroup>"), regions.get(0));
+		assertEquals(Arrays.asList(body), regions.get(1));
+	}
+
+	@Test
+	public void testCommentsAndScriptsAreSkipped() {
+		List<List<String>> regions = SCANNER.scan(
+				"<!DOCTYPE html><!-- <hgroup>Commented</hgroup> -->"
+				+ "<script>document.write('<hgroup>Scripted</hgroup>');</script>"
+				+ "<hgroup title=\"a > b\">Real</hgroup>");
+
+		assertEquals(Arrays.asList("<hgroup title=\"a > b\">Real</hgroup>"), regions.get(0));
+		assertEquals(Collections.emptyList(), regions.get(1));
+	}
+
+	@Test
+	public void testUnclosedElementsAreClosedByTheirAncestor() {
+		List<List<String>> regions = SCANNER.scan(
+				"<article><div class=main-content><p>Unclosed</article><p>After</p><hgroup>Unclosed");
+
+		assertEquals(Arrays.asList("<hgroup>Unclosed"), regions.get(0));
+		assertEquals(Arrays.asList("<div class=main-content><p>Unclosed"), regions.get(1));
+	}
+
+	@Test
+	public void testAllMatchingElementsAreFound() {
+		HtmlRegionScanner scanner = new HtmlRegionScanner(Target.all("div", "section"));
+		List<String> regions = scanner.scan(
+				"<div class='section first'><a>1</a></div><div class='sections'></div>"
+				+ "<div class='section'><div class='section'>2</div></div>").get(0);
+
+		assertEquals(Arrays.asList(
+				"<div class='section first'><a>1</a></div>",
+				"<div class='section'><div class='section'>2</div></div>"),
+				regions);
+	}
+}
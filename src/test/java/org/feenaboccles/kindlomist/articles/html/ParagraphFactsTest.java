@@ -0,0 +1,68 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+/**
+ * Checks that the facts collected in a single pass are exactly those that
+ * Jsoup's own methods would find.
+ */
+public class ParagraphFactsTest {
+
+	@Test
+	public void testUnusualParagraphs() {
+		int checked = assertSameAsJsoup(Jsoup.parseBodyFragment(
+				"<p>  Plain   text\n with  spaces </p>"
+				+ "<p><strong>Sources</strong>: <b>first</b> and <b>second</b></p>"
+				+ "<p>Line<br>break and <strong>nested <b>bold <sup class='pullquote'>sup</sup></b></strong></p>"
+				+ "<p><sup>A footnote, <a href='http://x'>with</a> <a href='http://y'>links</a></sup></p>"
+				+ "<p>Code: <code>  keep  </code><pre>  pre\n  formatted </pre> after</p>"
+				+ "<p><a href='http://z'><a href='http://w'>nested</a> links</a><div>a block</div></p>"
+				+ "<p></p>").body());
+		assertTrue(checked >= 7);
+	}
+
+	@Test
+	public void testTestPages() throws IOException {
+		int checked = 0;
+		for (String page : Arrays.asList("article.html", "article8-financial-with-refs.html",
+				"article13-with-pull-quote.html", "letters.html", "pols-this-week.html"))
+			checked += assertSameAsJsoup(Jsoup.parse(Util.loadFromClassPath(page)));
+		assertTrue(checked > 100);
+	}
+
+	/**
+	 * Checks every paragraph in the given tree, returning how many there were.
+	 */
+	private static int assertSameAsJsoup(Element root) {
+		Elements paragraphs = root.getElementsByTag("p");
+		for (Element p : paragraphs) {
+			ParagraphFacts facts = ParagraphFacts.of(p);
+			assertEquals(p.text(), facts.text());
+			assertEquals(firstText(p, "strong"), facts.strongText());
+			assertEquals(firstText(p, "b"),      facts.boldText());
+			assertEquals(firstText(p, "sup"),    facts.supText());
+			assertSame(p.getElementsByTag("sup").first(), facts.sup());
+
+			Elements links = p.getElementsByTag("a");
+			assertEquals(links.size(), facts.linkCount());
+			assertSame(links.first(), facts.link());
+			assertEquals(firstText(p, "a"), facts.linkText());
+		}
+		return paragraphs.size();
+	}
+
+	private static String firstText(Element p, String tag) {
+		Element first = p.getElementsByTag(tag).first();
+		return first == null ? null : first.text();
+	}
+}
@@ -392,4 +392,15 @@ public class PlainArticleParserTest {
 		}
 		assertEquals(1, pulls);
 	}
+
+	@Test
+	public void testCleanUpDodgyHtmlMatchesRegex() throws IOException {
+		String[] samples = {
+			"", "<br>", "<p>No breaks</p>", "<br><br>", "a<br> \t\n\u000B\f\r<br>b",
+			"<br><br><br>", "<br><br><br><br>", "<br> <BR>", "<br>\u00a0<br>", "<br />",
+			"x<br>y<br>z", "<<br>br><br>", "<br>  ", Util.loadFromClassPath("letters.html")
+		};
+		for (String sample : samples)
+			assertEquals(sample.replaceAll("<br>\\s*<br>", "</p><p>"), PlainArticleParser.cleanUpDodgyHtml(sample));
+	}
 }
@@ -0,0 +1,101 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.SingleImageArticle;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.articles.content.Content;
+import org.feenaboccles.kindlomist.articles.content.Footnote;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.content.LetterAuthor;
+import org.feenaboccles.kindlomist.articles.content.PullQuote;
+import org.feenaboccles.kindlomist.articles.content.Reference;
+import org.feenaboccles.kindlomist.articles.content.SubHeading;
+import org.feenaboccles.kindlomist.articles.content.Text;
+
+/**
+ * A small but complete issue, the issue of the 13th of December 2014, for
+ * tests of the classes which save and write out issues. Every article has
+ * the same body, which has one of each kind of content.
+ */
+public class SampleIssue {
+
+	public final static LocalDate DATE      = LocalDate.of(2014, 12, 13);
+	public final static String    COVER_URL = "http://cdn.static-economist.com/sites/default/files/imagecache/print-cover-full/print-covers/20141213_cuk400.jpg";
+	public final static URI       KAL_URL   = URI.create("http://cdn.static-economist.com/sites/default/files/images/print-edition/20141213_kal.jpg");
+	public final static String    CHART_URL = "http://cdn.static-economist.com/sites/default/files/images/print-edition/20141213_LDD001_0.jpg";
+
+	private SampleIssue() {
+	}
+
+	/**
+	 * Creates the issue, with the given sections, each of which has the given
+	 * number of articles. The path of each article is the lower-cased name of
+	 * its section and its number, e.g. <tt>leaders/1</tt>, and its title is
+	 * "A title for " that path. The first article of the first section has
+	 * the chart as its main image.
+	 * @param downloads the directory in which the issue's images are stored
+	 */
+	public static Economist newIssue(Path downloads, List<String> orderedSections, int articlesPerSection) throws IOException {
+		ImageResolver images = new ImageResolver(downloads);
+		Image cover = new Image(COVER_URL);
+		images.putImage(cover, new byte[] { 1, 2, 3, 4 });
+		images.putImage(KAL_URL, new byte[] { 5, 6, 7 });
+		images.putImage(new Image(CHART_URL), new byte[] { 8, 9 });
+
+		List<Content> body = Arrays.asList(
+				new Text("Twenty-five years after the fall of the Berlin Wall, the “peace dividend” has run out."),
+				new SubHeading("Faster, higher"),
+				new Image(CHART_URL),
+				new PullQuote("It is a question of £ & €"),
+				new Reference("See ", "our briefing", "http://www.economist.com/news/briefing/21636045", " for more"),
+				new Footnote("Correction: an earlier version of this article misnamed the minister."));
+
+		Map<String, List<PlainArticle>> sections = new HashMap<>();
+		Optional<URI> mainImage = Optional.of(URI.create(CHART_URL));
+		for (String section : orderedSections) {
+			List<PlainArticle> articles = new ArrayList<>(articlesPerSection);
+			for (int i = 1; i <= articlesPerSection; i++) {
+				articles.add(article(section.toLowerCase().replace(' ', '-') + "/" + i, body, mainImage));
+				mainImage = Optional.empty();
+			}
+			sections.put(section, articles);
+		}
+
+		return Economist.builder()
+				.dateStamp(DATE)
+				.politicsThisWeek(new WeeklyDigestArticle(URI.create("http://www.economist.com/news/world-week/21636061-politics-week"), body))
+				.businessThisWeek(Optional.of(new WeeklyDigestArticle(URI.create("http://www.economist.com/news/world-week/21636062-business-week"), body)))
+				.kalsCartoon(new SingleImageArticle(URI.create("http://www.economist.com/news/21636070-kals-cartoon"), KAL_URL))
+				.letters(article("letters/1", Arrays.asList(new Text("SIR – Your leader was wrong."), new LetterAuthor("Joe Bloggs, London")), Optional.empty()))
+				.sections(sections)
+				.obituary(article("obituary/1", body, Optional.empty()))
+				.orderedSections(orderedSections)
+				.images(images)
+				.coverImage(cover)
+				.build();
+	}
+
+	private static PlainArticle article(String path, List<Content> body, Optional<URI> mainImage) {
+		return PlainArticle.builder()
+				.articleUri(URI.create("http://www.economist.com/news/" + path))
+				.title("A title for " + path)
+				.topic("Topic")
+				.strap("A strap line, which summarises the article")
+				.body(body)
+				.mainImage(mainImage)
+				.build();
+	}
+}
@@ -0,0 +1,98 @@
+package org.feenaboccles.kindlomist.articles.html;
+
+import static org.feenaboccles.kindlomist.articles.html.PlainArticleParserTest.DUMMY_URI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.feenaboccles.kindlomist.download.DateStamp;
+import org.junit.Test;
+
+/**
+ * Checks that every parser gives exactly the same result with the
+ * {@link ParserBackend#STREAMING streaming} backend as with the
+ * {@link ParserBackend#DOM DOM} backend, for every page we have, including
+ * those which the parser should reject.
+ */
+public class StreamingParserEquivalenceTest {
+
+	private final static List<String> PAGES = Arrays.asList(
+			"article.html", "article2.html", "article3-job-ad.html",
+			"article4-economist-ranking.html", "article5-lead-image-is-graph.html",
+			"article6-short-graph-desc.html", "article7-greece.html",
+			"article8-financial-with-refs.html", "article8-intern-ad.html",
+			"article9-useless-congress.html", "article10-scary-ads.html",
+			"article11-french-book-review.html", "article12-yorkshire-bomber-mini.html",
+			"article13-with-pull-quote.html", "article14-egypt.html",
+			"article-15-rage-to-resignation.html", "article-16-singapore-exception.html",
+			"letters.html", "letters-2.html", "letters-3.html",
+			"pols-this-week.html", "biz-this-week.html", "kal.html",
+			"printed-index.html", "indian-0.html", "indian-1.html",
+			"healthier-chicken-balti.html");
+
+	@Test
+	public void testPlainArticles() throws IOException {
+		assertEquivalent(PlainArticleParser::new, 15);
+	}
+
+	@Test
+	public void testLetters() throws IOException {
+		assertEquivalent(LetterArticleParser::new, 16);
+	}
+
+	@Test
+	public void testWeeklyDigests() throws IOException {
+		assertEquivalent(WeeklyDigestArticleParser::new, 22);
+	}
+
+	@Test
+	public void testSingleImageArticles() throws IOException {
+		assertEquivalent(SingleImageArticleParser::new, 13);
+	}
+
+	@Test
+	public void testPrintEdition() throws IOException {
+		DateStamp date = DateStamp.of("2012-10-10");
+		assertEquivalent(backend -> new PrintEditionParser(date, backend), 1);
+	}
+
+	/**
+	 * Parses every page with both backends, checking that either both
+	 * succeed with equal results, or both fail in the same way.
+	 * @param minSuccesses how many pages at least the parser should
+	 * succeed on, so we know we're comparing more than just failures
+	 */
+	private static void assertEquivalent(Function<ParserBackend, HtmlParser<?>> parsers, int minSuccesses) throws IOException {
+		HtmlParser<?> dom       = parsers.apply(ParserBackend.DOM);
+		HtmlParser<?> streaming = parsers.apply(ParserBackend.STREAMING);
+
+		int successes = 0;
+		for (String page : PAGES) {
+			String html = Util.loadFromClassPath(page);
+			Object expected = parse(dom, html);
+			Object actual   = parse(streaming, html);
+
+			assertEquals("Parsers differ on " + page, expected, actual);
+			if (! (expected instanceof String))
+				successes++;
+		}
+		assertTrue("Only " + successes + " pages parsed successfully", successes >= minSuccesses);
+	}
+
+	/**
+	 * Returns the parsed page, or if parsing fails, the exception's class and
+	 * message.
+	 */
+	private static Object parse(HtmlParser<?> parser, String html) {
+		try {
+			return parser.parse(DUMMY_URI, html);
+		}
+		catch (Exception e) {
+			return e.getClass().getName() + ": " + e.getMessage();
+		}
+	}
+}
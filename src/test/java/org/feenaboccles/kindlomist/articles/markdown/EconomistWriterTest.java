@@ -0,0 +1,150 @@
+package org.feenaboccles.kindlomist.articles.markdown;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.Economist;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.html.SampleIssue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EconomistWriterTest {
+
+	private final static List<String> SECTIONS = Arrays.asList(
+			"Leaders", "United States", "The Americas", "Asia", "China",
+			"Middle East and Africa", "Europe", "Britain", "Business",
+			"Finance and economics", "Science and technology", "Books and arts");
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testParallelOutputMatchesSerialOutput() throws IOException {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 3);
+
+		StringWriter serial = new StringWriter();
+		EconomistWriter.write(serial, issue, Runnable::run);
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			for (int i = 0; i < 10; i++) {
+				StringWriter parallel = new StringWriter();
+				EconomistWriter.write(parallel, issue, pool);
+				assertEquals(serial.toString(), parallel.toString());
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testPendingIssueIsWrittenAsPartsArrive() throws Exception {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 3);
+		StringWriter expected = new StringWriter();
+		EconomistWriter.write(expected, issue, Runnable::run);
+
+		// Parts arrive in the reverse order to that in which they're written
+		PendingIssue pending = pendingIssue(issue);
+		StringWriter out = new StringWriter();
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> written = pool.submit(() -> {
+				EconomistWriter.write(out, pending, pool);
+				return null;
+			});
+			pending.getObituary().complete(issue.getObituary());
+			for (int i = SECTIONS.size() - 1; i >= 0; i--)
+				pending.getSections().get(SECTIONS.get(i)).complete(issue.getSections().get(SECTIONS.get(i)));
+			pending.getLetters().complete(issue.getLetters());
+			pending.getKalsCartoon().complete(issue.getKalsCartoon());
+			pending.getBusinessThisWeek().complete(issue.getBusinessThisWeek());
+			pending.getPoliticsThisWeek().complete(issue.getPoliticsThisWeek());
+			assertFalse(written.isDone());
+
+			pending.getIssue().complete(issue);
+			written.get(10, TimeUnit.SECONDS);
+		}
+		finally {
+			pool.shutdown();
+		}
+		assertEquals(expected.toString(), out.toString());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testFailedDownloadIsReported() throws IOException {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 3);
+		PendingIssue pending = PendingIssue.of(issue);
+		pending = PendingIssue.builder()
+				.dateStamp(pending.getDateStamp())
+				.politicsThisWeek(pending.getPoliticsThisWeek())
+				.businessThisWeek(pending.getBusinessThisWeek())
+				.kalsCartoon(pending.getKalsCartoon())
+				.letters(pending.getLetters())
+				.sections(pending.getSections())
+				.obituary(pending.getObituary())
+				.orderedSections(pending.getOrderedSections())
+				.images(pending.getImages())
+				.issue(new CompletableFuture<>())
+				.build();
+		pending.getIssue().completeExceptionally(new IllegalStateException("The issue is invalid"));
+
+		EconomistWriter.write(new StringWriter(), pending, Runnable::run);
+	}
+
+	@Test
+	public void testSectionsAreInOrder() throws IOException {
+		Economist issue = SampleIssue.newIssue(tmp.newFolder("downloads").toPath(), SECTIONS, 3);
+		StringWriter out = new StringWriter();
+		EconomistWriter.write(out, issue);
+		String markdown = out.toString();
+
+		assertTrue(markdown.startsWith("---\ntitle: The Economist, December 13, 2014\n"));
+		int last = markdown.indexOf("# The World this Week\n");
+		assertTrue(last >= 0);
+		for (String section : SECTIONS) {
+			int next = markdown.indexOf("# " + section + "\n");
+			assertTrue(section, next > last);
+			last = next;
+		}
+		assertTrue(markdown.lastIndexOf("A title for obituary/1") > last);
+	}
+
+	/**
+	 * A pending issue with the same layout as the given issue, none of
+	 * whose parts have yet arrived
+	 */
+	private static PendingIssue pendingIssue(Economist issue) {
+		Map<String, CompletableFuture<List<PlainArticle>>> sections = new LinkedHashMap<>();
+		for (String section : issue.getOrderedSections())
+			sections.put(section, new CompletableFuture<>());
+		return PendingIssue.builder()
+				.dateStamp(issue.getDateStamp())
+				.politicsThisWeek(new CompletableFuture<>())
+				.businessThisWeek(new CompletableFuture<>())
+				.kalsCartoon(new CompletableFuture<>())
+				.letters(new CompletableFuture<>())
+				.sections(sections)
+				.obituary(new CompletableFuture<>())
+				.orderedSections(issue.getOrderedSections())
+				.images(issue.getImages())
+				.issue(new CompletableFuture<>())
+				.build();
+	}
+}
@@ -0,0 +1,40 @@
+package org.feenaboccles.kindlomist.articles.markdown;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class MarkdownEscapingWriterTest {
+
+	@Test
+	public void testSpecialCharactersAreEscaped() throws IOException {
+		assertEquals("plain text", escaped("plain text", false));
+		assertEquals("\\*bold\\* \\_and\\_ \\\\ \\> \\#1 \\(sic)", escaped("*bold* _and_ \\ > #1 (sic)", false));
+		assertEquals("\\*\\*", escaped("**", false));
+		assertEquals("", escaped("", false));
+	}
+
+	@Test
+	public void testSpacesAreEscapedOnRequest() throws IOException {
+		assertEquals("a\\ \\*b\\*\\ c", escaped("a *b* c", true));
+	}
+
+	@Test
+	public void testCharArraysAndSingleCharacters() throws IOException {
+		StringWriter out = new StringWriter();
+		MarkdownEscapingWriter escaped = new MarkdownEscapingWriter(out);
+		escaped.write("x_y_z".toCharArray(), 1, 3);
+		escaped.write('#');
+		escaped.write('a');
+		assertEquals("\\_y\\_\\#a", out.toString());
+	}
+
+	private static String escaped(String text, boolean escapeSpaces) throws IOException {
+		StringWriter out = new StringWriter();
+		new MarkdownEscapingWriter(out).escapeSpaces(escapeSpaces).write(text);
+		return out.toString();
+	}
+}
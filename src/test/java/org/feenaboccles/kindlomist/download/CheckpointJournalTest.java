@@ -0,0 +1,81 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckpointJournalTest {
+
+	private final static URI INDEX_URI   = URI.create("http://www.economist.com/printedition/2014-12-13");
+	private final static URI ARTICLE_URI = URI.create("http://www.economist.com/news/leaders/21636030-page");
+	private final static URI IMAGE_URI   = URI.create("http://cdn.static-economist.com/sites/default/files/images/picture.jpg");
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testProgressSurvivesRestart() throws IOException {
+		Path dir = tmp.getRoot().toPath();
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			journal.putPage(INDEX_URI, "<html>index</html>");
+			journal.markParsed(INDEX_URI);
+			journal.putPage(ARTICLE_URI, "<html>article, which wouldn't parse</html>");
+
+			Path image = Files.write(journal.getImageDirectory().resolve("images-1.jpg"), new byte[] { 1, 2, 3 });
+			journal.putImage(IMAGE_URI, image);
+			assertFalse(journal.isComplete());
+		}
+
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			assertEquals(Optional.of("<html>index</html>"), journal.getPage(INDEX_URI));
+			assertFalse("Pages which weren't parsed must be fetched again", journal.getPage(ARTICLE_URI).isPresent());
+			assertEquals(Optional.of(journal.getImageDirectory().resolve("images-1.jpg")), journal.getImage(IMAGE_URI));
+			assertFalse(journal.isComplete());
+
+			journal.putPage(ARTICLE_URI, "<html>article</html>");
+			journal.markParsed(ARTICLE_URI);
+			journal.markComplete();
+		}
+
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			assertEquals(Optional.of("<html>article</html>"), journal.getPage(ARTICLE_URI));
+			assertTrue(journal.isComplete());
+		}
+	}
+
+	@Test
+	public void testTornEntryIsIgnored() throws IOException {
+		Path dir = tmp.getRoot().toPath();
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			journal.putPage(INDEX_URI, "<html>index</html>");
+			journal.markParsed(INDEX_URI);
+		}
+		Files.write(dir.resolve("journal.log"), "PAGE\thttp://www.econ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			assertEquals(Optional.of("<html>index</html>"), journal.getPage(INDEX_URI));
+			assertFalse(journal.getImage(IMAGE_URI).isPresent());
+
+			// Entries appended after the torn one must survive
+			journal.putPage(ARTICLE_URI, "<html>article</html>");
+			journal.markParsed(ARTICLE_URI);
+		}
+
+		try (CheckpointJournal journal = new CheckpointJournal(dir)) {
+			assertEquals(Optional.of("<html>index</html>"), journal.getPage(INDEX_URI));
+			assertEquals(Optional.of("<html>article</html>"), journal.getPage(ARTICLE_URI));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+public class DateStampTest {
+
+	private final static ZoneId LONDON = ZoneId.of("Europe/London");
+
+	// The issue of Saturday the 13th of December 2014 was released on Thursday the 11th
+	private final static LocalDate PREVIOUS = LocalDate.of(2014, 12, 6);
+	private final static LocalDate ISSUE    = LocalDate.of(2014, 12, 13);
+
+	@Test
+	public void testMaxDateTimeIsMostRecentlyReleasedIssue() {
+		assertEquals(PREVIOUS, DateStamp.maxDateTime(london(7, 12)));  // Sunday
+		assertEquals(PREVIOUS, DateStamp.maxDateTime(london(8, 23)));  // Monday
+		assertEquals(PREVIOUS, DateStamp.maxDateTime(london(10, 18))); // Wednesday
+		assertEquals(PREVIOUS, DateStamp.maxDateTime(london(11, 15))); // Thursday, before the release
+		assertEquals(ISSUE,    DateStamp.maxDateTime(london(11, 16))); // Thursday, at the release
+		assertEquals(ISSUE,    DateStamp.maxDateTime(london(12, 9)));  // Friday
+		assertEquals(ISSUE,    DateStamp.maxDateTime(london(13, 0)));  // Saturday
+		assertEquals(ISSUE,    DateStamp.maxDateTime(london(18, 15))); // the next Thursday, before the release
+	}
+
+	private static ZonedDateTime london(int dayOfMonth, int hour) {
+		return ZonedDateTime.of(2014, 12, dayOfMonth, hour, 0, 0, 0, LONDON);
+	}
+}
@@ -0,0 +1,141 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.feenaboccles.kindlomist.articles.PendingIssue;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.PrintEdition;
+import org.feenaboccles.kindlomist.articles.epub.EpubWriter;
+import org.feenaboccles.kindlomist.articles.html.PrintEditionParser;
+import org.feenaboccles.kindlomist.articles.html.Util;
+import org.junit.Test;
+
+public class DownloaderTest {
+
+	private final static DateStamp ISSUE    = DateStamp.of("2012-10-10");
+	private final static Email     EMAIL    = Email.of("reader@example.com");
+	private final static Password  PASSWORD = Password.of("Correct-Horse-Battery-Staple-1");
+
+	private final static String LOGIN_PAGE =
+			"<html><body><form id=\"user-login\" action=\"https://www.economist.com/user/login\" method=\"post\"><div>"
+			+ "<input type=\"text\" name=\"name\"/><input type=\"password\" name=\"pass\"/>"
+			+ "<input type=\"hidden\" name=\"form_build_id\" value=\"form-fake\"/>"
+			+ "<input type=\"hidden\" name=\"form_id\" id=\"edit-user-login\" value=\"user_login\"/>"
+			+ "<input type=\"hidden\" name=\"securelogin_original_baseurl\" id=\"edit-securelogin-original-baseurl\" value=\"https://www.economist.com\"/>"
+			+ "</div></form></body></html>";
+
+	/**
+	 * Serves the test pages in place of economist.com, failing the obituary,
+	 * and serving the section articles slowly, so that most of them are
+	 * still waiting to be downloaded when the obituary fails.
+	 */
+	private final static class FakeEconomist implements HttpTransport {
+		private final AtomicLong requests = new AtomicLong();
+		private final Map<String, String> specialArticles = new HashMap<>();
+		private final String indexPage;
+		private final String articlePage;
+		private final String obituaryPath;
+
+		FakeEconomist() throws Exception {
+			indexPage   = Util.loadFromClassPath("printed-index.html");
+			articlePage = Util.loadFromClassPath("article.html");
+			PrintEdition edition = new PrintEditionParser(ISSUE).parse(URI.create("http://www.economist.com/printedition/" + ISSUE.value()), indexPage);
+			specialArticles.put(edition.getPoliticsThisWeek().getPath(), Util.loadFromClassPath("pols-this-week.html"));
+			specialArticles.put(edition.getKalsCartoon().getPath(),      Util.loadFromClassPath("kal.html"));
+			specialArticles.put(edition.getLetters().getPath(),          Util.loadFromClassPath("letters.html"));
+			if (edition.getBusinessThisWeek().isPresent())
+				specialArticles.put(edition.getBusinessThisWeek().get().getPath(), Util.loadFromClassPath("biz-this-week.html"));
+			obituaryPath = edition.getObituary().getPath();
+		}
+
+		@Override
+		public HttpResponse execute(HttpUriRequest request) throws IOException {
+			requests.incrementAndGet();
+			String path = request.getURI().getPath();
+			if (! request.getURI().getHost().equals("www.economist.com"))
+				return response(200, "image/jpeg", new byte[] { 1, 2, 3 });
+			if (path.startsWith("/user"))
+				return html(request.getMethod().equals("POST") ? "<html><body>Welcome back, " + EMAIL.value() + "</body></html>" : LOGIN_PAGE);
+			if (path.equals("/printedition/" + ISSUE.value()))
+				return html(indexPage);
+			if (path.equals(obituaryPath))
+				return response(503, "text/plain", new byte[0]);
+			if (specialArticles.containsKey(path))
+				return html(specialArticles.get(path));
+
+			try {
+				Thread.sleep(10);
+			}
+			catch (InterruptedException e) {
+				throw new IOException("Interrupted while serving " + path, e);
+			}
+			return html(articlePage);
+		}
+
+		private static HttpResponse html(String page) {
+			return response(200, "text/html", page.getBytes(StandardCharsets.UTF_8));
+		}
+
+		private static HttpResponse response(int status, String contentType, byte[] body) {
+			BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+			response.setEntity(new ByteArrayEntity(body, ContentType.create(contentType, StandardCharsets.UTF_8)));
+			return response;
+		}
+
+		@Override
+		public TransportStats getStats() {
+			return new TransportStats(requests.get(), -1, -1, -1, -1);
+		}
+
+		@Override
+		public void close() { }
+	}
+
+	@Test(timeout = 60000)
+	public void testWriterFailsWhenLaterPartFails() throws Exception {
+		Downloader d = new Downloader(ISSUE, EMAIL, PASSWORD, 1, Optional.empty(), new FakeEconomist());
+		ExecutorService collector = Executors.newSingleThreadExecutor();
+		try {
+			PendingIssue pending = d.start(collector);
+			try {
+				EpubWriter.write(new ByteArrayOutputStream(), pending, ForkJoinPool.commonPool());
+				fail("Expected the issue to fail, as its obituary couldn't be downloaded");
+			}
+			catch (CompletionException e) {
+				assertEquals(HttpActionException.class, e.getCause().getClass());
+			}
+
+			// Every part has finished, so nothing else waiting on one can hang
+			assertTrue(pending.getIssue().isCompletedExceptionally());
+			for (CompletableFuture<List<PlainArticle>> section : pending.getSections().values())
+				assertTrue(section.isDone());
+			assertTrue(pending.getObituary().isCompletedExceptionally());
+		}
+		finally {
+			collector.shutdown();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.feenaboccles.kindlomist.articles.html.HtmlParseException;
+import org.feenaboccles.kindlomist.articles.html.HtmlParser;
+import org.junit.Test;
+
+public class FetchParsePipelineTest {
+
+	/**
+	 * Returns the URI's path as the page's "HTML", failing for paths containing
+	 * "missing", and never returning for paths containing "stalled"
+	 */
+	private final static class FakeHttpAction extends HttpAction {
+		final CountDownLatch stalled = new CountDownLatch(1);
+
+		FakeHttpAction() {
+			super((org.apache.http.client.HttpClient) null);
+		}
+
+		@Override
+		protected String makeHttpRequest(URI url, Optional<URI> referrerUrl) throws HttpActionException {
+			if (url.getPath().contains("missing"))
+				throw new HttpActionException("No page at " + url);
+			if (url.getPath().contains("stalled")) {
+				stalled.countDown();
+				try {
+					new CountDownLatch(1).await();
+				}
+				catch (InterruptedException e) {
+					throw new HttpActionException("Interrupted while downloading " + url, e);
+				}
+			}
+			return url.getPath();
+		}
+	}
+
+	/**
+	 * Parses the "HTML" into its length, failing for paths containing "bad",
+	 * and overflowing the stack for paths containing "deep"
+	 */
+	private final static HtmlParser<Integer> LENGTH_PARSER = (uri, html) -> {
+		if (html.contains("bad"))
+			throw new HtmlParseException("Bad page");
+		if (html.contains("deep"))
+			throw new StackOverflowError();
+		return html.length();
+	};
+
+	@Test
+	public void testResultsMatchSubmissions() throws Exception {
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		try (FetchParsePipeline pipeline = new FetchParsePipeline(new FakeHttpAction(), 4, 2, 1)) {
+			for (int i = 0; i < 100; i++)
+				futures.add(pipeline.submit(URI.create("http://www.economist.com/" + i), Optional.empty(), LENGTH_PARSER));
+
+			for (int i = 0; i < futures.size(); i++)
+				assertEquals(Integer.valueOf(("/" + i).length()), futures.get(i).get());
+
+			assertEquals(0, pipeline.getParseQueueDepth());
+			assertTrue(pipeline.getStats().contains("fetch: 100 done (0 failed)"));
+			assertTrue(pipeline.getStats().contains("parse: 100 done (0 failed)"));
+		}
+	}
+
+	@Test
+	public void testFailuresAreReportedPerPage() throws Exception {
+		try (FetchParsePipeline pipeline = new FetchParsePipeline(new FakeHttpAction(), 2, 1, 1)) {
+			CompletableFuture<Integer> missing = pipeline.submit(URI.create("http://www.economist.com/missing"), Optional.empty(), LENGTH_PARSER);
+			CompletableFuture<Integer> bad     = pipeline.submit(URI.create("http://www.economist.com/bad"), Optional.empty(), LENGTH_PARSER);
+			CompletableFuture<Integer> good    = pipeline.submit(URI.create("http://www.economist.com/good"), Optional.empty(), LENGTH_PARSER);
+
+			assertEquals(Integer.valueOf(5), good.get());
+			assertFailsWith(HttpActionException.class, missing);
+			assertFailsWith(HtmlParseException.class, bad);
+		}
+	}
+
+	@Test
+	public void testErrorsFailOnlyTheirPage() throws Exception {
+		try (FetchParsePipeline pipeline = new FetchParsePipeline(new FakeHttpAction(), 1, 1, 1)) {
+			CompletableFuture<Integer> deep = pipeline.submit(URI.create("http://www.economist.com/deep"), Optional.empty(), LENGTH_PARSER);
+			assertFailsWith(StackOverflowError.class, deep);
+
+			// The only parse thread is still running
+			CompletableFuture<Integer> good = pipeline.submit(URI.create("http://www.economist.com/good"), Optional.empty(), LENGTH_PARSER);
+			assertEquals(Integer.valueOf(5), good.get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testClosingFailsPagesNotYetDone() throws Exception {
+		FakeHttpAction http = new FakeHttpAction();
+		List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		FetchParsePipeline pipeline = new FetchParsePipeline(http, 1, 1, 1);
+		futures.add(pipeline.submit(URI.create("http://www.economist.com/stalled"), Optional.empty(), LENGTH_PARSER));
+		for (int i = 0; i < 10; i++)
+			futures.add(pipeline.submit(URI.create("http://www.economist.com/" + i), Optional.empty(), LENGTH_PARSER));
+		http.stalled.await();
+
+		pipeline.close();
+		for (CompletableFuture<Integer> future : futures) {
+			try {
+				future.get(10, TimeUnit.SECONDS);
+				fail("Expected the page to be abandoned");
+			}
+			catch (ExecutionException e) {
+				assertEquals(HttpActionException.class, e.getCause().getClass());
+			}
+		}
+
+		// Pages submitted once closed fail straight away
+		assertFailsWith(HttpActionException.class, pipeline.submit(URI.create("http://www.economist.com/late"), Optional.empty(), LENGTH_PARSER));
+
+		// ...and every abandoned page is counted as a failure
+		assertTrue(pipeline.getStats(), pipeline.getStats().contains("fetch: 12 done (12 failed), 0 queued"));
+		assertTrue(pipeline.getStats(), pipeline.getStats().contains("parse: 0 done (0 failed), 0 queued"));
+	}
+
+	private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<?> future) throws InterruptedException {
+		try {
+			future.get();
+			fail("Expected a " + expected.getSimpleName());
+		}
+		catch (ExecutionException e) {
+			assertEquals(expected, e.getCause().getClass());
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.feenaboccles.kindlomist.articles.ImageResolver;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class ImageDownloaderTest {
+
+	private final static byte[] JPEG = new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3 };
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private final AtomicInteger imageRequests = new AtomicInteger();
+
+	private HttpServer server;
+	private String     baseUrl;
+	private PooledHttpTransport transport;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/images/", exchange -> {
+			imageRequests.incrementAndGet();
+			exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+			exchange.sendResponseHeaders(200, JPEG.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(JPEG);
+			}
+		});
+		server.createContext("/missing/", exchange -> {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+		});
+		server.createContext("/truncated/", exchange -> {
+			exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+			exchange.sendResponseHeaders(200, JPEG.length * 2);
+			exchange.getResponseBody().write(JPEG);
+			exchange.getResponseBody().flush();
+			exchange.close();
+		});
+		server.start();
+		baseUrl   = "http://localhost:" + server.getAddress().getPort();
+		transport = new PooledHttpTransport(TransportSettings.builder().build());
+	}
+
+	@After
+	public void stopServer() throws IOException {
+		transport.close();
+		server.stop(0);
+	}
+
+	@Test
+	public void testFailuresAreReported() throws Exception {
+		ImageResolver resolver = new ImageResolver(tmp.newFolder().toPath());
+		URI article = URI.create(baseUrl + "/article");
+		URI good    = URI.create(baseUrl + "/images/a.jpg");
+		URI bad     = URI.create(baseUrl + "/missing/b.jpg");
+
+		try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, 2)) {
+			Path path = downloader.launchDownload(new Image(good.toString()), article).get();
+			downloader.launchDownload(bad, article);
+
+			try {
+				downloader.allDownloads().get(10, TimeUnit.SECONDS);
+				fail("The barrier should have failed as soon as the missing image failed");
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof HttpActionException);
+			}
+
+			List<ImageDownloader.Failure> failures = downloader.waitForAllDownloadsToComplete(10, TimeUnit.SECONDS);
+			assertEquals(1, failures.size());
+			assertEquals(bad.toString(), failures.get(0).getImage());
+
+			Map<URI, ImageDownloader.Status> status = downloader.getStatus();
+			assertEquals(ImageDownloader.Status.DOWNLOADED, status.get(good));
+			assertEquals(ImageDownloader.Status.FAILED,     status.get(bad));
+
+			assertArrayEquals(JPEG, Files.readAllBytes(path));
+			assertEquals(path, resolver.getImagePath(new Image(good.toString())));
+		}
+	}
+
+	@Test
+	public void testExecutorIsReusedAcrossIssues() throws Exception {
+		ExecutorService executor = ImageDownloader.newExecutor(2);
+		try {
+			for (int issue = 0; issue < 3; issue++) {
+				ImageResolver resolver = new ImageResolver(tmp.newFolder().toPath());
+				URI image = URI.create(baseUrl + "/images/issue-" + issue + ".jpg");
+				try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, executor)) {
+					downloader.launchDownload(image, URI.create(baseUrl + "/article"));
+					assertTrue(downloader.waitForAllDownloadsToComplete(10, TimeUnit.SECONDS).isEmpty());
+					assertTrue(resolver.hasImage(image));
+				}
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testDuplicateImagesAreDownloadedOnce() throws Exception {
+		Path dir = tmp.newFolder().toPath();
+		ImageResolver resolver = new ImageResolver(dir);
+		URI article = URI.create(baseUrl + "/article");
+		URI image   = URI.create(baseUrl + "/images/a.jpg");
+		URI copy    = URI.create(baseUrl + "/images/copy-of-a.jpg");
+
+		try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, 4)) {
+			downloader.launchDownload(new Image(image.toString()), article);
+			downloader.launchDownload(image, article);
+			downloader.launchDownload(URI.create(baseUrl + "/images/./a.jpg#main"), article);
+			downloader.launchDownload(copy, article);
+			assertTrue(downloader.waitForAllDownloadsToComplete(10, TimeUnit.SECONDS).isEmpty());
+		}
+
+		assertEquals(2, imageRequests.get());
+		assertEquals(resolver.getImagePath(image), resolver.getImagePath(new Image(image.toString())));
+		assertEquals(resolver.getImagePath(image), resolver.getImagePath(copy));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	public void testTruncatedImagesAreDeleted() throws Exception {
+		Path dir = tmp.newFolder().toPath();
+		ImageResolver resolver = new ImageResolver(dir);
+		URI image = URI.create(baseUrl + "/truncated/a.jpg");
+
+		try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, 1)) {
+			downloader.launchDownload(image, URI.create(baseUrl + "/article"));
+			assertEquals(1, downloader.waitForAllDownloadsToComplete(10, TimeUnit.SECONDS).size());
+		}
+
+		assertFalse(resolver.hasImage(image));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testRejectedDownloadsCanBeRetried() throws Exception {
+		ImageResolver resolver = new ImageResolver(tmp.newFolder().toPath());
+		URI article = URI.create(baseUrl + "/article");
+		URI image   = URI.create(baseUrl + "/images/a.jpg");
+
+		ExecutorService rejecting = ImageDownloader.newExecutor(1);
+		rejecting.shutdown();
+		try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, rejecting)) {
+			assertTrue(downloader.launchDownload(image, article).isCompletedExceptionally());
+		}
+
+		// the rejected download mustn't be shared with later requests
+		try (ImageDownloader downloader = new ImageDownloader(transport, Optional.empty(), resolver, 1)) {
+			assertArrayEquals(JPEG, Files.readAllBytes(downloader.launchDownload(image, article).get()));
+		}
+	}
+}
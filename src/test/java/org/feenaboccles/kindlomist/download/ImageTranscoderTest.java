@@ -0,0 +1,74 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImageTranscoderTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testLargeColourImageIsShrunk() throws IOException {
+		Path file = writeImage(2000, 1500, "jpg", "jpeg");
+		long before = Files.size(file);
+
+		long saved = ImageTranscoder.builder().build().transcode(file);
+
+		BufferedImage result = ImageIO.read(file.toFile());
+		assertEquals(758, result.getWidth());
+		assertEquals(Math.round(1500 * 758 / 2000.0), result.getHeight());
+		assertEquals(1, result.getColorModel().getNumComponents());
+		assertEquals(before - saved, Files.size(file));
+		assertTrue(saved > 0);
+	}
+
+	@Test
+	public void testColourIsKeptIfRequested() throws IOException {
+		Path file = writeImage(300, 200, "png", "png");
+
+		ImageTranscoder.builder().greyscale(false).build().transcode(file);
+
+		BufferedImage result = ImageIO.read(file.toFile());
+		assertEquals(300, result.getWidth());
+		assertEquals(200, result.getHeight());
+		assertTrue(result.getColorModel().getNumColorComponents() >= 3);
+	}
+
+	@Test
+	public void testGifsAreUntouched() throws IOException {
+		Path file = writeImage(2000, 1500, "gif", "gif");
+		byte[] before = Files.readAllBytes(file);
+
+		assertEquals(0, ImageTranscoder.builder().build().transcode(file));
+		assertArrayEquals(before, Files.readAllBytes(file));
+	}
+
+	/**
+	 * Writes a colourful, noisy image, which compresses poorly.
+	 */
+	private Path writeImage(int width, int height, String ext, String format) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random rng = new Random(42);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+				image.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | rng.nextInt(256));
+
+		Path file = tmp.newFile("image." + ext).toPath();
+		ImageIO.write(image, format, file.toFile());
+		return file;
+	}
+}
@@ -0,0 +1,119 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class PooledHttpTransportTest {
+
+	private final static byte[] BODY = "<html><body>Hello</body></html>".getBytes(StandardCharsets.UTF_8);
+
+	private HttpServer server;
+	private URI        uri;
+	private URI        stalledUri;
+
+	/** Holds requests to the stalled page until the test is done */
+	private final CountDownLatch released = new CountDownLatch(1);
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+			exchange.sendResponseHeaders(200, BODY.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(BODY);
+			}
+		});
+		server.createContext("/stalled", exchange -> {
+			try {
+				released.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.close();
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		uri        = URI.create("http://localhost:" + server.getAddress().getPort() + "/page");
+		stalledUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/stalled");
+	}
+
+	@After
+	public void stopServer() {
+		released.countDown();
+		server.stop(0);
+	}
+
+	@Test
+	public void testConnectionsAreReused() throws IOException {
+		try (PooledHttpTransport transport = new PooledHttpTransport(TransportSettings.builder().build())) {
+			for (int i = 0; i < 10; i++) {
+				HttpResponse response = transport.execute(new HttpGet(uri));
+				assertEquals(200, response.getStatusLine().getStatusCode());
+				EntityUtils.consume(response.getEntity());
+			}
+
+			TransportStats stats = transport.getStats();
+			assertEquals(10, stats.getRequests());
+			assertEquals(1, stats.getConnectionsOpened());
+			assertEquals(0, stats.getLeased());
+			assertEquals(1, stats.getAvailable());
+			assertEquals(0.9, stats.getReuseRatio(), 1E-9);
+		}
+	}
+
+	@Test
+	public void testAsyncTransportReturnsBody() throws IOException {
+		try (AsyncHttpTransport transport = new AsyncHttpTransport(TransportSettings.builder().build())) {
+			HttpResponse response = transport.execute(new HttpGet(uri));
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertEquals(new String(BODY, StandardCharsets.UTF_8), EntityUtils.toString(response.getEntity()));
+			assertEquals(1, transport.getStats().getRequests());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testRequestsTimeOutWhenServerStalls() throws IOException {
+		TransportSettings settings = TransportSettings.builder().socketTimeoutMillis(500).build();
+		try (PooledHttpTransport transport = new PooledHttpTransport(settings)) {
+			HttpAction action = new HttpAction(transport) { };
+			long start = System.nanoTime();
+			try {
+				action.makeHttpRequest(stalledUri, Optional.empty());
+				fail("Expected the request to time out");
+			}
+			catch (HttpActionException e) {
+				assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+			}
+		}
+	}
+
+	@Test
+	public void testSettingsDefaults() {
+		TransportSettings settings = TransportSettings.builder().maxConnectionsPerHost(3).build();
+		assertEquals(3, settings.getMaxConnectionsPerHost());
+		assertEquals(40, settings.getMaxConnections());
+		assertTrue(settings.getSocketTimeoutMillis() > 0);
+		assertTrue(settings.getIdleTimeoutSeconds() > 0);
+	}
+}
@@ -0,0 +1,90 @@
+package org.feenaboccles.kindlomist.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResponseCacheTest {
+
+	private final static URI PAGE_URI  = URI.create("http://www.economist.com/news/leaders/21636030-page");
+	private final static URI IMAGE_URI = URI.create("http://cdn.static-economist.com/sites/default/files/images/picture.jpg");
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testStoreAndLookupRoundTrip() throws IOException {
+		ResponseCache cache = new ResponseCache(tmp.getRoot().toPath(), Duration.ofHours(1));
+		assertFalse(cache.lookup(PAGE_URI).isPresent());
+
+		byte[] html = StringUtils.repeat("<p>Hello, world</p>", 1000).getBytes(StandardCharsets.UTF_8);
+		cache.store(PAGE_URI, Optional.of("text/html; charset=utf-8"), Optional.of("\"abc\""), Optional.of("Sat, 13 Dec 2014 10:00:00 GMT"), new ByteArrayInputStream(html));
+
+		ResponseCache.Entry entry = cache.lookup(PAGE_URI).get();
+		assertEquals(Optional.of("text/html; charset=utf-8"), entry.getContentType());
+		assertEquals(Optional.of("\"abc\""), entry.getETag());
+		assertEquals(Optional.of("Sat, 13 Dec 2014 10:00:00 GMT"), entry.getLastModified());
+		assertTrue(entry.isCompressed());
+		assertTrue(Files.size(entry.getBodyPath()) < html.length);
+		assertTrue(cache.isFresh(entry));
+		assertArrayEquals(html, cache.readBody(entry));
+	}
+
+	@Test
+	public void testImagesAreNotRecompressed() throws IOException {
+		ResponseCache cache = new ResponseCache(tmp.getRoot().toPath(), Duration.ofHours(1));
+
+		byte[] jpeg = new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3 };
+		cache.store(IMAGE_URI, Optional.of("image/jpeg"), Optional.empty(), Optional.empty(), new ByteArrayInputStream(jpeg));
+
+		ResponseCache.Entry entry = cache.lookup(IMAGE_URI).get();
+		assertFalse(entry.isCompressed());
+		assertFalse(entry.getETag().isPresent());
+		assertArrayEquals(jpeg, Files.readAllBytes(entry.getBodyPath()));
+	}
+
+	@Test
+	public void testStaleEntriesBecomeFreshWhenTouched() throws IOException {
+		ResponseCache cache = new ResponseCache(tmp.getRoot().toPath(), Duration.ZERO);
+		cache.store(PAGE_URI, Optional.empty(), Optional.of("\"abc\""), Optional.empty(), new ByteArrayInputStream(new byte[] { 1 }));
+
+		ResponseCache.Entry entry = cache.lookup(PAGE_URI).get();
+		assertFalse(cache.isFresh(entry));
+
+		ResponseCache longLived = new ResponseCache(tmp.getRoot().toPath(), Duration.ofHours(1));
+		longLived.touch(entry);
+		assertTrue(longLived.isFresh(longLived.lookup(PAGE_URI).get()));
+		assertEquals(Optional.of("\"abc\""), longLived.lookup(PAGE_URI).get().getETag());
+	}
+
+	@Test
+	public void testEntryWithInvalidStorageTimeIsAMiss() throws IOException {
+		ResponseCache cache = new ResponseCache(tmp.getRoot().toPath(), Duration.ofHours(1));
+		cache.store(PAGE_URI, Optional.empty(), Optional.empty(), Optional.empty(), new ByteArrayInputStream(new byte[] { 1 }));
+
+		Path metaPath;
+		try (Stream<Path> files = Files.walk(tmp.getRoot().toPath())) {
+			metaPath = files.filter(f -> f.toString().endsWith(".properties")).findFirst().get();
+		}
+		String meta = new String(Files.readAllBytes(metaPath), StandardCharsets.UTF_8);
+		Files.write(metaPath, meta.replaceAll("stored-at=\\d+", "stored-at=yesterday").getBytes(StandardCharsets.UTF_8));
+
+		assertFalse(cache.lookup(PAGE_URI).isPresent());
+	}
+}
@@ -0,0 +1,95 @@
+package org.feenaboccles.kindlomist.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@Test
+	public void testCounterAndTimerAreCreatedOnce() {
+		assertSame(Metrics.INSTANCE.counter("test.once"), Metrics.INSTANCE.counter("test.once"));
+		assertSame(Metrics.INSTANCE.timer("test.once"), Metrics.INSTANCE.timer("test.once"));
+	}
+
+	@Test
+	public void testTimerPercentiles() {
+		Timer timer = Metrics.INSTANCE.timer("test.percentiles");
+		for (int ms = 1; ms <= 100; ms++)
+			timer.record(TimeUnit.MILLISECONDS.toNanos(ms));
+
+		assertEquals(100, timer.getCount());
+		assertEquals(5050, timer.getTotalMillis(), 1E-9);
+		assertEquals(50.5, timer.getMeanMillis(), 1E-9);
+		assertEquals(100,  timer.getMaxMillis(), 1E-9);
+
+		// estimates are never below the true value, nor more than an eighth above it
+		assertBetween(50, timer.getP50Millis(), 50 * 1.125);
+		assertBetween(90, timer.getP90Millis(), 90 * 1.125);
+		assertBetween(99, timer.getP99Millis(), 100);
+	}
+
+	@Test
+	public void testBucketsCoverAllDurations() {
+		long[] durations = { 0, 1, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+		for (long nanos : durations) {
+			int bucket = Timer.bucketOf(nanos);
+			assertTrue(nanos + " is above its bucket", nanos <= Timer.upperBoundOf(bucket));
+			assertTrue(nanos + " is below its bucket", bucket == 0 || nanos > Timer.upperBoundOf(bucket - 1));
+		}
+	}
+
+	@Test
+	public void testCountingInputStream() throws IOException {
+		Counter counter = Metrics.INSTANCE.counter("test.bytes");
+		try (InputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[1000]), counter)) {
+			in.read();
+			in.read(new byte[100]);
+			in.skip(10);
+			while (in.read(new byte[256]) >= 0)
+				;
+		}
+		assertEquals(1000, counter.getCount());
+	}
+
+	@Test
+	public void testJsonReport() throws IOException {
+		Metrics.INSTANCE.counter("test.\"quoted\"").add(3);
+		Metrics.INSTANCE.timer("test.json").record(TimeUnit.MILLISECONDS.toNanos(2));
+
+		StringWriter json = new StringWriter();
+		Metrics.INSTANCE.writeJson(json);
+
+		assertTrue(json.toString().contains("\"test.\\\"quoted\\\"\": 3"));
+		assertTrue(json.toString().contains("\"test.json\": {\"count\": 1, \"totalMillis\": 2.000, \"meanMillis\": 2.000"));
+		assertTrue(json.toString().startsWith("{") && json.toString().trim().endsWith("}"));
+	}
+
+	@Test
+	public void testMBeansRegistered() throws Exception {
+		Metrics.INSTANCE.timer("test.before-jmx").record(1);
+		Metrics.INSTANCE.registerMBeans();
+		Metrics.INSTANCE.counter("test.after-jmx").increment();
+
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName(Metrics.JMX_DOMAIN + ":type=Timer,name=\"test.before-jmx\""), "Count"));
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(
+				new ObjectName(Metrics.JMX_DOMAIN + ":type=Counter,name=\"test.after-jmx\""), "Count"));
+	}
+
+	private static void assertBetween(double low, double actual, double high) {
+		assertTrue(actual + " is below " + low,  actual >= low);
+		assertTrue(actual + " is above " + high, actual <= high);
+	}
+}
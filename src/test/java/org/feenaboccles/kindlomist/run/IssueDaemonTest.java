@@ -0,0 +1,163 @@
+package org.feenaboccles.kindlomist.run;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IssueDaemonTest {
+
+	private final static ZoneId LONDON = ZoneId.of("Europe/London");
+
+	// Thursday the 11th of December 2014, the issue of Saturday the 13th is released at 4pm
+	private final static ZonedDateTime RELEASE = ZonedDateTime.of(2014, 12, 11, 16, 0, 0, 0, LONDON);
+	private final static LocalDate     ISSUE   = LocalDate.of(2014, 12, 13);
+
+	@Test
+	public void testNextRelease() {
+		assertEquals(RELEASE, IssueDaemon.nextRelease(RELEASE.minusMinutes(1)));
+		assertEquals(RELEASE, IssueDaemon.nextRelease(RELEASE.minusDays(3)));
+		assertEquals(RELEASE.plusWeeks(1), IssueDaemon.nextRelease(RELEASE));
+		assertEquals(RELEASE.plusWeeks(1), IssueDaemon.nextRelease(RELEASE.plusHours(1)));
+		assertEquals(RELEASE.plusWeeks(1), IssueDaemon.nextRelease(RELEASE.plusDays(1)));
+
+		// The release is always at 4pm London time, whatever the zone of the given time
+		assertEquals(RELEASE.toInstant(), IssueDaemon.nextRelease(RELEASE.minusMinutes(1).withZoneSameInstant(ZoneId.of("America/New_York"))).toInstant());
+
+		// ...and whether or not it's summer time
+		ZonedDateTime summer = ZonedDateTime.of(2015, 6, 18, 16, 0, 0, 0, LONDON);
+		assertEquals(summer, IssueDaemon.nextRelease(summer.minusDays(2)));
+	}
+
+	@Test
+	public void testRetriesWithBackoffUntilFetched() throws Exception {
+		FakeClock clock = new FakeClock(RELEASE.plusSeconds(1));
+		Fetcher fetcher = new Fetcher(clock, 3);
+		IssueDaemon daemon = newDaemon(fetcher, clock);
+
+		assertTrue(daemon.fetchLatestIssue());
+		assertEquals(4, fetcher.attempts.size());
+		assertEquals(ISSUE, fetcher.fetched);
+
+		// Each retry waits twice as long as the last, up to a maximum
+		Instant first = fetcher.attempts.get(0);
+		assertEquals(Duration.ofMinutes(2), Duration.between(first, fetcher.attempts.get(1)));
+		assertEquals(Duration.ofMinutes(4), Duration.between(fetcher.attempts.get(1), fetcher.attempts.get(2)));
+		assertEquals(Duration.ofMinutes(5), Duration.between(fetcher.attempts.get(2), fetcher.attempts.get(3)));
+
+		// ...and then waits for the next issue
+		assertEquals(RELEASE.plusWeeks(1).toInstant(), clock.instant());
+	}
+
+	@Test
+	public void testGivesUpWhenNextIssueIsReleased() throws Exception {
+		FakeClock clock = new FakeClock(RELEASE.plusDays(6));
+		Fetcher fetcher = new Fetcher(clock, Integer.MAX_VALUE);
+		IssueDaemon daemon = newDaemon(fetcher, clock);
+
+		assertFalse(daemon.fetchLatestIssue());
+		assertTrue(fetcher.attempts.size() > 1);
+		for (Instant attempt : fetcher.attempts)
+			assertTrue(attempt.isBefore(RELEASE.plusWeeks(1).toInstant()));
+		assertEquals(RELEASE.plusWeeks(1).toInstant(), clock.instant());
+
+		// The next issue is fetched after it's released
+		fetcher.failures = 0;
+		assertTrue(daemon.fetchLatestIssue());
+		assertEquals(ISSUE.plusWeeks(1), fetcher.fetched);
+	}
+
+	@Test
+	public void testSkipsIssueAlreadyFetched() throws Exception {
+		FakeClock clock = new FakeClock(RELEASE.minusDays(1));
+		Fetcher fetcher = new Fetcher(clock, 0);
+		fetcher.existing = ISSUE.minusWeeks(1);
+		IssueDaemon daemon = newDaemon(fetcher, clock);
+
+		assertTrue(daemon.fetchLatestIssue());
+		assertTrue(fetcher.attempts.isEmpty());
+		assertEquals(RELEASE.toInstant(), clock.instant());
+
+		assertTrue(daemon.fetchLatestIssue());
+		assertEquals(ISSUE, fetcher.fetched);
+	}
+
+	private static IssueDaemon newDaemon(Fetcher fetcher, FakeClock clock) {
+		return new IssueDaemon(fetcher, clock, Duration.ofMinutes(2), Duration.ofMinutes(5)) {
+			@Override
+			void sleep(Duration delay) {
+				clock.advance(delay);
+			}
+		};
+	}
+
+	/**
+	 * Fails the given number of times before fetching an issue, recording
+	 * when each attempt was made
+	 */
+	private static class Fetcher implements IssueDaemon.IssueFetcher {
+		private final Clock clock;
+		private final List<Instant> attempts = new ArrayList<>();
+		private int       failures;
+		private LocalDate existing = null;
+		private LocalDate fetched  = null;
+
+		Fetcher(Clock clock, int failures) {
+			this.clock    = clock;
+			this.failures = failures;
+		}
+
+		@Override
+		public boolean hasIssue(LocalDate issue) {
+			return issue.equals(existing);
+		}
+
+		@Override
+		public void fetch(LocalDate issue) throws Exception {
+			attempts.add(clock.instant());
+			if (failures > 0) {
+				failures--;
+				throw new IOException("The issue of " + issue + " isn't available yet");
+			}
+			fetched = issue;
+		}
+	}
+
+	private static class FakeClock extends Clock {
+		private Instant now;
+
+		FakeClock(ZonedDateTime now) {
+			this.now = now.toInstant();
+		}
+
+		void advance(Duration delay) {
+			now = now.plus(delay);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return LONDON;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package org.feenaboccles.kindlomist.valid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import javax.validation.ValidationException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.PrintEdition;
+import org.feenaboccles.kindlomist.articles.WeeklyDigestArticle;
+import org.feenaboccles.kindlomist.articles.content.Content;
+import org.feenaboccles.kindlomist.articles.content.Footnote;
+import org.feenaboccles.kindlomist.articles.content.Image;
+import org.feenaboccles.kindlomist.articles.content.LetterAuthor;
+import org.feenaboccles.kindlomist.articles.content.PullQuote;
+import org.feenaboccles.kindlomist.articles.content.Reference;
+import org.feenaboccles.kindlomist.articles.content.SubHeading;
+import org.feenaboccles.kindlomist.articles.content.Text;
+import org.feenaboccles.kindlomist.download.DateStamp;
+import org.feenaboccles.kindlomist.download.Email;
+import org.feenaboccles.kindlomist.download.Password;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks that the hand-written constraints give exactly the same failures
+ * as the Bean Validation annotations they replace.
+ */
+public class ValidatorTest {
+
+	private final static String TEXT = "WHEN the first mobile phone call was made in 1973, few members of the public were interested in the new technology.";
+	private final static URI    ARTICLE_URI = URI.create("http://www.economist.com/article");
+
+	@After
+	public void restoreDefault() {
+		Validator.INSTANCE.setBeanValidation(false);
+	}
+
+	@Test
+	public void testContentFailuresMatchBeanValidation() {
+		assertSameFailures(() -> new Text(TEXT).validate(),                       false);
+		assertSameFailures(() -> new Text("Too short").validate(),                true);
+		assertSameFailures(() -> new Text(TEXT + " → and on").validate(),          true);
+		assertSameFailures(() -> new SubHeading("Rising importance").validate(),  false);
+		assertSameFailures(() -> new SubHeading("→").validate(),                  true);
+		assertSameFailures(() -> new Footnote("Correction: an earlier version misnamed the minister").validate(), false);
+		assertSameFailures(() -> new Footnote(StringUtils.repeat("Corrected. ", 40)).validate(), true);
+		assertSameFailures(() -> new PullQuote("It is a question of £ and €").validate(), false);
+		assertSameFailures(() -> new PullQuote("Short").validate(),               true);
+		assertSameFailures(() -> new LetterAuthor("JOE BLOGGS London").validate(), false);
+		assertSameFailures(() -> new LetterAuthor("Joe Bloggs, London").validate(), true);
+		assertSameFailures(() -> new Image("http://x").validate(),                true);
+		assertSameFailures(() -> new Reference("See", "our briefing", "http://www.economist.com/news/briefing/21636045", "for more").validate(), false);
+		assertSameFailures(() -> new Reference(StringUtils.repeat("a", 51), "→", "http://x", "").validate(), true);
+	}
+
+	@Test
+	public void testArticleFailuresMatchBeanValidation() {
+		List<Content> body = Arrays.asList(new Text(TEXT));
+		assertSameFailures(() -> article("A title", "Topic", "A strap", body).validate(), false);
+		assertSameFailures(() -> article("A→", "To", StringUtils.repeat("strap ", 40), body).validate(), true);
+		assertSameFailures(() -> article("A title", "Topic", "A strap", Collections.emptyList()).validate(), true);
+		assertSameFailures(() -> new WeeklyDigestArticle(ARTICLE_URI, Collections.emptyList()).validate(), true);
+	}
+
+	@Test
+	public void testPrintEditionFailuresMatchBeanValidation() {
+		assertSameFailures(() -> printEdition(Arrays.asList("Leaders", "Britain", "Europe", "Asia", "Business")).validate(), false);
+		assertSameFailures(() -> printEdition(Arrays.asList("Leaders", "Bri", "Europe → Asia", "Asia", "Business")).validate(), true);
+		assertSameFailures(() -> printEdition(Arrays.asList("Leaders", "Britain")).validate(), true);
+	}
+
+	@Test
+	public void testCredentialFailuresMatchBeanValidation() {
+		assertSameFailures(() -> Email.of("someone@example.com"), false);
+		assertSameFailures(() -> Email.of("someone@example."),    true);
+		assertSameFailures(() -> Email.of("some one@example.com"), true);
+		assertSameFailures(() -> Email.of("a@b@example.com"),     true);
+		assertSameFailures(() -> Email.of("someone@[127.0.0.1]"), false);
+		assertSameFailures(() -> Password.of("hunter2"),          false);
+		assertSameFailures(() -> Password.of("hunter 2"),         true);
+		assertSameFailures(() -> Password.of("h"),                true);
+	}
+
+	/**
+	 * Validates the object twice, once with each validator, and checks that
+	 * either both or neither fail, with the same messages.
+	 */
+	private static void assertSameFailures(Supplier<?> validation, boolean shouldFail) {
+		Validator.INSTANCE.setBeanValidation(false);
+		String handWritten = failures(validation);
+		Validator.INSTANCE.setBeanValidation(true);
+		String beanValidation = failures(validation);
+
+		if (shouldFail)
+			assertNotNull("Expected validation to fail", handWritten);
+		else
+			assertNull("Expected validation to succeed", handWritten);
+		assertEquals(beanValidation, handWritten);
+	}
+
+	/**
+	 * The failure message, with its lines sorted, as Bean Validation reports
+	 * violations in no particular order.
+	 */
+	private static String failures(Supplier<?> validation) {
+		try {
+			validation.get();
+			return null;
+		}
+		catch (ValidationException e) {
+			return new TreeSet<>(Arrays.asList(e.getMessage().split("\n"))).toString();
+		}
+	}
+
+	private static PlainArticle article(String title, String topic, String strap, List<Content> body) {
+		return PlainArticle.builder()
+				.articleUri(ARTICLE_URI)
+				.title(title)
+				.topic(topic)
+				.strap(strap)
+				.body(body)
+				.mainImage(Optional.empty())
+				.build();
+	}
+
+	private static PrintEdition printEdition(List<String> sectionNames) {
+		Map<String, List<URI>> sections = new HashMap<>();
+		for (String name : sectionNames)
+			sections.put(name, Arrays.asList(ARTICLE_URI));
+
+		return PrintEdition.builder()
+				.dateStamp(DateStamp.of("2014-12-13"))
+				.politicsThisWeek(ARTICLE_URI)
+				.businessThisWeek(Optional.of(ARTICLE_URI))
+				.kalsCartoon(ARTICLE_URI)
+				.letters(ARTICLE_URI)
+				.obituary(ARTICLE_URI)
+				.sections(sections)
+				.orderedSections(sectionNames)
+				.build();
+	}
+}
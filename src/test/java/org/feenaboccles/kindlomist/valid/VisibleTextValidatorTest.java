@@ -0,0 +1,93 @@
+package org.feenaboccles.kindlomist.valid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import javax.validation.ValidationException;
+
+import org.feenaboccles.kindlomist.articles.PlainArticle;
+import org.feenaboccles.kindlomist.articles.content.SubHeading;
+import org.feenaboccles.kindlomist.articles.content.Text;
+import org.junit.Test;
+
+public class VisibleTextValidatorTest {
+
+	private final static Pattern VISIBLE_TEXT = Pattern.compile(PlainArticle.ECONOMIST_VISIBLE_TEXT);
+
+	@Test
+	public void testEveryCodePointMatchesThePattern() {
+		for (int cp = 0; cp <= Character.MAX_CODE_POINT; cp++) {
+			String text = new String(Character.toChars(cp));
+			assertEquals("Disagreement over U+" + Integer.toHexString(cp),
+					VISIBLE_TEXT.matcher(text).matches(), VisibleTextValidator.isVisible(text));
+		}
+	}
+
+	@Test
+	public void testStringsMatchThePattern() {
+		String[] samples = new String[] {
+			"",
+			"The “peace dividend” has run out — for now.",
+			"Prices rose by 3.5% to $1,200 (£760) in 2014…",
+			"Tab\tseparated",
+			"Ελληνικά",
+			"Crème brûlée, ½ price†",
+			"Lone high surrogate \uD835",
+			"Lone low surrogate \uDC00 here",
+			"Reversed pair \uDC00\uD835",
+			"Mathematical 𝐀 letter",
+		};
+		for (String sample : samples)
+			assertEquals(sample, VISIBLE_TEXT.matcher(sample).matches(), VisibleTextValidator.isVisible(sample));
+	}
+
+	@Test
+	public void testIllegalCharactersAreAllFound() {
+		assertEquals(Collections.emptyList(), VisibleTextValidator.findIllegalCharacters("The “peace dividend” has run out."));
+		assertEquals(
+			Arrays.asList(
+				new IllegalCharacter(6,  0x2192),  // →
+				new IllegalCharacter(7,  0x00A0),  // non-breaking space
+				new IllegalCharacter(8,  0x200B),  // zero-width space
+				new IllegalCharacter(15, 0x1F600), // emoji, two chars long
+				new IllegalCharacter(19, 0xD835)), // unpaired surrogate
+			VisibleTextValidator.findIllegalCharacters("Europe→\u00a0\u200Bsmiles\uD83D\uDE00, \uD835"));
+	}
+
+	@Test
+	public void testIllegalCharacterDescription() {
+		assertEquals("U+2192 RIGHTWARDS ARROW at offset 6", new IllegalCharacter(6, 0x2192).toString());
+	}
+
+	@Test
+	public void testAnnotationIsApplied() {
+		assertTrue(isValid(new SubHeading("Faster, higher")));
+		assertFalse(isValid(new SubHeading("Faster → higher")));
+		assertFalse(isValid(new Text("Twenty-five years on, the peace dividend → has run out")));
+	}
+
+	private static boolean isValid(SubHeading heading) {
+		try {
+			heading.validate();
+			return true;
+		}
+		catch (ValidationException e) {
+			return false;
+		}
+	}
+
+	private static boolean isValid(Text text) {
+		try {
+			text.validate();
+			return true;
+		}
+		catch (ValidationException e) {
+			return false;
+		}
+	}
+}